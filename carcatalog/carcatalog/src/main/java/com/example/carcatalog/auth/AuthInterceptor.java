@@ -0,0 +1,70 @@
+package com.example.carcatalog.auth;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+
+// Аутентификация по заголовку Authorization: Bearer <token> для /api/cars и /api/favorites.
+// Неверный токен - 401 всегда. Без токена запросы проходят, пока auth.required=false
+// (старые клиенты); с auth.required=true избранное требует токен, а изменение машин - токен админа.
+@Component
+public class AuthInterceptor implements HandlerInterceptor {
+
+    private static final String BEARER = "Bearer ";
+
+    @Autowired
+    private AuthTokenService authTokenService;
+
+    @Value("${auth.required:false}")
+    private boolean required;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        if (HttpMethod.OPTIONS.matches(request.getMethod())) {
+            return true;
+        }
+
+        String header = request.getHeader("Authorization");
+        AuthToken token = null;
+        if (header != null && header.startsWith(BEARER)) {
+            token = authTokenService.verify(header.substring(BEARER.length()).trim());
+            if (token == null) {
+                return reject(response, 401, "Invalid or expired token");
+            }
+            request.setAttribute(AuthToken.REQUEST_ATTRIBUTE, token);
+        }
+
+        // Путь декодированный и без ;параметров - так же его видит маппинг контроллеров,
+        // иначе DELETE /api/%63ars/5 или /api;x=1/cars/5 дошёл бы до контроллера без проверки
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+        boolean favorites = isUnder(path, "/api/favorites");
+        boolean carWrite = isUnder(path, "/api/cars") && !HttpMethod.GET.matches(request.getMethod());
+        if (token == null) {
+            return !(required && (favorites || carWrite)) || reject(response, 401, "Authentication required");
+        }
+        if (carWrite && !token.isAdmin()) {
+            return reject(response, 403, "Admin rights required");
+        }
+        return true;
+    }
+
+    private static boolean isUnder(String path, String prefix) {
+        return path.equals(prefix) || path.startsWith(prefix + "/");
+    }
+
+    private boolean reject(HttpServletResponse response, int status, String error) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"" + error + "\"}");
+        return false;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.carcatalog.auth;
+
+// Проверенный токен: кто вошёл и до какого момента токен действует.
+// Кладётся в атрибут запроса AuthInterceptor-ом.
+public class AuthToken {
+
+    public static final String REQUEST_ATTRIBUTE = AuthToken.class.getName();
+
+    private final long userId;
+    private final boolean admin;
+    private final long issuedAt;
+    private final long expiresAt;
+
+    public AuthToken(long userId, boolean admin, long issuedAt, long expiresAt) {
+        this.userId = userId;
+        this.admin = admin;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public long getUserId() { return userId; }
+    public boolean isAdmin() { return admin; }
+
+    // Миллисекунды epoch
+    public long getIssuedAt() { return issuedAt; }
+    public long getExpiresAt() { return expiresAt; }
+}
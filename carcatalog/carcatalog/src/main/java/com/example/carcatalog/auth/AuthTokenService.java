@@ -0,0 +1,121 @@
+package com.example.carcatalog.auth;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Подписанные токены без хранения на сервере: payload (userId, admin, время выдачи и истечения)
+// + HMAC-SHA256. Проверка - одна подпись в памяти, без обращения к БД.
+// Отзыв (смена пароля) - "не раньше" по пользователю; записи старше TTL не нужны и удаляются.
+@Service
+public class AuthTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int PAYLOAD_LENGTH = 8 + 1 + 8 + 8;
+
+    private final SecretKeySpec key;
+    private final Duration ttl;
+
+    // Mac не потокобезопасен - по экземпляру на поток
+    private final ThreadLocal<Mac> mac;
+
+    private final Map<Long, Long> notBeforeByUser = new ConcurrentHashMap<>();
+
+    public AuthTokenService(
+            @Value("${auth.token.secret:}") String secret,
+            @Value("${auth.token.ttl:7d}") Duration ttl
+    ) {
+        byte[] keyBytes;
+        if (secret.isEmpty()) {
+            // Без секрета в конфигурации токены живут до перезапуска
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.ttl = ttl;
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC is not available", e);
+            }
+        });
+    }
+
+    public String issue(long userId, boolean admin) {
+        long now = System.currentTimeMillis();
+        byte[] payload = ByteBuffer.allocate(PAYLOAD_LENGTH)
+                .putLong(userId)
+                .put((byte) (admin ? 1 : 0))
+                .putLong(now)
+                .putLong(now + ttl.toMillis())
+                .array();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payload) + "." + encoder.encodeToString(sign(payload));
+    }
+
+    // null - токен повреждён, подделан, истёк или отозван
+    public AuthToken verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) {
+            return null;
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            payload = decoder.decode(token.substring(0, dot));
+            signature = decoder.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (payload.length != PAYLOAD_LENGTH || !MessageDigest.isEqual(sign(payload), signature)) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long userId = buffer.getLong();
+        boolean admin = buffer.get() == 1;
+        long issuedAt = buffer.getLong();
+        long expiresAt = buffer.getLong();
+
+        if (expiresAt <= System.currentTimeMillis()) {
+            return null;
+        }
+        Long notBefore = notBeforeByUser.get(userId);
+        if (notBefore != null && issuedAt < notBefore) {
+            return null;
+        }
+        return new AuthToken(userId, admin, issuedAt, expiresAt);
+    }
+
+    // Все выданные до этого момента токены пользователя становятся недействительными
+    public void revokeAll(long userId) {
+        long now = System.currentTimeMillis();
+        notBeforeByUser.put(userId, now);
+        long expired = now - ttl.toMillis();
+        notBeforeByUser.values().removeIf(notBefore -> notBefore < expired);
+    }
+
+    private byte[] sign(byte[] payload) {
+        return mac.get().doFinal(payload);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.carcatalog.auth;
+
+// Пул хеширования паролей переполнен - клиенту стоит повторить позже
+public class HashingRejectedException extends RuntimeException {
+
+    public HashingRejectedException() {
+        super("Server is busy, try again later");
+    }
+}
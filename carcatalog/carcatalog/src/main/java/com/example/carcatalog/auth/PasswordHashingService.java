@@ -0,0 +1,126 @@
+package com.example.carcatalog.auth;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Хеширование паролей в отдельном ограниченном пуле: всплеск входов/регистраций
+// занимает не больше auth.hashing.threads ядер и не отнимает потоки Tomcat у каталога.
+// Очередь ограничена - при перегрузке сразу HashingRejectedException (503), а не ожидание.
+// Алгоритм (bcrypt с заданной стоимостью или argon2) настраивается; старые хеши
+// распознаются по префиксу и перехешируются после успешного входа.
+@Service
+public class PasswordHashingService {
+
+    private final BCryptPasswordEncoder bcrypt;
+    private final Argon2PasswordEncoder argon2 = Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8();
+    private final PasswordEncoder current;
+
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    public PasswordHashingService(
+            MeterRegistry meterRegistry,
+            @Value("${auth.password.algorithm:bcrypt}") String algorithm,
+            @Value("${auth.password.bcrypt-strength:10}") int bcryptStrength,
+            @Value("${auth.hashing.threads:0}") int threads,
+            @Value("${auth.hashing.queue-size:100}") int queueSize
+    ) {
+        this.bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        this.current = switch (algorithm.toLowerCase()) {
+            case "bcrypt" -> bcrypt;
+            case "argon2" -> argon2;
+            default -> throw new IllegalArgumentException("Unknown auth.password.algorithm: " + algorithm);
+        };
+
+        // 0 - половина ядер: остальное остаётся запросам каталога
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("auth.password.hash").tag("operation", "encode").register(meterRegistry);
+        this.matchesTimer = Timer.builder("auth.password.hash").tag("operation", "matches").register(meterRegistry);
+        this.rejected = Counter.builder("auth.password.rejected").register(meterRegistry);
+        Gauge.builder("auth.password.queue", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public String encode(String rawPassword) {
+        return run(() -> encodeTimer.record(() -> current.encode(rawPassword)));
+    }
+
+    public boolean matches(String rawPassword, String hash) {
+        if (rawPassword == null || hash == null) {
+            return false;
+        }
+        return run(() -> matchesTimer.record(() -> encoderFor(hash).matches(rawPassword, hash)));
+    }
+
+    // Хеш сделан другим алгоритмом или с параметрами слабее текущих
+    public boolean needsRehash(String hash) {
+        PasswordEncoder encoder = encoderFor(hash);
+        return encoder != current || encoder.upgradeEncoding(hash);
+    }
+
+    // Перехеширование в фоне после входа; если пул занят - пропускаем до следующего входа
+    public void rehashAsync(String rawPassword, Consumer<String> onHashed) {
+        try {
+            executor.execute(() -> onHashed.accept(encodeTimer.record(() -> current.encode(rawPassword))));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+        }
+    }
+
+    private PasswordEncoder encoderFor(String hash) {
+        return hash.startsWith("$argon2") ? argon2 : bcrypt;
+    }
+
+    private <T> T run(Supplier<T> task) {
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new HashingRejectedException();
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
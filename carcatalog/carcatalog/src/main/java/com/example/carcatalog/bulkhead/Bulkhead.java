@@ -0,0 +1,142 @@
+package com.example.carcatalog.bulkhead;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Изоляция одного класса нагрузки: не больше maxConcurrent запросов в обработке и не больше
+// dbConnections соединений из общего пула Hikari одновременно.
+// Запрос сверх лимита ждёт слот не дольше maxWait; если ждущих уже maxQueue - отказ сразу.
+// Отказ - BulkheadRejectedException (503 с Retry-After).
+public class Bulkhead {
+
+    // Bulkhead запроса, который обрабатывается в текущем потоке (для BulkheadDataSource)
+    private static final ThreadLocal<Bulkhead> CURRENT = new ThreadLocal<>();
+
+    private final Workload workload;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final int dbConnections;
+    private final int retryAfterSeconds;
+
+    private final Semaphore requests;
+    private final Semaphore connections;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final Timer requestWait;
+    private final Timer connectionWait;
+    private final Counter rejectedConcurrency;
+    private final Counter rejectedQueue;
+    private final Counter rejectedConnections;
+
+    public Bulkhead(Workload workload, int maxConcurrent, int maxQueue, Duration maxWait, int dbConnections,
+                    int retryAfterSeconds, MeterRegistry meterRegistry) {
+        if (maxConcurrent < 1 || dbConnections < 1 || maxQueue < 0) {
+            throw new IllegalArgumentException("Invalid limits for bulkhead " + workload.getPropertyName());
+        }
+        this.workload = workload;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.dbConnections = dbConnections;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.requests = new Semaphore(maxConcurrent, true);
+        this.connections = new Semaphore(dbConnections, true);
+
+        String name = workload.getPropertyName();
+        this.requestWait = Timer.builder("catalog.bulkhead.wait")
+                .description("Time spent waiting for a bulkhead slot")
+                .tag("bulkhead", name).tag("resource", "request").register(meterRegistry);
+        this.connectionWait = Timer.builder("catalog.bulkhead.wait")
+                .description("Time spent waiting for a bulkhead slot")
+                .tag("bulkhead", name).tag("resource", "connection").register(meterRegistry);
+        this.rejectedConcurrency = rejectedCounter(meterRegistry, name, "timeout");
+        this.rejectedQueue = rejectedCounter(meterRegistry, name, "queue-full");
+        this.rejectedConnections = rejectedCounter(meterRegistry, name, "connections");
+        Gauge.builder("catalog.bulkhead.active", requests, s -> maxConcurrent - s.availablePermits())
+                .tag("bulkhead", name).register(meterRegistry);
+        Gauge.builder("catalog.bulkhead.queued", waiting, AtomicInteger::get)
+                .tag("bulkhead", name).register(meterRegistry);
+        Gauge.builder("catalog.bulkhead.connections", connections, s -> dbConnections - s.availablePermits())
+                .tag("bulkhead", name).register(meterRegistry);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String name, String reason) {
+        return Counter.builder("catalog.bulkhead.rejected")
+                .description("Requests shed with 503")
+                .tag("bulkhead", name).tag("reason", reason).register(meterRegistry);
+    }
+
+    public static Bulkhead current() {
+        return CURRENT.get();
+    }
+
+    // Поток записи потокового ответа работает от имени запроса, занявшего слот
+    static void bindCurrent(Bulkhead bulkhead) {
+        CURRENT.set(bulkhead);
+    }
+
+    static void clearCurrent() {
+        CURRENT.remove();
+    }
+
+    public Workload getWorkload() { return workload; }
+    public int getMaxConcurrent() { return maxConcurrent; }
+    public int getDbConnections() { return dbConnections; }
+
+    // Занять слот запроса и привязать bulkhead к потоку; после обработки - release
+    public void acquire() {
+        if (!requests.tryAcquire()) {
+            if (waiting.incrementAndGet() > maxQueue) {
+                waiting.decrementAndGet();
+                rejectedQueue.increment();
+                throw new BulkheadRejectedException(workload, "queue is full", retryAfterSeconds);
+            }
+            try {
+                if (!await(requests, requestWait)) {
+                    rejectedConcurrency.increment();
+                    throw new BulkheadRejectedException(workload, "concurrency limit", retryAfterSeconds);
+                }
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+        CURRENT.set(this);
+    }
+
+    public void release() {
+        CURRENT.remove();
+        requests.release();
+    }
+
+    // Соединение с БД в рамках бюджета; освобождается при закрытии соединения
+    public void acquireConnection() {
+        if (!connections.tryAcquire() && !await(connections, connectionWait)) {
+            rejectedConnections.increment();
+            throw new BulkheadRejectedException(workload, "database connection budget", retryAfterSeconds);
+        }
+    }
+
+    public void releaseConnection() {
+        connections.release();
+    }
+
+    private boolean await(Semaphore semaphore, Timer timer) {
+        long started = System.nanoTime();
+        try {
+            return semaphore.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.carcatalog.bulkhead;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class BulkheadConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private BulkheadInterceptor bulkheadInterceptor;
+
+    // Первым: лишний запрос отбрасывается до проверки токена и прочей работы
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(bulkheadInterceptor).addPathPatterns("/api/**").order(Ordered.HIGHEST_PRECEDENCE);
+    }
+
+    // StreamingResponseBody выполняется как Callable: слот запроса - и в потоке записи тела
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(bulkheadInterceptor);
+    }
+
+    // Пул Hikari оборачивается один раз; Hikari-метрики находят его через unwrap
+    @Bean
+    public static BeanPostProcessor bulkheadDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof BulkheadDataSource)
+                        && "dataSource".equals(beanName)) {
+                    return new BulkheadDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+}
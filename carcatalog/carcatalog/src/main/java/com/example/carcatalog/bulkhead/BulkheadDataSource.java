@@ -0,0 +1,87 @@
+package com.example.carcatalog.bulkhead;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Бюджет соединений: запрос берёт соединение из общего пула, только заняв разрешение своего Bulkhead.
+// Так всплеск одного класса нагрузки не выбирает весь пул Hikari у остальных.
+// Запись потокового ответа идёт в счёт bulkhead своего запроса (BulkheadInterceptor как
+// CallableProcessingInterceptor). Вне запроса (старт, фоновые задачи) соединения выдаются без ограничений.
+public class BulkheadDataSource extends DelegatingDataSource implements Closeable {
+
+    public BulkheadDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return limit(Bulkhead.current(), () -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return limit(Bulkhead.current(), () -> super.getConnection(username, password));
+    }
+
+    // Обёртка скрывает close() пула от Spring - закрываем его сами при остановке контекста
+    @Override
+    public void close() throws IOException {
+        if (getTargetDataSource() instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    private interface ConnectionSource {
+        Connection get() throws SQLException;
+    }
+
+    private static Connection limit(Bulkhead bulkhead, ConnectionSource source) throws SQLException {
+        if (bulkhead == null) {
+            return source.get();
+        }
+        bulkhead.acquireConnection();
+        Connection connection;
+        try {
+            connection = source.get();
+        } catch (SQLException | RuntimeException e) {
+            bulkhead.releaseConnection();
+            throw e;
+        }
+        return releasingOnClose(connection, bulkhead);
+    }
+
+    // Разрешение возвращается при close(), один раз, даже если close вызовут повторно
+    private static Connection releasingOnClose(Connection connection, Bulkhead bulkhead) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if ("close".equals(method.getName()) && closed.compareAndSet(false, true)) {
+                            bulkhead.releaseConnection();
+                        }
+                    }
+                });
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.carcatalog.bulkhead;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.concurrent.Callable;
+
+// Занимает слот Bulkhead своего класса нагрузки на время обработки запроса.
+// Отказ бросается из preHandle и превращается в 503 в ApiExceptionHandler.
+// Потоковые ответы (StreamingResponseBody) держат слот до конца записи: он освобождается
+// в afterCompletion повторного (ASYNC) диспатча. Тело пишется в потоке async-исполнителя -
+// на время записи bulkhead привязывается и к нему, и курсор БД идёт в счёт db-connections.
+@Component
+public class BulkheadInterceptor implements AsyncHandlerInterceptor, CallableProcessingInterceptor {
+
+    private static final String ATTRIBUTE = BulkheadInterceptor.class.getName() + ".bulkhead";
+
+    @Autowired
+    private BulkheadRegistry bulkheadRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC || request.getAttribute(ATTRIBUTE) != null) {
+            return true;
+        }
+        Workload workload = Workload.of(request);
+        if (workload == null) {
+            return true;
+        }
+        Bulkhead bulkhead = bulkheadRegistry.get(workload);
+        bulkhead.acquire();
+        request.setAttribute(ATTRIBUTE, bulkhead);
+        return true;
+    }
+
+    // Поток Tomcat освобождается, слот остаётся за запросом
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        Bulkhead.clearCurrent();
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        if (request.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Bulkhead held) {
+            Bulkhead.bindCurrent(held);
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        Bulkhead.clearCurrent();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object bulkhead = request.getAttribute(ATTRIBUTE);
+        if (bulkhead instanceof Bulkhead held) {
+            request.removeAttribute(ATTRIBUTE);
+            held.release();
+        }
+    }
+}
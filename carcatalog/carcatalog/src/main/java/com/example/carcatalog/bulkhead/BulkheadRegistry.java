@@ -0,0 +1,36 @@
+package com.example.carcatalog.bulkhead;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Bulkhead на каждый Workload с лимитами из catalog.bulkhead.<name>.*:
+// max-concurrent, max-queue, max-wait, db-connections, retry-after (секунды)
+@Component
+public class BulkheadRegistry {
+
+    private final Map<Workload, Bulkhead> bulkheads = new EnumMap<>(Workload.class);
+
+    public BulkheadRegistry(Environment environment, MeterRegistry meterRegistry) {
+        for (Workload workload : Workload.values()) {
+            String prefix = "catalog.bulkhead." + workload.getPropertyName() + ".";
+            bulkheads.put(workload, new Bulkhead(
+                    workload,
+                    environment.getProperty(prefix + "max-concurrent", Integer.class, 50),
+                    environment.getProperty(prefix + "max-queue", Integer.class, 100),
+                    environment.getProperty(prefix + "max-wait", Duration.class, Duration.ofSeconds(1)),
+                    environment.getProperty(prefix + "db-connections", Integer.class, 2),
+                    environment.getProperty(prefix + "retry-after", Integer.class, 1),
+                    meterRegistry
+            ));
+        }
+    }
+
+    public Bulkhead get(Workload workload) {
+        return bulkheads.get(workload);
+    }
+}
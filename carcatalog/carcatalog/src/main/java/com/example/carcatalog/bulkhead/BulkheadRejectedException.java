@@ -0,0 +1,16 @@
+package com.example.carcatalog.bulkhead;
+
+// Лимит класса нагрузки исчерпан - клиенту стоит повторить через retryAfterSeconds
+public class BulkheadRejectedException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public BulkheadRejectedException(Workload workload, String limit, int retryAfterSeconds) {
+        super("Server is busy (" + workload.getPropertyName() + " " + limit + "), try again later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.carcatalog.bulkhead;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.util.UrlPathHelper;
+
+// Классы нагрузки: у каждого свой Bulkhead (catalog.bulkhead.<name>.*)
+public enum Workload {
+
+    // Чтение каталога: поиск, карточки, фасеты, фото
+    CATALOG("catalog"),
+    // Избранное пользователей
+    FAVORITES("favorites"),
+    // Вход и регистрация (bcrypt/argon2)
+    AUTH("auth"),
+    // Изменение каталога: создание, правка, удаление, импорт, загрузка фото
+    ADMIN("admin");
+
+    private final String propertyName;
+
+    Workload(String propertyName) {
+        this.propertyName = propertyName;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    // Класс по декодированному пути без ;параметров - тому же, по которому выбирается контроллер:
+    // по сырому URI POST /api/%63ars попадал бы в CATALOG вместо ADMIN
+    public static Workload of(HttpServletRequest request) {
+        return of(request.getMethod(), UrlPathHelper.defaultInstance.getPathWithinApplication(request));
+    }
+
+    // null - запрос вне /api или поток изменений (SSE), не ограничивается:
+    // подписка живёт долго и ограничена catalog.changes.max-subscribers
+    public static Workload of(String method, String path) {
+        if (path.equals("/api/cars/changes/stream")) {
+            return null;
+        }
+        if (isUnder(path, "/api/auth") || isUnder(path, "/api/users")) {
+            return AUTH;
+        }
+        if (isUnder(path, "/api/favorites")) {
+            return FAVORITES;
+        }
+        if (isUnder(path, "/api/cars") && !HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method)) {
+            return ADMIN;
+        }
+        if (path.startsWith("/api/")) {
+            return CATALOG;
+        }
+        return null;
+    }
+
+    private static boolean isUnder(String path, String prefix) {
+        return path.equals(prefix) || path.startsWith(prefix + "/");
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.carcatalog.controller;
+
+import com.example.carcatalog.auth.HashingRejectedException;
+import com.example.carcatalog.bulkhead.BulkheadRejectedException;
+import com.example.carcatalog.repository.CarProjection;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    //  Перегрузка: клиент повторяет запрос через Retry-After секунд
+    @ExceptionHandler(HashingRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleOverload(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    //  Лимит класса нагрузки (в т.ч. бюджет соединений - тогда исключение приходит обёрнутым)
+    @ExceptionHandler(BulkheadRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleBulkhead(BulkheadRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    //  Машину изменили параллельно или клиент прислал устаревшую version: перечитать и повторить
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleConflict(ConcurrencyFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Car was modified concurrently; reload it and retry"));
+    }
+
+    //  Неизвестное поле в fields= или view=
+    @ExceptionHandler(CarProjection.InvalidProjectionException.class)
+    public ResponseEntity<Map<String, Object>> handleProjection(CarProjection.InvalidProjectionException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+}
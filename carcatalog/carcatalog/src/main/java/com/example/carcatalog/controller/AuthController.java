@@ -1,5 +1,6 @@
 package com.example.carcatalog.controller;
 
+import com.example.carcatalog.auth.AuthTokenService;
 import com.example.carcatalog.model.User;
 import com.example.carcatalog.repository.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,7 +10,6 @@ import org.springframework.web.bind.annotation.*;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -19,6 +19,9 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private AuthTokenService authTokenService;
+
     @PostMapping("/register")
     public ResponseEntity<Map<String, Object>> register(@RequestBody Map<String, String> body) {
         User user = new User(body.get("username"), body.get("email"), body.get("password"), false);
@@ -29,6 +32,26 @@ public class AuthController {
         return ResponseEntity.ok(Map.of("message", "User registered successfully"));
     }
 
+    // Проверка при вводе в форме регистрации: true - свободно.
+    // Почти всегда отвечается из памяти (фильтр Блума), в БД - только "возможно занято"
+    @GetMapping("/availability")
+    public ResponseEntity<Map<String, Object>> availability(
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String email
+    ) {
+        if (username == null && email == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "username or email is required"));
+        }
+        Map<String, Object> resp = new HashMap<>();
+        if (username != null) {
+            resp.put("username", userService.isUsernameAvailable(username));
+        }
+        if (email != null) {
+            resp.put("email", userService.isEmailAvailable(email));
+        }
+        return ResponseEntity.ok(resp);
+    }
+
     @PostMapping("/login")
     public ResponseEntity<Map<String, Object>> login(@RequestBody Map<String, String> body) {
         Optional<User> userOpt = userService.loginUserByEmail(body.get("email"), body.get("password"));
@@ -36,7 +59,8 @@ public class AuthController {
 
         User user = userOpt.get();
         Map<String, Object> resp = new HashMap<>();
-        resp.put("token", UUID.randomUUID().toString());
+        // Подписанный токен: проверяется без обращения к БД (Authorization: Bearer <token>)
+        resp.put("token", authTokenService.issue(user.getId(), user.isAdmin()));
         resp.put("id", user.getId());
         resp.put("username", user.getUsername());
         resp.put("email", user.getEmail());
@@ -51,6 +75,7 @@ public class AuthController {
         String newPwd = body.get("newPassword");
         
         if (userService.changePassword(id, oldPwd, newPwd)) {
+            authTokenService.revokeAll(id);
             return ResponseEntity.ok(Map.of("message", "Пароль успешно изменен"));
         } else {
             return ResponseEntity.status(401).body(Map.of("message", "Старый пароль неверный"));
@@ -1,169 +1,664 @@
 package com.example.carcatalog.controller;
 
 import com.example.carcatalog.model.Car;
+import com.example.carcatalog.repository.CatalogVersion;
+import com.example.carcatalog.repository.CarChangeBatch;
+import com.example.carcatalog.repository.CarChangeFeed;
+import com.example.carcatalog.repository.CarCursor;
+import com.example.carcatalog.repository.CarFacetService;
+import com.example.carcatalog.repository.CarFacets;
+import com.example.carcatalog.repository.CarImageStore;
+import com.example.carcatalog.repository.CarImportService;
+import com.example.carcatalog.repository.CarProjection;
 import com.example.carcatalog.repository.CarRepository;
+import com.example.carcatalog.repository.CarSearchCriteria;
+import com.example.carcatalog.repository.CarStreamService;
+import com.example.carcatalog.repository.CarUpdateService;
+import com.example.carcatalog.search.CarSearchIndex;
+import com.example.carcatalog.search.CarSimilarityIndex;
+import com.example.carcatalog.search.CarTextIndex;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.Comparator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/cars")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {"X-Total-Count", "X-Total-Pages", "X-Next-Cursor", "ETag", "Last-Modified"})
 public class CarController {
 
+    private static final Logger log = LoggerFactory.getLogger(CarController.class);
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 500;
+    static final int MAX_SUGGESTIONS = 50;
+    static final int MAX_SIMILAR = 50;
+    static final double DEFAULT_PRICE_STEP = 10000;
+    static final double MIN_PRICE_STEP = 1;
+    // Больше совпадений по тексту - ищем через LIKE, а не через id IN (...)
+    static final int MAX_TEXT_MATCHES_IN_QUERY = 5000;
+    static final int EXPORT_GZIP_BUFFER_SIZE = 64 * 1024;
+    static final MediaType EXPORT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+    static final Set<String> PATCHABLE_FIELDS = Set.of("brand", "model", "year", "price", "imageUrl",
+            "description", "color", "mileage", "fuelType", "transmission");
+    static final Set<String> REQUIRED_FIELDS = Set.of("brand", "model", "year", "price");
+
     @Autowired
     private CarRepository carRepository;
 
+    // Есть только при catalog.search.mode=index
+    @Autowired(required = false)
+    private CarSearchIndex carSearchIndex;
+
+    @Autowired
+    private CarTextIndex carTextIndex;
+
+    @Autowired
+    private CarStreamService carStreamService;
+
+    @Autowired
+    private CarFacetService carFacetService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private CarImportService carImportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborHttpMessageConverter;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter;
+
+    @Autowired
+    private CarImageStore carImageStore;
+
+    @Autowired
+    private CarChangeFeed carChangeFeed;
+
+    @Autowired
+    private CarSimilarityIndex carSimilarityIndex;
+
+    @Autowired
+    private CarUpdateService carUpdateService;
+
     //  Получить все машины
+    // Весь каталог отдаётся потоком прямо из курсора БД (массив JSON, CBOR или Smile либо NDJSON - по Accept).
+    // Во всех списках fields=brand,price,... или view=summary - только эти поля (CarProjection)
     @GetMapping
-    public List<Car> getAllCars() {
-        return carRepository.findAll();
+    public ResponseEntity<StreamingResponseBody> getAllCars(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String view,
+            WebRequest request
+    ) {
+        CarProjection projection = CarProjection.parse(fields, view);
+        if (notModified(request, catalogVersion.current(), variant(isNdjson(accept) ? "ndjson" : "", projection))) {
+            return null;
+        }
+        return streamCars(new CarSearchCriteria(), projection, accept);
+    }
+
+    //  Все машины постранично: keyset-пагинация по id
+    @GetMapping(params = "cursor")
+    public ResponseEntity<?> getAllCarsPage(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String view
+    ) {
+        return scrollCars(new CarSearchCriteria(), cursor, Math.min(Math.max(size, 1), MAX_PAGE_SIZE),
+                CarProjection.parse(fields, view));
     }
 
     //  Получить машину по ID
     @GetMapping("/{id}")
-    public ResponseEntity<Car> getCarById(@PathVariable Long id) {
+    public ResponseEntity<Car> getCarById(@PathVariable Long id, WebRequest request) {
+        if (notModified(request, catalogVersion.car(id), "")) {
+            return null;
+        }
         Optional<Car> car = carRepository.findById(id);
         return car.map(ResponseEntity::ok)
                   .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    //  Похожие машины: ближайшие по цене, году и пробегу с учётом марки, топлива и коробки.
+    // Ищутся в CarSimilarityIndex, из БД загружаются только найденные
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<?>> getSimilarCars(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String view,
+            WebRequest request
+    ) {
+        CarProjection projection = CarProjection.parse(fields, view);
+        if (!carSimilarityIndex.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "5").build();
+        }
+        limit = Math.min(Math.max(limit, 1), MAX_SIMILAR);
+        // Соседи меняются при любом изменении каталога - версия общая
+        if (notModified(request, catalogVersion.current(), variant("similar-" + limit, projection))) {
+            return null;
+        }
+        long[] ids = carSimilarityIndex.similar(id, limit);
+        if (ids == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(project(findAllInOrder(ids), projection));
+    }
+
     // Добавить машину (для админки)
     @PostMapping
     public ResponseEntity<Car> addCar(@RequestBody Car car) {
-        Car savedCar = carRepository.save(car);
-        return ResponseEntity.ok(savedCar);
+        return ResponseEntity.ok(carUpdateService.create(car));
     }
 
-    //  Обновить машину (для админки)
+    //  Обновить машину (для админки).
+    // Если в теле есть version - машина должна быть именно этой версии (иначе 409)
     @PutMapping("/{id}")
     public ResponseEntity<Car> updateCar(@PathVariable Long id, @RequestBody Car carDetails) {
-        Optional<Car> carOpt = carRepository.findById(id);
-        
-        if (carOpt.isEmpty()) {
+        Car updatedCar = carUpdateService.update(id, carDetails.getVersion(), car -> {
+            car.setBrand(carDetails.getBrand());
+            car.setModel(carDetails.getModel());
+            car.setYear(carDetails.getYear());
+            car.setPrice(carDetails.getPrice());
+            setImageUrl(car, carDetails.getImageUrl());
+            car.setDescription(carDetails.getDescription());
+            car.setColor(carDetails.getColor());
+            car.setMileage(carDetails.getMileage());
+            car.setFuelType(carDetails.getFuelType());
+            car.setTransmission(carDetails.getTransmission());
+        });
+        if (updatedCar == null) {
             return ResponseEntity.notFound().build();
         }
+        return ResponseEntity.ok(updatedCar);
+    }
+
+    //  Частичное изменение машины (для админки): JSON merge patch - меняются только переданные поля,
+    // null очищает необязательное поле. version в теле - ожидаемая версия машины (иначе 409).
+    // В UPDATE попадают только изменившиеся колонки
+    @PatchMapping(value = "/{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> patchCar(@PathVariable Long id, @RequestBody ObjectNode patch) throws IOException {
+        JsonNode version = patch.remove("version");
+        if (version != null && !version.isNull() && !version.canConvertToLong()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "version must be a number"));
+        }
+        for (Iterator<String> names = patch.fieldNames(); names.hasNext(); ) {
+            String name = names.next();
+            if (!PATCHABLE_FIELDS.contains(name)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Field cannot be patched: " + name));
+            }
+            if (patch.get(name).isNull() && REQUIRED_FIELDS.contains(name)) {
+                return ResponseEntity.badRequest().body(Map.of("error", name + " must not be null"));
+            }
+        }
+        // Типы значений проверяются до транзакции, на пустой машине
+        try {
+            objectMapper.readerForUpdating(new Car()).readValue(patch);
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid patch: " + e.getOriginalMessage()));
+        }
 
-        Car car = carOpt.get();
-        car.setBrand(carDetails.getBrand());
-        car.setModel(carDetails.getModel());
-        car.setYear(carDetails.getYear());
-        car.setPrice(carDetails.getPrice());
-        car.setImageUrl(carDetails.getImageUrl());
-        car.setDescription(carDetails.getDescription());
-        car.setColor(carDetails.getColor());
-        car.setMileage(carDetails.getMileage());
-        car.setFuelType(carDetails.getFuelType());
-        car.setTransmission(carDetails.getTransmission());
-        
-        Car updatedCar = carRepository.save(car);
+        Long expectedVersion = version != null && !version.isNull() ? version.asLong() : null;
+        Car updatedCar = carUpdateService.update(id, expectedVersion, car -> {
+            String imageUrl = car.getImageUrl();
+            try {
+                objectMapper.readerForUpdating(car).readValue(patch);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (!Objects.equals(imageUrl, car.getImageUrl())) {
+                car.setImageKey(null);
+            }
+        });
+        if (updatedCar == null) {
+            return ResponseEntity.notFound().build();
+        }
         return ResponseEntity.ok(updatedCar);
     }
 
+    //  Массовое изменение цены (для админки): машины под фильтрами /search, percent=-10 - скидка 10%.
+    // Один UPDATE в БД. Без фильтров - только с all=true, чтобы не задеть весь каталог случайно
+    @PostMapping("/bulk/reprice")
+    public ResponseEntity<?> repriceCars(
+            CarSearchCriteria criteria,
+            @RequestParam double percent,
+            @RequestParam(defaultValue = "false") boolean all
+    ) {
+        if (!criteria.hasFilters() && !all) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At least one filter is required (or all=true)"));
+        }
+        if (!(percent > -100) || Double.isInfinite(percent)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "percent must be greater than -100"));
+        }
+        return ResponseEntity.ok(Map.of("updated", carUpdateService.reprice(criteria, percent)));
+    }
+
+    //  Массовое удаление машин под фильтрами /search (для админки): один DELETE в БД
+    @PostMapping("/bulk/delete")
+    public ResponseEntity<?> deleteCars(CarSearchCriteria criteria, @RequestParam(defaultValue = "false") boolean all) {
+        if (!criteria.hasFilters() && !all) {
+            return ResponseEntity.badRequest().body(Map.of("error", "At least one filter is required (or all=true)"));
+        }
+        return ResponseEntity.ok(Map.of("deleted", carUpdateService.delete(criteria)));
+    }
+
     // Удалить машину (для админки)
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteCar(@PathVariable Long id) {
-        if (!carRepository.existsById(id)) {
+        if (!carUpdateService.delete(id)) {
             return ResponseEntity.notFound().build();
         }
-        
-        carRepository.deleteById(id);
         return ResponseEntity.noContent().build();
     }
 
+    //  Загрузить фото машины (для админки): multipart, поле file.
+    // Оригинал и уменьшенные копии сохраняются на диск, imageUrl машины указывает на оригинал
+    @PostMapping(value = "/{id}/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> uploadImage(@PathVariable Long id, @RequestParam("file") MultipartFile file) throws IOException {
+        Optional<Car> carOpt = carRepository.findById(id);
+        if (carOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "File is empty"));
+        }
+
+        CarImageStore.StoredImage image;
+        try {
+            image = carImageStore.store(file.getBytes());
+        } catch (CarImageStore.InvalidImageException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        Car updatedCar = carUpdateService.update(id, null, car -> {
+            car.setImageKey(image.getKey());
+            car.setImageUrl(image.getOriginalUrl());
+        });
+        if (updatedCar == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(updatedCar);
+    }
+
+    //  Массовый импорт (для админки): CSV с заголовком или NDJSON.
+    // Отчёт пишется в ответ NDJSON-строками по мере обработки: ошибки по строкам, прогресс, итог.
+    // Выполняется синхронно, чтобы большой файл не упирался в таймаут асинхронных ответов
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public void importCars(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        CarImportService.Format format = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? CarImportService.Format.NDJSON
+                : CarImportService.Format.CSV;
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        carImportService.importCars(request.getInputStream(), format, response.getOutputStream());
+    }
+
     //  УЛУЧШЕННЫЙ ПОИСК С ФИЛЬТРАЦИЕЙ И СОРТИРОВКОЙ
+    // Фильтры и сортировка выполняются в БД (или в индексе), отдаётся одна страница результата
     @GetMapping("/search")
-    public List<Car> searchCars(
-            @RequestParam(required = false) String search,
-            @RequestParam(required = false) String brand,
-            @RequestParam(required = false) String fuelType,
-            @RequestParam(required = false) Double minPrice,
-            @RequestParam(required = false) Double maxPrice,
-            @RequestParam(required = false) Integer minYear,
-            @RequestParam(required = false) Integer maxYear,
-            @RequestParam(required = false) String sortBy,
-            @RequestParam(required = false) String sortOrder
+    public ResponseEntity<List<?>> searchCars(
+            CarSearchCriteria criteria,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String view,
+            WebRequest request
     ) {
-        List<Car> allCars = carRepository.findAll();
-        
-        System.out.println("Search request received:");
-        System.out.println(" - search: " + search);
-        System.out.println(" - brand: " + brand);
-        System.out.println(" - fuelType: " + fuelType);
-        System.out.println(" - minPrice: " + minPrice);
-        System.out.println(" - maxPrice: " + maxPrice);
-        System.out.println(" - minYear: " + minYear);
-        System.out.println(" - maxYear: " + maxYear);
-        System.out.println(" - sortBy: " + sortBy);
-        System.out.println(" - sortOrder: " + sortOrder);
-        
-        // Фильтрация
-        List<Car> filteredCars = allCars.stream()
-                .filter(car -> search == null || search.isEmpty() || 
-                        car.getBrand().toLowerCase().contains(search.toLowerCase()) ||
-                        car.getModel().toLowerCase().contains(search.toLowerCase()))
-                .filter(car -> brand == null || brand.isEmpty() || 
-                        car.getBrand().equalsIgnoreCase(brand))
-                .filter(car -> fuelType == null || fuelType.isEmpty() || 
-                        (car.getFuelType() != null && car.getFuelType().equalsIgnoreCase(fuelType)))
-                .filter(car -> minPrice == null || car.getPrice() >= minPrice)
-                .filter(car -> maxPrice == null || car.getPrice() <= maxPrice)
-                .filter(car -> minYear == null || car.getYear() >= minYear)
-                .filter(car -> maxYear == null || car.getYear() <= maxYear)
-                .collect(Collectors.toList());
-        
-        // Сортировка
-        if (sortBy != null && !sortBy.isEmpty()) {
-            filteredCars = sortCars(filteredCars, sortBy, sortOrder);
-        }
-        
-        System.out.println("Filtered cars count: " + filteredCars.size());
-        return filteredCars;
+        CarProjection projection = CarProjection.parse(fields, view);
+        if (notModified(request, catalogVersion.current(), variant("", projection))) {
+            return null;
+        }
+        page = Math.max(page, 0);
+        size = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        if (carSearchIndex != null && carSearchIndex.isReady() && carSearchIndex.supports(criteria)) {
+            CarSearchIndex.Result result = carSearchIndex.search(criteria, page * size, size);
+            log.debug("Search {}: {} cars (index)", criteria, result.getTotal());
+            return ResponseEntity.ok()
+                    .header("X-Total-Count", String.valueOf(result.getTotal()))
+                    .header("X-Total-Pages", String.valueOf((result.getTotal() + size - 1) / size))
+                    .body(project(findAllInOrder(result.getIds()), projection));
+        }
+
+        if (!applyTextIndex(criteria)) {
+            return ResponseEntity.ok()
+                    .header("X-Total-Count", "0")
+                    .header("X-Total-Pages", "0")
+                    .body(List.of());
+        }
+
+        // С проекцией в SELECT только её колонки
+        Pageable pageable = PageRequest.of(page, size, criteria.toSort());
+        Page<?> result = projection == null
+                ? carRepository.findAll(criteria.toSpecification(), pageable)
+                : carRepository.findAll(criteria.toSpecification(), pageable, projection);
+
+        log.debug("Search {}: {} cars", criteria, result.getTotalElements());
+        return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(result.getTotalElements()))
+                .header("X-Total-Pages", String.valueOf(result.getTotalPages()))
+                .body(result.getContent());
+    }
+
+    //  Поиск с keyset-пагинацией: пустой cursor - первая страница, следующий курсор в X-Next-Cursor
+    @GetMapping(value = "/search", params = "cursor")
+    public ResponseEntity<?> searchCarsPage(
+            CarSearchCriteria criteria,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String view
+    ) {
+        CarProjection projection = CarProjection.parse(fields, view);
+        if (!applyTextIndex(criteria)) {
+            return ResponseEntity.ok(List.of());
+        }
+        return scrollCars(criteria, cursor, Math.min(Math.max(size, 1), MAX_PAGE_SIZE), projection);
+    }
+
+    //  Все результаты поиска потоком
+    @GetMapping(value = "/search", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> searchCarsStream(
+            CarSearchCriteria criteria,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String view
+    ) {
+        CarProjection projection = CarProjection.parse(fields, view);
+        if (!applyTextIndex(criteria)) {
+            criteria.restrictToIds(new long[0]);
+        }
+        return streamCars(criteria, projection, accept);
+    }
+
+    //  ВЫГРУЗКА КАТАЛОГА (CSV или NDJSON) с фильтрами /search.
+    // Строки идут из курсора БД прямо в ответ; если клиент принимает gzip - сжимаем на лету
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCars(
+            CarSearchCriteria criteria,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            // Тело ответа здесь может быть только StreamingResponseBody
+            Map<String, Object> error = Map.of("error", "format must be csv or ndjson");
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> objectMapper.writeValue(out, error));
+        }
+        if (!applyTextIndex(criteria)) {
+            criteria.restrictToIds(new long[0]);
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, EXPORT_GZIP_BUFFER_SIZE) : out;
+            if (csv) {
+                carStreamService.writeCsv(criteria, target);
+            } else {
+                carStreamService.writeNdjson(criteria, null, target);
+            }
+            if (gzip) {
+                ((GZIPOutputStream) target).finish();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(csv ? EXPORT_CSV : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("cars-" + LocalDate.now() + (csv ? ".csv" : ".ndjson"))
+                        .build().toString())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    //  Дельта-синхронизация: изменения каталога после версии since, по одному на машину,
+    // удалённые - tombstone (deleted=true). Без since или с неизвестной версией - reset:
+    // клиент запоминает version, загружает каталог целиком и дальше запрашивает изменения после неё
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(@RequestParam(required = false) Long since) {
+        if (since != null && since < 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "since must not be negative"));
+        }
+        CarChangeBatch batch = carChangeFeed.changesSince(since);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(batch);
+    }
+
+    //  Изменения каталога в реальном времени (Server-Sent Events, событие change с id = версия).
+    // При переподключении браузер/клиент присылает Last-Event-ID и получает пропущенное
+    @GetMapping(value = "/changes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(
+            @RequestParam(required = false) Long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId
+    ) {
+        SseEmitter emitter = carChangeFeed.subscribe(lastEventId != null ? lastEventId : since);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "5").build();
+        }
+        return ResponseEntity.ok()
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+
+    //  АВТОДОПОЛНЕНИЕ ДЛЯ СТРОКИ ПОИСКА
+    @GetMapping("/suggest")
+    public List<String> suggest(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return carTextIndex.suggest(q, Math.min(Math.max(limit, 1), MAX_SUGGESTIONS));
     }
 
     //  ПОЛУЧИТЬ УНИКАЛЬНЫЕ БРЕНДЫ
+    // Берутся из закэшированных фасетов, а не из всей таблицы
     @GetMapping("/brands")
-    public List<String> getBrands() {
-        List<String> brands = carRepository.findAll().stream()
-                .map(Car::getBrand)
-                .distinct()
+    public ResponseEntity<List<String>> getBrands(WebRequest request) {
+        if (notModified(request, catalogVersion.current(), "")) {
+            return null;
+        }
+        return ResponseEntity.ok(facets(new CarSearchCriteria(), DEFAULT_PRICE_STEP).getBrands().stream()
+                .map(value -> (String) value.getValue())
                 .sorted()
-                .collect(Collectors.toList());
-        
-        System.out.println("Returning brands: " + brands);
-        return brands;
-    }
-
-    //  ВСПОМОГАТЕЛЬНЫЙ МЕТОД ДЛЯ СОРТИРОВКИ
-    private List<Car> sortCars(List<Car> cars, String sortBy, String sortOrder) {
-        boolean ascending = !"desc".equalsIgnoreCase(sortOrder);
-        
-        Comparator<Car> comparator;
-        switch (sortBy.toLowerCase()) {
-            case "price":
-                comparator = Comparator.comparing(Car::getPrice);
-                break;
-            case "year":
-                comparator = Comparator.comparing(Car::getYear);
-                break;
-            case "brand":
-                comparator = Comparator.comparing(Car::getBrand);
-                break;
-            default:
-                comparator = Comparator.comparing(Car::getId);
-        }
-        
-        if (!ascending) {
-            comparator = comparator.reversed();
-        }
-        
-        return cars.stream()
-                .sorted(comparator)
-                .collect(Collectors.toList());
-    }
-}
\ No newline at end of file
+                .collect(Collectors.toList()));
+    }
+
+    //  ФАСЕТЫ ДЛЯ ПАНЕЛИ ФИЛЬТРОВ
+    // Количество машин по brand / fuelType / transmission, по годам и гистограмма цен
+    // с учётом тех же фильтров, что и у /search
+    @GetMapping("/facets")
+    public CarFacets getFacets(
+            CarSearchCriteria criteria,
+            @RequestParam(defaultValue = "" + DEFAULT_PRICE_STEP) double priceStep
+    ) {
+        return facets(criteria, Math.max(priceStep, MIN_PRICE_STEP));
+    }
+
+    //  Условный GET: версия берётся до чтения из БД, при совпадении ETag
+    // (или Last-Modified) ответ 304 без тела. Заголовки ETag/Last-Modified ставятся и в 200.
+    // CBOR / Smile по Accept - другое представление, у него свой ETag; gzip тоже (сильный ETag
+    // у сжатых и несжатых байт разный), такой ответ сжимает GzipResponseFilter
+    private boolean notModified(WebRequest request, CatalogVersion.Stamp stamp, String variant) {
+        String binary = BinaryFormatsConfig.binaryFormat(request.getHeader(HttpHeaders.ACCEPT));
+        if (binary != null) {
+            variant = variant.isEmpty() ? binary : variant + "-" + binary;
+        }
+        if (request instanceof ServletWebRequest servletRequest) {
+            if (GzipResponseFilter.compress(servletRequest.getRequest())) {
+                variant = variant.isEmpty() ? "gzip" : variant + "-gzip";
+            }
+            if (servletRequest.getResponse() != null) {
+                servletRequest.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+        }
+        return request.checkNotModified(catalogVersion.etag(stamp, variant), catalogVersion.lastModified(stamp));
+    }
+
+    private static String variant(String variant, CarProjection projection) {
+        if (projection == null) {
+            return variant;
+        }
+        return variant.isEmpty() ? projection.key() : variant + "-" + projection.key();
+    }
+
+    // Машины из кэша второго уровня уже в памяти: проекция здесь только сокращает ответ
+    private static List<?> project(List<Car> cars, CarProjection projection) {
+        if (projection == null) {
+            return cars;
+        }
+        return cars.stream().map(projection::toMap).collect(Collectors.toList());
+    }
+
+    private CarFacets facets(CarSearchCriteria criteria, double priceStep) {
+        if (carSearchIndex != null && carSearchIndex.isReady() && carSearchIndex.supports(criteria)) {
+            return carSearchIndex.facets(criteria, priceStep);
+        }
+        if (!applyTextIndex(criteria)) {
+            criteria.restrictToIds(new long[0]);
+        }
+        return carFacetService.facets(criteria, priceStep);
+    }
+
+    // Новый внешний URL вместо загруженного фото - копии thumb/medium больше не относятся к машине
+    private static void setImageUrl(Car car, String imageUrl) {
+        if (!Objects.equals(car.getImageUrl(), imageUrl)) {
+            car.setImageKey(null);
+        }
+        car.setImageUrl(imageUrl);
+    }
+
+    //  Загрузить машины по id, сохранив порядок из индекса (через кэш второго уровня)
+    private List<Car> findAllInOrder(long[] ids) {
+        List<Long> idList = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            idList.add(id);
+        }
+        return carRepository.findAllInOrder(idList);
+    }
+
+    //  Текстовый фильтр через CarTextIndex: id IN (...) к LIKE, чтобы БД не сканировала таблицу.
+    // Индекс находит ровно то же, что LIKE, поэтому результат с ним и без него одинаковый.
+    // false - по тексту ничего не найдено.
+    private boolean applyTextIndex(CarSearchCriteria criteria) {
+        if (!criteria.hasSearch() || !carTextIndex.isSearchable()) {
+            return true;
+        }
+        long[] textMatches = carTextIndex.find(criteria.getSearch());
+        if (textMatches == null) {
+            return true;
+        }
+        if (textMatches.length == 0) {
+            return false;
+        }
+        if (textMatches.length <= MAX_TEXT_MATCHES_IN_QUERY) {
+            criteria.restrictToIds(textMatches);
+        }
+        return true;
+    }
+
+    //  Keyset-пагинация по (поле сортировки, id): скорость не зависит от глубины
+    // Keyset-страницу читает Spring Data (Window<Car>), проекция применяется к ответу
+    private ResponseEntity<?> scrollCars(CarSearchCriteria criteria, String cursor, int size, CarProjection projection) {
+        Sort sort = criteria.toSort();
+        ScrollPosition position;
+        try {
+            position = CarCursor.decode(cursor, sort);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        Window<Car> window = carRepository.findBy(criteria.toSpecification(),
+                query -> query.sortBy(sort).limit(size).scroll(position));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (window.hasNext() && !window.isEmpty()) {
+            response.header("X-Next-Cursor", CarCursor.encode(window.positionAt(window.size() - 1)));
+        }
+        return response.body(project(window.getContent(), projection));
+    }
+
+    //  Потоковая отдача: строки пишутся в ответ прямо из курсора БД
+    // Массив - в JSON или, по Accept, в CBOR / Smile (тот же выбор, что и в ETag из notModified)
+    private ResponseEntity<StreamingResponseBody> streamCars(CarSearchCriteria criteria, CarProjection projection,
+                                                             String accept) {
+        if (isNdjson(accept)) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(out -> carStreamService.writeNdjson(criteria, projection, out));
+        }
+        String binary = BinaryFormatsConfig.binaryFormat(accept);
+        ObjectMapper mapper;
+        MediaType contentType;
+        if ("cbor".equals(binary)) {
+            mapper = cborHttpMessageConverter.getObjectMapper();
+            contentType = MediaType.APPLICATION_CBOR;
+        } else if ("smile".equals(binary)) {
+            mapper = smileHttpMessageConverter.getObjectMapper();
+            contentType = BinaryFormatsConfig.SMILE;
+        } else {
+            mapper = objectMapper;
+            contentType = MediaType.APPLICATION_JSON;
+        }
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .body(out -> carStreamService.writeArray(criteria, projection, mapper, out));
+    }
+
+    private static boolean isNdjson(String accept) {
+        return accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+    }
+}
@@ -1,25 +1,38 @@
 package com.example.carcatalog.controller;
 
+import com.example.carcatalog.auth.AuthToken;
 import com.example.carcatalog.model.Car;
 import com.example.carcatalog.model.Favorite;
 import com.example.carcatalog.model.User;
 import com.example.carcatalog.repository.CarRepository;
+import com.example.carcatalog.repository.FavoriteCarView;
+import com.example.carcatalog.repository.FavoriteIdCache;
 import com.example.carcatalog.repository.FavoriteRepository;
+import com.example.carcatalog.repository.FavoriteSyncService;
 import com.example.carcatalog.repository.UserRepository;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/favorites")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = "X-Has-Next")
 public class FavoriteController {
 
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 500;
+    static final int MAX_STATUS_CAR_IDS = 1000;
+    static final int MAX_SYNC_ITEMS = 1000;
+
     @Autowired
     private FavoriteRepository favoriteRepository;
 
@@ -29,14 +42,36 @@ public class FavoriteController {
     @Autowired
     private CarRepository carRepository;
 
+    @Autowired
+    private FavoriteIdCache favoriteIdCache;
+
+    @Autowired
+    private FavoriteSyncService favoriteSyncService;
+
+    @Autowired
+    private HttpServletRequest request;
+
     //  Получить избранное пользователя
+    // Один join-запрос в лёгкую проекцию, постранично; по умолчанию сначала недавно добавленные
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Car>> getUserFavorites(@PathVariable Long userId) {
-        List<Favorite> favorites = favoriteRepository.findByUserId(userId);
-        List<Car> cars = favorites.stream()
-                                  .map(Favorite::getCar)
-                                  .collect(Collectors.toList());
-        return ResponseEntity.ok(cars);
+    public ResponseEntity<List<FavoriteCarView>> getUserFavorites(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(defaultValue = "recent") String order
+    ) {
+        if (isOtherUser(userId)) {
+            return ResponseEntity.status(403).build();
+        }
+        Sort sort = "oldest".equalsIgnoreCase(order)
+                ? Sort.by(Sort.Direction.ASC, "id")
+                : Sort.by(Sort.Direction.DESC, "id");
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE), sort);
+
+        Slice<FavoriteCarView> favorites = favoriteRepository.findCarViewsByUserId(userId, pageable);
+        return ResponseEntity.ok()
+                .header("X-Has-Next", String.valueOf(favorites.hasNext()))
+                .body(favorites.getContent());
     }
 
     // Добавить в избранное
@@ -49,6 +84,9 @@ public class FavoriteController {
             return ResponseEntity.badRequest()
                     .body(Map.of("error", "userId and carId are required"));
         }
+        if (isOtherUser(userId)) {
+            return forbidden();
+        }
 
         if (favoriteRepository.existsByUserIdAndCarId(userId, carId)) {
             return ResponseEntity.badRequest()
@@ -62,6 +100,7 @@ public class FavoriteController {
 
         Favorite favorite = new Favorite(user, car);
         favoriteRepository.save(favorite);
+        favoriteIdCache.added(userId, carId);
 
         return ResponseEntity.ok(Map.of(
             "message", "Added to favorites", 
@@ -76,12 +115,17 @@ public class FavoriteController {
             @RequestParam Long userId,
             @RequestParam Long carId
     ) {
+        if (isOtherUser(userId)) {
+            return forbidden();
+        }
         if (!favoriteRepository.existsByUserIdAndCarId(userId, carId)) {
             return ResponseEntity.badRequest()
                     .body(Map.of("error", "Not in favorites", "success", false));
         }
 
         favoriteRepository.deleteByUserIdAndCarId(userId, carId);
+        // Применится после commit
+        favoriteIdCache.removed(userId, carId);
         return ResponseEntity.ok(Map.of(
             "message", "Removed from favorites", 
             "success", true
@@ -94,7 +138,66 @@ public class FavoriteController {
             @RequestParam Long userId,
             @RequestParam Long carId
     ) {
-        boolean isFavorite = favoriteRepository.existsByUserIdAndCarId(userId, carId);
+        if (isOtherUser(userId)) {
+            return ResponseEntity.status(403).build();
+        }
+        boolean isFavorite = favoriteIdCache.isFavorite(userId, carId);
         return ResponseEntity.ok(Map.of("isFavorite", isFavorite));
     }
-}
\ No newline at end of file
+
+    // Статус избранного сразу для списка машин (например, для страницы поиска).
+    // Без carIds - все избранные машины пользователя.
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> checkFavorites(
+            @RequestParam Long userId,
+            @RequestParam(required = false) List<Long> carIds
+    ) {
+        if (isOtherUser(userId)) {
+            return forbidden();
+        }
+        if (carIds == null) {
+            return ResponseEntity.ok(Map.of("favoriteCarIds", favoriteIdCache.get(userId)));
+        }
+        if (carIds.size() > MAX_STATUS_CAR_IDS) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Too many carIds (max " + MAX_STATUS_CAR_IDS + ")"));
+        }
+        return ResponseEntity.ok(Map.of("favoriteCarIds", favoriteIdCache.filterFavorites(userId, carIds)));
+    }
+
+    // Синхронизация накопленных изменений: [{"userId":1,"carId":2,"op":"add"}, ...].
+    // Идемпотентно - повтор того же пакета ничего не меняет; результат по каждой операции
+    @PostMapping("/sync")
+    public ResponseEntity<Map<String, Object>> syncFavorites(@RequestBody List<FavoriteSyncService.Item> items) {
+        if (items.size() > MAX_SYNC_ITEMS) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Too many items (max " + MAX_SYNC_ITEMS + ")"));
+        }
+        if (items.stream().anyMatch(item -> isOtherUser(item.getUserId()))) {
+            return forbidden();
+        }
+
+        List<FavoriteSyncService.Result> results = favoriteSyncService.apply(items);
+        for (FavoriteSyncService.Result result : results) {
+            if (!result.isApplied()) {
+                continue;
+            }
+            if ("added".equals(result.getStatus())) {
+                favoriteIdCache.added(result.getUserId(), result.getCarId());
+            } else {
+                favoriteIdCache.removed(result.getUserId(), result.getCarId());
+            }
+        }
+        return ResponseEntity.ok(Map.of("results", results));
+    }
+
+    // Запрос с токеном другого пользователя. Без токена (auth.required=false) не проверяем
+    private boolean isOtherUser(Long userId) {
+        AuthToken token = (AuthToken) request.getAttribute(AuthToken.REQUEST_ATTRIBUTE);
+        return token != null && !token.isAdmin() && (userId == null || token.getUserId() != userId);
+    }
+
+    private ResponseEntity<Map<String, Object>> forbidden() {
+        return ResponseEntity.status(403).body(Map.of("error", "Access denied"));
+    }
+}
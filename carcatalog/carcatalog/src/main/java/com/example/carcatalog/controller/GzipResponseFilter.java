@@ -0,0 +1,238 @@
+package com.example.carcatalog.controller;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+// gzip для ответов с сильным ETag: Tomcat (server.compression) такие ответы не сжимает.
+// Контроллер включает сжатие вызовом compress(request) до записи тела - тогда же он добавляет
+// к ETag суффикс -gzip. Без вызова ответ проходит как есть и его может сжать Tomcat.
+// Потоковые ответы дописываются в async: сжатие завершается после последнего диспатча запроса.
+@Component
+public class GzipResponseFilter extends OncePerRequestFilter {
+
+    private static final String ATTRIBUTE = GzipResponseFilter.class.getName() + ".response";
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    // true - ответ этого запроса будет сжат (клиент принимает gzip и фильтр стоит в цепочке)
+    public static boolean compress(HttpServletRequest request) {
+        if (!(request.getAttribute(ATTRIBUTE) instanceof GzipResponse response)) {
+            return false;
+        }
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null || !acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip")) {
+            return false;
+        }
+        response.enable();
+        return true;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // В async-диспатче ответ уже обёрнут (Spring передаёт его поверх нашей обёртки)
+        GzipResponse gzip = (GzipResponse) request.getAttribute(ATTRIBUTE);
+        boolean initial = gzip == null;
+        if (initial) {
+            gzip = new GzipResponse(response);
+            request.setAttribute(ATTRIBUTE, gzip);
+        }
+        try {
+            filterChain.doFilter(request, initial ? gzip : response);
+        } finally {
+            if (!request.isAsyncStarted()) {
+                gzip.finish();
+            }
+        }
+    }
+
+    static final class GzipResponse extends HttpServletResponseWrapper {
+
+        private boolean enabled;
+        private GzipOutputStream stream;
+        private PrintWriter writer;
+
+        GzipResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        void enable() {
+            enabled = true;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (!enabled) {
+                return super.getOutputStream();
+            }
+            if (stream == null) {
+                super.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                stream = new GzipOutputStream(super.getOutputStream());
+            }
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (!enabled) {
+                return super.getWriter();
+            }
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        // Длина несжатого тела к сжатому не относится
+        @Override
+        public void setContentLength(int len) {
+            if (!enabled) {
+                super.setContentLength(len);
+            }
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            if (!enabled) {
+                super.setContentLengthLong(len);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (!enabled || !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (!enabled || !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (stream != null) {
+                stream.flush();
+            }
+            super.flushBuffer();
+        }
+
+        // Ответ об ошибке пишется заново, уже без ETag - и без сжатия
+        @Override
+        public void reset() {
+            super.reset();
+            enabled = false;
+            stream = null;
+            writer = null;
+        }
+
+        // Буфер с заголовком gzip сброшен: тело начнётся новым потоком
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            stream = null;
+            writer = null;
+        }
+
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (stream != null) {
+                stream.finish();
+            }
+        }
+    }
+
+    private static final class GzipOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream target;
+        private final Gzip gzip;
+        private boolean finished;
+
+        GzipOutputStream(ServletOutputStream target) throws IOException {
+            this.target = target;
+            this.gzip = new Gzip(target);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            gzip.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            gzip.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!finished) {
+                gzip.flush();
+            }
+        }
+
+        void finish() throws IOException {
+            if (!finished) {
+                finished = true;
+                try {
+                    gzip.finish();
+                } finally {
+                    gzip.end();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            target.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return target.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            target.setWriteListener(listener);
+        }
+    }
+
+    // Поток ответа закрывает контейнер; Deflater освобождается сразу после finish
+    private static final class Gzip extends GZIPOutputStream {
+
+        Gzip(ServletOutputStream target) throws IOException {
+            super(target, BUFFER_SIZE);
+        }
+
+        void end() {
+            def.end();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.carcatalog.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Пул приложения при настроенных репликах: соединения @Transactional(readOnly = true)
+// (в т.ч. методов чтения Spring Data репозиториев) открываются в реплике, остальные - в primary.
+// Транзакция помечается read-only уже после того, как Hibernate попросил соединение,
+// поэтому физическое соединение берётся лениво - при первом запросе к БД.
+public class ReadWriteDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private final HikariDataSource primary;
+    private final ReplicaRoutingDataSource replicas;
+
+    public ReadWriteDataSource(HikariDataSource primary, ReplicaRoutingDataSource replicas) {
+        super(new Router(primary, replicas));
+        this.primary = primary;
+        this.replicas = replicas;
+    }
+
+    @Override
+    public void close() {
+        replicas.close();
+        primary.close();
+    }
+
+    private static class Router extends AbstractDataSource {
+        private final HikariDataSource primary;
+        private final ReplicaRoutingDataSource replicas;
+
+        Router(HikariDataSource primary, ReplicaRoutingDataSource replicas) {
+            this.primary = primary;
+            this.replicas = replicas;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                    ? replicas.getConnection()
+                    : primary.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return primary.getConnection(username, password);
+        }
+
+        // Метрики Hikari и health находят пул primary через unwrap
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            return iface.isInstance(primary) ? (T) primary : primary.unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            return iface.isInstance(primary) || primary.isWrapperFor(iface);
+        }
+    }
+}
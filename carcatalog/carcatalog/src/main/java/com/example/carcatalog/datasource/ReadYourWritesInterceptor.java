@@ -0,0 +1,106 @@
+package com.example.carcatalog.datasource;
+
+import com.example.carcatalog.auth.AuthToken;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Read-your-writes: после успешного изменения (избранное, правка каталога) чтения того же клиента
+// ещё stickyWindow идут в primary, пока реплика не догонит.
+// Клиент - пользователь из токена, иначе userId из параметров, иначе адрес клиента.
+// Окна хранятся в памяти процесса: при нескольких экземплярах нужна привязка клиента к экземпляру.
+// Флаг живёт в ThreadLocal потока Tomcat: он ставится или сбрасывается в каждом preHandle и снимается
+// и в afterCompletion, и при уходе запроса в async (там afterCompletion в этом потоке не вызывается).
+// Потоковое тело пишется в потоке async-исполнителя: флаг хранится и в атрибуте запроса
+// и на время записи ставится в том потоке (как CallableProcessingInterceptor).
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor, CallableProcessingInterceptor {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+    private static final String ATTRIBUTE = ReadYourWritesInterceptor.class.getName() + ".primary";
+    private static final int CLEANUP_THRESHOLD = 10_000;
+
+    private final long stickyNanos;
+    private final Map<String, Long> stickyUntil = new ConcurrentHashMap<>();
+
+    public ReadYourWritesInterceptor(Duration stickyWindow) {
+        this.stickyNanos = stickyWindow.toNanos();
+    }
+
+    // Запрос в текущем потоке должен читать из primary
+    public static boolean primaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String key = clientKey(request);
+        Long until = stickyUntil.get(key);
+        if (until != null && until - System.nanoTime() > 0) {
+            PRIMARY_REQUIRED.set(true);
+            request.setAttribute(ATTRIBUTE, Boolean.TRUE);
+            return true;
+        }
+        if (until != null) {
+            stickyUntil.remove(key, until);
+        }
+        PRIMARY_REQUIRED.remove();
+        request.removeAttribute(ATTRIBUTE);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        PRIMARY_REQUIRED.remove();
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        if (Boolean.TRUE.equals(request.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST))) {
+            PRIMARY_REQUIRED.set(true);
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        PRIMARY_REQUIRED.remove();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        PRIMARY_REQUIRED.remove();
+        if (ex == null && response.getStatus() < 400 && isWrite(request.getMethod())) {
+            long now = System.nanoTime();
+            if (stickyUntil.size() > CLEANUP_THRESHOLD) {
+                stickyUntil.values().removeIf(until -> until - now <= 0);
+            }
+            stickyUntil.put(clientKey(request), now + stickyNanos);
+        }
+    }
+
+    private static boolean isWrite(String method) {
+        return !HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method)
+                && !HttpMethod.OPTIONS.matches(method);
+    }
+
+    static String clientKey(HttpServletRequest request) {
+        if (request.getAttribute(AuthToken.REQUEST_ATTRIBUTE) instanceof AuthToken token) {
+            return "user:" + token.getUserId();
+        }
+        String userId = request.getParameter("userId");
+        if (userId != null && !userId.isBlank()) {
+            return "user:" + userId.trim();
+        }
+        return "address:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.carcatalog.datasource;
+
+import com.example.carcatalog.repository.CatalogVersion;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Включается при заданном catalog.datasource.replicas; без него - обычный пул Spring Boot на primary.
+// Пулы реплик получают те же настройки spring.datasource.hikari.*, что и primary.
+@Configuration
+@ConditionalOnProperty(name = "catalog.datasource.replicas")
+public class ReplicaDataSourceConfig implements WebMvcConfigurer {
+
+    @Value("${catalog.datasource.sticky-window:5s}")
+    private Duration stickyWindow;
+
+    @Bean
+    public ReadYourWritesInterceptor readYourWritesInterceptor() {
+        return new ReadYourWritesInterceptor(stickyWindow);
+    }
+
+    // После AuthInterceptor: клиент определяется по токену
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(readYourWritesInterceptor()).addPathPatterns("/api/**").order(1);
+    }
+
+    // Тело StreamingResponseBody читается в потоке async-исполнителя - флаг переносится туда
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(readYourWritesInterceptor());
+    }
+
+    @Bean
+    public ReadWriteDataSource dataSource(
+            DataSourceProperties properties,
+            Environment environment,
+            MeterRegistry meterRegistry,
+            CatalogVersion catalogVersion,
+            @Value("${catalog.datasource.replicas}") List<String> replicaUrls,
+            @Value("${catalog.datasource.replica-username:${spring.datasource.username:}}") String replicaUsername,
+            @Value("${catalog.datasource.replica-password:${spring.datasource.password:}}") String replicaPassword,
+            @Value("${catalog.datasource.routing:round-robin}") String routing,
+            @Value("${catalog.datasource.max-replica-lag:5s}") Duration maxLag,
+            @Value("${catalog.datasource.lag-check-interval:2s}") Duration lagCheckInterval,
+            @Value("${catalog.datasource.lag-query}") String lagQuery
+    ) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        configure(primary, environment);
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            HikariDataSource replica = new HikariDataSource();
+            configure(replica, environment);
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(replicaUsername);
+            replica.setPassword(replicaPassword);
+            replica.setDriverClassName(primary.getDriverClassName());
+            replica.setReadOnly(true);
+            replica.setPoolName(primary.getPoolName() + "-replica-" + (replicas.size() + 1));
+            // Пул primary метрики получает от Spring Boot, реплики - здесь
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(replica);
+        }
+
+        ReplicaRoutingDataSource.Strategy strategy =
+                ReplicaRoutingDataSource.Strategy.valueOf(routing.toUpperCase(Locale.ROOT).replace('-', '_'));
+        return new ReadWriteDataSource(primary, new ReplicaRoutingDataSource(
+                primary, replicas, strategy, maxLag, lagCheckInterval, lagQuery,
+                () -> catalogVersion.current().getLastModified(), meterRegistry));
+    }
+
+    // Spring по умолчанию держит одно соединение на весь EntityManager (open-in-view - весь запрос):
+    // первая read-only транзакция открыла бы соединение с репликой, и запись после неё ушла бы туда же.
+    // Соединение берётся и возвращается на каждую транзакцию, источник выбирается заново
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    private static void configure(HikariDataSource dataSource, Environment environment) {
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.carcatalog.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+// Источник соединений для read-only транзакций: одна из реплик (по кругу или наименее занятая).
+// Реплика с отставанием больше maxLag или недоступная временно исключается, пока проверка
+// отставания не покажет, что она догнала. Нет подходящей реплики или клиенту нужен
+// read-your-writes - соединение из primary.
+// ETag списков - версия каталога в памяти процесса (CatalogVersion): реплика годится, только если
+// по последней проверке она применила всё, записанное до последнего изменения каталога
+// (время проверки минус отставание не раньше него). Иначе тело со свежим ETag прочиталось бы
+// из устаревшей реплики и закэшировалось бы клиентом под новой версией.
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    public enum Strategy { ROUND_ROBIN, LEAST_LOADED }
+
+    private static class Replica {
+        final HikariDataSource dataSource;
+        volatile boolean healthy = true;
+        volatile double lagSeconds;
+        // Время (мс epoch), до которого реплика заведомо применила записи primary
+        volatile long appliedUntil = Long.MIN_VALUE;
+
+        Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        int activeConnections() {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getActiveConnections();
+        }
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Strategy strategy;
+    private final double maxLagSeconds;
+    private final String lagQuery;
+    private final LongSupplier catalogChangedAt;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService lagMonitor;
+
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, Strategy strategy,
+                                    Duration maxLag, Duration lagCheckInterval, String lagQuery,
+                                    LongSupplier catalogChangedAt, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.strategy = strategy;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        this.lagQuery = lagQuery;
+        this.catalogChangedAt = catalogChangedAt;
+
+        this.replicaReads = Counter.builder("catalog.datasource.reads").tag("target", "replica").register(meterRegistry);
+        this.primaryReads = Counter.builder("catalog.datasource.reads").tag("target", "primary").register(meterRegistry);
+        for (Replica replica : this.replicas) {
+            Gauge.builder("catalog.datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .baseUnit("seconds")
+                    .tag("pool", replica.dataSource.getPoolName())
+                    .register(meterRegistry);
+            Gauge.builder("catalog.datasource.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .tag("pool", replica.dataSource.getPoolName())
+                    .register(meterRegistry);
+        }
+
+        this.lagMonitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = lagCheckInterval.toMillis();
+        lagMonitor.scheduleWithFixedDelay(this::checkLag, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!ReadYourWritesInterceptor.primaryRequired()) {
+            // Время изменения читается после версии для ETag: реплика покроет и её
+            Replica replica = pick(catalogChangedAt.getAsLong());
+            if (replica != null) {
+                try {
+                    Connection connection = replica.dataSource.getConnection();
+                    replicaReads.increment();
+                    return connection;
+                } catch (SQLException e) {
+                    // До следующей проверки отставания читаем из остальных реплик или primary
+                    replica.healthy = false;
+                    log.warn("Replica {} is unavailable, falling back: {}", replica.dataSource.getPoolName(), e.getMessage());
+                }
+            }
+        }
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    // Пулы (Hikari) работают только с настроенными учётными данными
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica pools use configured credentials");
+    }
+
+    // null - ни одной исправной реплики, применившей изменения до changedAt
+    private Replica pick(long changedAt) {
+        Replica best = null;
+        int size = replicas.size();
+        int start = strategy == Strategy.ROUND_ROBIN ? Math.floorMod(next.getAndIncrement(), size) : 0;
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.healthy || replica.appliedUntil < changedAt) {
+                continue;
+            }
+            if (strategy == Strategy.ROUND_ROBIN) {
+                return replica;
+            }
+            if (best == null || replica.activeConnections() < best.activeConnections()) {
+                best = replica;
+            }
+        }
+        return best;
+    }
+
+    void checkLag() {
+        for (Replica replica : replicas) {
+            long checkedAt = System.currentTimeMillis();
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(lagQuery)) {
+                double lag = rs.next() ? rs.getDouble(1) : 0;
+                replica.lagSeconds = lag;
+                replica.appliedUntil = Math.max(replica.appliedUntil, checkedAt - (long) Math.ceil(lag * 1000));
+                boolean healthy = lag <= maxLagSeconds;
+                if (healthy != replica.healthy) {
+                    log.info("Replica {} is {} (lag {} s)", replica.dataSource.getPoolName(),
+                            healthy ? "back in rotation" : "excluded", lag);
+                }
+                replica.healthy = healthy;
+            } catch (SQLException | RuntimeException e) {
+                if (replica.healthy) {
+                    log.warn("Replica {} lag check failed: {}", replica.dataSource.getPoolName(), e.getMessage());
+                }
+                replica.healthy = false;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        lagMonitor.shutdownNow();
+        for (Replica replica : replicas) {
+            replica.dataSource.close();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.carcatalog.event;
+
+import com.example.carcatalog.model.Car;
+
+// Событие об изменении машины в каталоге.
+// Публикуется из CarController после записи в БД, на него подписываются индексы и кэши.
+// previous - состояние до изменения (для UPDATED и DELETED), чтобы подписчики
+// могли убрать старые значения, не храня их у себя.
+public class CarChangedEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final Long carId;
+    private final Car car;
+    private final Car previous;
+
+    private CarChangedEvent(Type type, Long carId, Car car, Car previous) {
+        this.type = type;
+        this.carId = carId;
+        this.car = car;
+        this.previous = previous;
+    }
+
+    public static CarChangedEvent created(Car car) {
+        return new CarChangedEvent(Type.CREATED, car.getId(), car, null);
+    }
+
+    public static CarChangedEvent updated(Car previous, Car car) {
+        return new CarChangedEvent(Type.UPDATED, car.getId(), car, previous);
+    }
+
+    public static CarChangedEvent deleted(Car previous) {
+        return new CarChangedEvent(Type.DELETED, previous.getId(), null, previous);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getCarId() {
+        return carId;
+    }
+
+    // null для DELETED
+    public Car getCar() {
+        return car;
+    }
+
+    // null для CREATED
+    public Car getPrevious() {
+        return previous;
+    }
+}
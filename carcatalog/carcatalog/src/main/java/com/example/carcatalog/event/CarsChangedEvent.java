@@ -0,0 +1,49 @@
+package com.example.carcatalog.event;
+
+import com.example.carcatalog.model.Car;
+
+import java.util.List;
+
+// Пакетное изменение машин: порция импорта или массовая операция из админки.
+// Одно событие на пакет: подписчики берут блокировку, сдвигают версию и сбрасывают кэши один раз.
+// cars - новое состояние, есть только у CREATED (машины уже в памяти); массовые UPDATED / DELETED
+// машины не загружают - в событии только id, индексы дочитывают изменённые машины сами.
+public class CarsChangedEvent {
+
+    private final CarChangedEvent.Type type;
+    private final List<Long> carIds;
+    private final List<Car> cars;
+
+    private CarsChangedEvent(CarChangedEvent.Type type, List<Long> carIds, List<Car> cars) {
+        this.type = type;
+        this.carIds = carIds;
+        this.cars = cars;
+    }
+
+    public static CarsChangedEvent created(List<Car> cars) {
+        return new CarsChangedEvent(CarChangedEvent.Type.CREATED,
+                cars.stream().map(Car::getId).toList(), List.copyOf(cars));
+    }
+
+    public static CarsChangedEvent updated(List<Long> carIds) {
+        return new CarsChangedEvent(CarChangedEvent.Type.UPDATED, List.copyOf(carIds), null);
+    }
+
+    public static CarsChangedEvent deleted(List<Long> carIds) {
+        return new CarsChangedEvent(CarChangedEvent.Type.DELETED, List.copyOf(carIds), null);
+    }
+
+    public CarChangedEvent.Type getType() {
+        return type;
+    }
+
+    // В порядке id для UPDATED / DELETED, в порядке записи для CREATED
+    public List<Long> getCarIds() {
+        return carIds;
+    }
+
+    // null для UPDATED и DELETED
+    public List<Car> getCars() {
+        return cars;
+    }
+}
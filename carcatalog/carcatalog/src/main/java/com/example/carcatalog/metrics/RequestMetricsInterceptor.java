@@ -0,0 +1,74 @@
+package com.example.carcatalog.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+// Число SQL-запросов Hibernate на HTTP-запрос (метрика catalog.request.statements с тегами
+// method/uri как у http.server.requests) и выборочный лог запросов: доля catalog.logging.sample-rate
+// плюс все медленнее catalog.logging.slow-request.
+// Время и количество запросов по эндпоинтам - стандартная метрика http.server.requests.
+@Component
+public class RequestMetricsInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".start";
+
+    private final MeterRegistry meterRegistry;
+    private final SampledLog log;
+
+    public RequestMetricsInterceptor(
+            MeterRegistry meterRegistry,
+            @Value("${catalog.logging.sample-rate:0.01}") double sampleRate,
+            @Value("${catalog.logging.slow-request-ms:500}") long slowRequestMillis
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.log = new SampledLog(LoggerFactory.getLogger(RequestMetricsInterceptor.class), sampleRate, slowRequestMillis);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        StatementCounter.start();
+        return true;
+    }
+
+    // Для потоковых ответов вызывается до окончания записи тела: запросы курсора не учитываются
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        int statements = StatementCounter.stop();
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (statements < 0 || !(start instanceof Long)) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+        DistributionSummary.builder("catalog.request.statements")
+                .description("Hibernate SQL statements per HTTP request")
+                .baseUnit("statements")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(statements);
+
+        long duration = System.nanoTime() - (Long) start;
+        if (log.shouldLog(duration)) {
+            log.event("request")
+                    .with("method", request.getMethod())
+                    .with("uri", uri)
+                    .with("query", request.getQueryString())
+                    .with("status", response.getStatus())
+                    .with("durationMs", duration / 1_000_000)
+                    .with("statements", statements)
+                    .with("error", ex != null ? ex.getClass().getSimpleName() : null)
+                    .log();
+        }
+    }
+}
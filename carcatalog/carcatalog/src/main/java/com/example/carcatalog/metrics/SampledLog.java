@@ -0,0 +1,57 @@
+package com.example.carcatalog.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.spi.LoggingEventBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Выборочное структурированное логирование для горячих путей: пишется только доля событий
+// (catalog.logging.sample-rate) и все медленные. Поля идут и в текст (key=value),
+// и в key-value пары SLF4J - при logging.structured.format.console=logstash/ecs они становятся
+// отдельными полями JSON.
+public final class SampledLog {
+
+    private final Logger logger;
+    private final double sampleRate;
+    private final long slowNanos;
+
+    public SampledLog(Logger logger, double sampleRate, long slowMillis) {
+        this.logger = logger;
+        this.sampleRate = sampleRate;
+        this.slowNanos = slowMillis * 1_000_000;
+    }
+
+    // Решение принимается до сборки события, чтобы невыбранные запросы ничего не стоили
+    public boolean shouldLog(long durationNanos) {
+        if (!logger.isInfoEnabled()) {
+            return false;
+        }
+        return durationNanos >= slowNanos || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    public Event event(String name) {
+        return new Event(logger.atInfo(), name);
+    }
+
+    public static final class Event {
+        private final LoggingEventBuilder builder;
+        private final StringBuilder message;
+
+        private Event(LoggingEventBuilder builder, String name) {
+            this.builder = builder;
+            this.message = new StringBuilder(name);
+        }
+
+        public Event with(String key, Object value) {
+            if (value != null) {
+                builder.addKeyValue(key, value);
+                message.append(' ').append(key).append('=').append(value);
+            }
+            return this;
+        }
+
+        public void log() {
+            builder.log(message.toString());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.carcatalog.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Считает SQL-запросы Hibernate в текущем потоке (между start и stop).
+// Подключается как hibernate.session_factory.statement_inspector; SQL не меняет.
+// Запросы через JdbcTemplate мимо Hibernate сюда не попадают.
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    public static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    // Число запросов с момента start; -1 - счётчик не запускался
+    public static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count == null ? -1 : count[0];
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+}
@@ -1,14 +1,46 @@
 package com.example.carcatalog.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 @Entity
-@Table(name = "cars")
+@Table(name = "cars", indexes = {
+    @Index(name = "idx_cars_price", columnList = "price"),
+    @Index(name = "idx_cars_year", columnList = "year"),
+    @Index(name = "idx_cars_brand", columnList = "brand")
+})
+// Кэш второго уровня (регион "car"): обновляется и сбрасывается Hibernate при save/delete
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Car.CACHE_REGION)
+// UPDATE только изменённых колонок: правка цены не переписывает description и imageUrl
+@DynamicUpdate
 public class Car {
+
+    public static final String CACHE_REGION = "car";
+    public static final String ID_SEQUENCE = "cars_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+    public static final String IMAGE_PATH = "/api/images/";
+    public static final int IMAGE_KEY_LENGTH = 32;
+
+    // id из последовательности с выделением блоками: Hibernate не ходит в БД за каждым id
+    // и может объединять INSERT в JDBC-батчи (массовый импорт)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
+    // Оптимистическая блокировка: UPDATE ... WHERE version = ?, параллельная правка получает 409.
+    // Клиент может прислать version, прочитанную вместе с машиной, - тогда правка поверх
+    // более новой версии тоже отклоняется. Default 0 - для строк, созданных до появления колонки
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     private String brand;
     private String model;
     private int year;
@@ -26,6 +58,12 @@ public class Car {
     private String fuelType;          // бензин, дизель, электро, гибрид
     private String transmission;      // автомат, механика
 
+    // Фото, загруженное на сервер (CarImageStore): хеш содержимого, из него строятся URL копий.
+    // null - фото нет или imageUrl указывает на внешний адрес
+    @Column(length = IMAGE_KEY_LENGTH)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String imageKey;
+
     // Конструкторы
     public Car() {}
 
@@ -36,6 +74,32 @@ public class Car {
         this.price = price;
     }
 
+    // Копия машины (снимок состояния до изменения)
+    public Car(Car other) {
+        this.id = other.id;
+        this.version = other.version;
+        this.brand = other.brand;
+        this.model = other.model;
+        this.year = other.year;
+        this.price = other.price;
+        this.imageUrl = other.imageUrl;
+        this.description = other.description;
+        this.color = other.color;
+        this.mileage = other.mileage;
+        this.fuelType = other.fuelType;
+        this.transmission = other.transmission;
+        this.imageKey = other.imageKey;
+    }
+
+    // URL уменьшенных копий загруженного фото (null, если фото не загружено)
+    public static String thumbnailUrl(String imageKey) {
+        return imageKey == null ? null : IMAGE_PATH + imageKey + "-thumb.jpg";
+    }
+
+    public static String mediumUrl(String imageKey) {
+        return imageKey == null ? null : IMAGE_PATH + imageKey + "-medium.jpg";
+    }
+
     // Getters and Setters
     public Long getId() { 
         return id; 
@@ -45,6 +109,14 @@ public class Car {
         this.id = id; 
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getBrand() { 
         return brand; 
     }
@@ -124,4 +196,22 @@ public class Car {
     public void setTransmission(String transmission) { 
         this.transmission = transmission; 
     }
-}
\ No newline at end of file
+
+    public String getImageKey() {
+        return imageKey;
+    }
+
+    public void setImageKey(String imageKey) {
+        this.imageKey = imageKey;
+    }
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public String getThumbnailUrl() {
+        return thumbnailUrl(imageKey);
+    }
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public String getMediumUrl() {
+        return mediumUrl(imageKey);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.carcatalog.model;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+// Запись журнала изменений каталога. id - версия каталога: растёт в порядке записи,
+// клиент запоминает последнюю полученную и запрашивает изменения после неё.
+// Состояние машины не хранится: в ответ идёт текущая версия из cars.
+// Индекс (car_id, id) - для сжатия журнала: поиск более поздней записи той же машины
+@Entity
+@Table(name = "car_changes", indexes = {
+    @Index(name = "idx_car_changes_car_id", columnList = "car_id, id")
+})
+public class CarChange {
+
+    public static final String ID_SEQUENCE = "car_changes_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // id из последовательности блоками, как у Car: записи пакета (импорт, массовая операция)
+    // уходят JDBC-батчами INSERT
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(name = "car_id", nullable = false)
+    private Long carId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private CarChangedEvent.Type type;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+
+    public CarChange() {}
+
+    public CarChange(Long carId, CarChangedEvent.Type type, Instant changedAt) {
+        this.carId = carId;
+        this.type = type;
+        this.changedAt = changedAt;
+    }
+
+    public Long getId() { return id; }
+    public Long getCarId() { return carId; }
+    public CarChangedEvent.Type getType() { return type; }
+    public Instant getChangedAt() { return changedAt; }
+}
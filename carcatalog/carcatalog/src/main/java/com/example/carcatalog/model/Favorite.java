@@ -2,6 +2,8 @@ package com.example.carcatalog.model;
 
 import jakarta.persistence.*;
 
+import java.time.Instant;
+
 @Entity
 @Table(name = "favorites", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"user_id", "car_id"})
@@ -11,14 +13,19 @@ public class Favorite {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    // LAZY: пользователь (с хэшем пароля) и машина грузятся только при обращении
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "car_id", nullable = false)
     private Car car;
 
+    // Когда машину добавили в избранное
+    @Column(name = "created_at")
+    private Instant createdAt;
+
     // Конструкторы
     public Favorite() {}
 
@@ -27,6 +34,13 @@ public class Favorite {
         this.car = car;
     }
 
+    @PrePersist
+    void onCreate() {
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
+    }
+
     // Getters and Setters
     public Long getId() { 
         return id; 
@@ -51,4 +65,12 @@ public class Favorite {
     public void setCar(Car car) { 
         this.car = car; 
     }
+
+    public Instant getCreatedAt() { 
+        return createdAt; 
+    }
+    
+    public void setCreatedAt(Instant createdAt) { 
+        this.createdAt = createdAt; 
+    }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.model.Car;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+// Регионы кэша второго уровня Hibernate (Caffeine через JCache) с ограничением размера и TTL
+// из application.properties. Статистика регионов (попадания, промахи, вытеснения) -
+// метрики cache.* в /actuator/metrics с тегом cache=<регион>.
+@Configuration
+public class CarCacheConfig {
+
+    static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            MeterRegistry meterRegistry,
+            @Value("${catalog.cache.car.max-size:100000}") long carMaxSize,
+            @Value("${catalog.cache.car.ttl:1h}") Duration carTtl,
+            @Value("${catalog.cache.query.max-size:10000}") long queryMaxSize,
+            @Value("${catalog.cache.query.ttl:10m}") Duration queryTtl
+    ) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("carcatalog-hibernate"), getClass().getClassLoader());
+
+        Cache<Object, Object> cars = createRegion(cacheManager, Car.CACHE_REGION, carMaxSize, carTtl);
+        Cache<Object, Object> queries = createRegion(cacheManager, QUERY_RESULTS_REGION, queryMaxSize, queryTtl);
+        // Метки времени изменения таблиц не вытесняются: по ним проверяется свежесть кэша запросов
+        createRegion(cacheManager, UPDATE_TIMESTAMPS_REGION, 0, Duration.ZERO);
+
+        JCacheMetrics.monitor(meterRegistry, cars);
+        JCacheMetrics.monitor(meterRegistry, queries);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    // maxSize 0 / ttl 0 - без ограничения
+    private static Cache<Object, Object> createRegion(CacheManager cacheManager, String name, long maxSize, Duration ttl) {
+        Cache<Object, Object> existing = cacheManager.getCache(name);
+        if (existing != null) {
+            return existing;
+        }
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setStatisticsEnabled(true);
+        if (maxSize > 0) {
+            configuration.setMaximumSize(OptionalLong.of(maxSize));
+        }
+        if (!ttl.isZero()) {
+            configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        }
+        return cacheManager.createCache(name, configuration);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.model.Car;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// Ответ /api/cars/changes: изменения после since, по одному на машину (последнее).
+// version - с чем запрашивать следующую порцию; hasMore - есть ещё изменения после version.
+// reset - дельтой не обойтись (since неизвестен серверу): клиент загружает каталог целиком
+// и продолжает с version, полученной до загрузки.
+@JsonInclude(JsonInclude.Include.NON_DEFAULT)
+public class CarChangeBatch {
+
+    // Изменение одной машины: car - текущее состояние или null с deleted=true (tombstone)
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public static class Entry {
+        private final long version;
+        private final Long carId;
+        private final boolean deleted;
+        private final Car car;
+
+        public Entry(long version, Long carId, Car car) {
+            this.version = version;
+            this.carId = carId;
+            this.deleted = car == null;
+            this.car = car;
+        }
+
+        public long getVersion() { return version; }
+        public Long getCarId() { return carId; }
+        public boolean isDeleted() { return deleted; }
+        public Car getCar() { return car; }
+    }
+
+    @JsonInclude(JsonInclude.Include.ALWAYS)
+    private final long version;
+    private final boolean hasMore;
+    private final boolean reset;
+    @JsonInclude(JsonInclude.Include.ALWAYS)
+    private final List<Entry> changes;
+
+    public CarChangeBatch(long version, boolean hasMore, boolean reset, List<Entry> changes) {
+        this.version = version;
+        this.hasMore = hasMore;
+        this.reset = reset;
+        this.changes = changes;
+    }
+
+    public long getVersion() { return version; }
+    public boolean isHasMore() { return hasMore; }
+    public boolean isReset() { return reset; }
+    public List<Entry> getChanges() { return changes; }
+}
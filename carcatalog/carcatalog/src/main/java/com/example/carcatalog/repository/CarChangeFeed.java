@@ -0,0 +1,406 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.event.CarsChangedEvent;
+import com.example.carcatalog.model.Car;
+import com.example.carcatalog.model.CarChange;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Журнал изменений каталога (car_changes) и рассылка изменений подписчикам SSE.
+// Запись в журнал - по CarChangedEvent в транзакции изменения, последовательно: версии идут
+// в порядке фиксации, и клиент, запомнивший версию, не пропустит изменение с меньшим номером.
+// Порядок гарантируется в пределах одного экземпляра приложения.
+// Старые записи удаляет CarChangeRetention; клиент, отставший дальше самой старой записи, получает reset.
+// Все отправки в SSE идут из одного потока: запись машины не ждёт медленных клиентов,
+// а каждый подписчик получает изменения строго по порядку версий.
+@Service
+public class CarChangeFeed implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(CarChangeFeed.class);
+
+    private static class Subscriber {
+        final SseEmitter emitter;
+        long lastSent;
+
+        Subscriber(SseEmitter emitter, long lastSent) {
+            this.emitter = emitter;
+            this.lastSent = lastSent;
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final CarChangeRepository carChangeRepository;
+    private final CarRepository carRepository;
+    private final TransactionTemplate primaryTransaction;
+    private final int maxBatchSize;
+    private final int maxSubscribers;
+    private final long streamTimeoutMillis;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService sender;
+    private volatile boolean running;
+
+    public CarChangeFeed(
+            CarChangeRepository carChangeRepository,
+            CarRepository carRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${catalog.changes.max-batch-size:1000}") int maxBatchSize,
+            @Value("${catalog.changes.max-subscribers:1000}") int maxSubscribers,
+            @Value("${catalog.changes.stream-timeout:30m}") Duration streamTimeout,
+            @Value("${catalog.changes.heartbeat:30s}") Duration heartbeat
+    ) {
+        this.carChangeRepository = carChangeRepository;
+        this.carRepository = carRepository;
+        // Не read-only и в новой транзакции: читаем primary, даже если вызваны из read-only транзакции
+        // (подписчик SSE догоняет журнал, реплика может отставать от рассылки)
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.primaryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxBatchSize = maxBatchSize;
+        this.maxSubscribers = maxSubscribers;
+        this.streamTimeoutMillis = streamTimeout.toMillis();
+
+        this.sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "car-changes-sse");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Комментарий раз в heartbeat: прокси не рвут тихое соединение, мёртвые клиенты отваливаются
+        sender.scheduleWithFixedDelay(this::heartbeat, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+        Gauge.builder("catalog.changes.subscribers", subscribers, Set::size).register(meterRegistry);
+    }
+
+    // Потоки закрываются раньше остановки веб-сервера: иначе graceful shutdown ждал бы
+    // открытые SSE-соединения до таймаута
+    @Override
+    public void stop() {
+        running = false;
+        sender.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+    //  Запись в журнал - в транзакции изменения машины, перед её commit: без записи журнала
+    // (ошибка БД) откатывается и сама машина. Все записи транзакции сохраняются одним JDBC-батчем
+    // при commit; рассылка - только после успешного commit
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        append(List.of(event.getCarId()), event.getType(), event.getCar() != null ? List.of(event.getCar()) : null);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onCarsChanged(CarsChangedEvent event) {
+        append(event.getCarIds(), event.getType(), event.getCars());
+    }
+
+    // cars - состояние машин для рассылки (в порядке carIds); null - дочитать при рассылке
+    private void append(List<Long> carIds, CarChangedEvent.Type type, List<Car> cars) {
+        if (carIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            // Вне транзакции (fallbackExecution): отдельная транзакция только для журнала
+            appendLock.lock();
+            try {
+                PendingAppend pending = new PendingAppend();
+                primaryTransaction.executeWithoutResult(status -> pending.save(carIds, type, cars));
+                pending.broadcast();
+            } finally {
+                appendLock.unlock();
+            }
+            return;
+        }
+        PendingAppend pending = (PendingAppend) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            // Изменения машин транзакции - в БД до блокировки: иначе её commit ждал бы блокировок строк,
+            // взятых транзакцией, которая сама ждёт appendLock
+            entityManager.flush();
+            appendLock.lock();
+            pending = new PendingAppend();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.save(carIds, type, cars);
+    }
+
+    // Записи журнала одной транзакции. appendLock держится от выдачи первой версии до конца транзакции:
+    // версии фиксируются в порядке номеров, и клиент, запомнивший версию, не пропустит изменение
+    // с меньшим номером. Задачи рассылки встают в очередь тоже под блокировкой - в порядке версий
+    private class PendingAppend implements TransactionSynchronization {
+        private final List<CarChange> changes = new ArrayList<>();
+        // null на месте машины - дочитать при рассылке
+        private final List<Car> cars = new ArrayList<>();
+        private boolean loadCars;
+
+        void save(List<Long> carIds, CarChangedEvent.Type type, List<Car> changedCars) {
+            Instant now = Instant.now();
+            List<CarChange> batch = new ArrayList<>(carIds.size());
+            for (Long carId : carIds) {
+                batch.add(new CarChange(carId, type, now));
+            }
+            changes.addAll(carChangeRepository.saveAll(batch));
+            if (changedCars != null) {
+                cars.addAll(changedCars);
+            } else {
+                loadCars |= type != CarChangedEvent.Type.DELETED;
+                cars.addAll(Collections.nCopies(carIds.size(), null));
+            }
+        }
+
+        void broadcast() {
+            if (subscribers.isEmpty()) {
+                return;
+            }
+            List<CarChange> committed = List.copyOf(changes);
+            if (loadCars) {
+                sender.execute(() -> CarChangeFeed.this.broadcast(loadEntries(committed)));
+            } else {
+                List<CarChangeBatch.Entry> entries = entries(committed, cars);
+                sender.execute(() -> CarChangeFeed.this.broadcast(entries));
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(CarChangeFeed.this);
+            try {
+                if (status == STATUS_COMMITTED) {
+                    broadcast();
+                }
+            } finally {
+                appendLock.unlock();
+            }
+        }
+    }
+
+    public long latestVersion() {
+        return carChangeRepository.findLatestVersion();
+    }
+
+    // Изменения после since; since = null - клиенту нужна полная загрузка (reset).
+    // Одна транзакция - одна реплика: версия и изменения из одного снимка
+    @Transactional(readOnly = true)
+    public CarChangeBatch changesSince(Long since) {
+        long latest = carChangeRepository.findLatestVersion();
+        if (since == null) {
+            return new CarChangeBatch(latest, false, true, List.of());
+        }
+        if (since > latest) {
+            // Реплика может ещё не видеть версию, полученную клиентом из primary (например, по SSE)
+            Long primaryLatest = primaryTransaction.execute(status -> carChangeRepository.findLatestVersion());
+            boolean unknown = primaryLatest == null || since > primaryLatest;
+            return new CarChangeBatch(unknown ? latest : since, false, unknown, List.of());
+        }
+        if (expired(since)) {
+            return new CarChangeBatch(latest, false, true, List.of());
+        }
+        return readBatch(since);
+    }
+
+    // Изменения сразу после since уже удалены по сроку хранения (CarChangeRetention)
+    private boolean expired(long since) {
+        return since < carChangeRepository.findOldestVersion() - 1;
+    }
+
+    private CarChangeBatch readBatch(long since) {
+        List<CarChange> changes = carChangeRepository.findByIdGreaterThanOrderByIdAsc(since, Limit.of(maxBatchSize + 1));
+        boolean hasMore = changes.size() > maxBatchSize;
+        if (hasMore) {
+            changes = changes.subList(0, maxBatchSize);
+        }
+        long version = changes.isEmpty() ? since : changes.get(changes.size() - 1).getId();
+        return new CarChangeBatch(version, hasMore, false, toEntries(changes));
+    }
+
+    // Подписка на изменения после since (null - только новые). Если отставание больше одной
+    // порции, вместо изменений приходит событие reset - клиент делает полную загрузку.
+    // null - подписчиков уже maxSubscribers
+    public SseEmitter subscribe(Long since) {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        sender.execute(() -> {
+            try {
+                Subscriber subscriber = primaryTransaction.execute(status -> catchUp(emitter, since));
+                if (subscriber != null) {
+                    subscribers.add(subscriber);
+                    emitter.onCompletion(() -> subscribers.remove(subscriber));
+                    emitter.onTimeout(() -> subscribers.remove(subscriber));
+                    emitter.onError(e -> subscribers.remove(subscriber));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Change stream subscription failed: {}", e.getMessage());
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    private Subscriber catchUp(SseEmitter emitter, Long since) {
+        long latest = carChangeRepository.findLatestVersion();
+        try {
+            if (since == null) {
+                emitter.send(SseEmitter.event().name("version").id(String.valueOf(latest)).data(latest));
+                return new Subscriber(emitter, latest);
+            }
+            CarChangeBatch batch = since > latest || expired(since) ? null : readBatch(since);
+            if (batch == null || batch.isHasMore()) {
+                emitter.send(SseEmitter.event().name("reset").id(String.valueOf(latest)).data(latest));
+                emitter.complete();
+                return null;
+            }
+            for (CarChangeBatch.Entry entry : batch.getChanges()) {
+                send(emitter, entry);
+            }
+            return new Subscriber(emitter, batch.getVersion());
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return null;
+        }
+    }
+
+    // Удалённые машины (car = null) - tombstone
+    private static List<CarChangeBatch.Entry> entries(List<CarChange> changes, List<Car> cars) {
+        List<CarChangeBatch.Entry> entries = new ArrayList<>(changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            entries.add(new CarChangeBatch.Entry(changes.get(i).getId(), changes.get(i).getCarId(), cars.get(i)));
+        }
+        return entries;
+    }
+
+    // В потоке рассылки: состояние машин пакета без самих машин в событии - из primary.
+    // Не прочиталось - подписчики отключаются и догоняют журнал при переподключении
+    private List<CarChangeBatch.Entry> loadEntries(List<CarChange> changes) {
+        try {
+            return primaryTransaction.execute(status -> toEntries(changes));
+        } catch (RuntimeException e) {
+            log.warn("Change stream broadcast failed: {}", e.getMessage());
+            for (Subscriber subscriber : subscribers) {
+                subscribers.remove(subscriber);
+                subscriber.emitter.completeWithError(e);
+            }
+            return List.of();
+        }
+    }
+
+    private void broadcast(List<CarChangeBatch.Entry> entries) {
+        for (CarChangeBatch.Entry entry : entries) {
+            broadcast(entry);
+        }
+    }
+
+    private void broadcast(CarChangeBatch.Entry entry) {
+        for (Subscriber subscriber : subscribers) {
+            if (entry.getVersion() <= subscriber.lastSent) {
+                continue;
+            }
+            try {
+                send(subscriber.emitter, entry);
+                subscriber.lastSent = entry.getVersion();
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(subscriber);
+                subscriber.emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.emitter.send(SseEmitter.event().comment("ping"));
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(subscriber);
+                subscriber.emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private static void send(SseEmitter emitter, CarChangeBatch.Entry entry) throws IOException {
+        emitter.send(SseEmitter.event()
+                .name("change")
+                .id(String.valueOf(entry.getVersion()))
+                .data(entry, MediaType.APPLICATION_JSON));
+    }
+
+    // Последнее изменение каждой машины, в порядке версий; машины - одним запросом
+    private List<CarChangeBatch.Entry> toEntries(List<CarChange> changes) {
+        Map<Long, CarChange> latestByCar = new LinkedHashMap<>();
+        for (CarChange change : changes) {
+            latestByCar.remove(change.getCarId());
+            latestByCar.put(change.getCarId(), change);
+        }
+        List<Long> liveIds = new ArrayList<>();
+        for (CarChange change : latestByCar.values()) {
+            if (change.getType() != CarChangedEvent.Type.DELETED) {
+                liveIds.add(change.getCarId());
+            }
+        }
+        Map<Long, Car> cars = new HashMap<>();
+        for (Car car : carRepository.findAllById(liveIds)) {
+            cars.put(car.getId(), car);
+        }
+        List<CarChangeBatch.Entry> entries = new ArrayList<>(latestByCar.size());
+        for (CarChange change : latestByCar.values()) {
+            // Машины уже нет (удалена после этой версии) - тоже tombstone
+            entries.add(new CarChangeBatch.Entry(change.getId(), change.getCarId(), cars.get(change.getCarId())));
+        }
+        return entries;
+    }
+}
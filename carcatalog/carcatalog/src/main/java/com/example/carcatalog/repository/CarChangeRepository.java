@@ -0,0 +1,41 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.model.CarChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface CarChangeRepository extends JpaRepository<CarChange, Long> {
+
+    // Изменения после версии since по порядку (по первичному ключу, без сортировки в памяти)
+    List<CarChange> findByIdGreaterThanOrderByIdAsc(Long since, Limit limit);
+
+    @Query("select coalesce(max(c.id), 0) from CarChange c")
+    long findLatestVersion();
+
+    // Самая старая версия в журнале; более ранние удалены по сроку хранения
+    @Query("select coalesce(min(c.id), 0) from CarChange c")
+    long findOldestVersion();
+
+    // Записи старше cutoff, кроме последней: по ней клиенты узнают текущую версию
+    @Modifying
+    @Transactional
+    @Query("delete from CarChange c where c.changedAt < :cutoff and c.id < (select max(l.id) from CarChange l)")
+    int deleteChangedBefore(@Param("cutoff") Instant cutoff);
+
+    // Записи, после которых у той же машины есть более поздняя: клиенту нужна только последняя.
+    // Самая старая запись остаётся - по ней видно, до какой версии журнал удалён по сроку
+    @Modifying
+    @Transactional
+    @Query("delete from CarChange c where c.id > (select min(o.id) from CarChange o)"
+            + " and exists (select l.id from CarChange l where l.carId = c.carId and l.id > c.id)")
+    int deleteSuperseded();
+}
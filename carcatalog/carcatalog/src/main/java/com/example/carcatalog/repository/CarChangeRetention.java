@@ -0,0 +1,67 @@
+package com.example.carcatalog.repository;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Очистка журнала изменений раз в cleanup-interval: записи старше retention удаляются
+// (клиент, отставший сильнее, получает reset и делает полную загрузку), а записи, после которых
+// у машины есть более поздние, сжимаются - догоняющему клиенту нужно только последнее состояние.
+@Component
+public class CarChangeRetention {
+
+    private static final Logger log = LoggerFactory.getLogger(CarChangeRetention.class);
+
+    private final CarChangeRepository carChangeRepository;
+    private final Duration retention;
+    private final ScheduledExecutorService cleaner;
+
+    public CarChangeRetention(
+            CarChangeRepository carChangeRepository,
+            @Value("${catalog.changes.retention:7d}") Duration retention,
+            @Value("${catalog.changes.cleanup-interval:1h}") Duration cleanupInterval
+    ) {
+        this.carChangeRepository = carChangeRepository;
+        this.retention = retention;
+
+        this.cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "car-changes-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = cleanupInterval.toMillis();
+        cleaner.scheduleWithFixedDelay(this::runCleanup, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleaner.shutdownNow();
+    }
+
+    private void runCleanup() {
+        try {
+            cleanup(Instant.now());
+        } catch (RuntimeException e) {
+            // Следующая попытка - через cleanup-interval
+            log.warn("Change log cleanup failed: {}", e.getMessage());
+        }
+    }
+
+    // Возвращает число удалённых записей
+    int cleanup(Instant now) {
+        int expired = carChangeRepository.deleteChangedBefore(now.minus(retention));
+        int superseded = carChangeRepository.deleteSuperseded();
+        if (expired + superseded > 0) {
+            log.info("Change log cleanup: {} expired, {} superseded changes removed", expired, superseded);
+        }
+        return expired + superseded;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.carcatalog.repository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Курсор keyset-пагинации: значения ключей сортировки (поле + id) последней отданной машины.
+// Для клиента это непрозрачная base64url-строка.
+public final class CarCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private CarCursor() {}
+
+    public static String encode(ScrollPosition position) {
+        if (!(position instanceof KeysetScrollPosition keyset)) {
+            throw new IllegalArgumentException("Only keyset positions can be encoded");
+        }
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(keyset.getKeys());
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to encode cursor", e);
+        }
+    }
+
+    // Пустой курсор - начало выборки.
+    // Курсор должен соответствовать сортировке, с которой он был выдан.
+    public static KeysetScrollPosition decode(String cursor, Sort sort) {
+        if (cursor == null || cursor.isEmpty()) {
+            return ScrollPosition.keyset();
+        }
+        Map<String, Object> raw;
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor);
+            raw = MAPPER.readValue(new String(json, StandardCharsets.UTF_8), new TypeReference<>() {});
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        // JSON теряет типы чисел - возвращаем типы полей Car
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (Sort.Order order : sort) {
+            if (!raw.containsKey(order.getProperty())) {
+                throw new IllegalArgumentException("Cursor does not match sort order");
+            }
+            keys.put(order.getProperty(), coerce(order.getProperty(), raw.get(order.getProperty())));
+        }
+        if (keys.size() != raw.size()) {
+            throw new IllegalArgumentException("Cursor does not match sort order");
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    private static Object coerce(String property, Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (!property.equals("brand") && !(value instanceof Number)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        switch (property) {
+            case "id":
+                return ((Number) value).longValue();
+            case "price":
+                return ((Number) value).doubleValue();
+            case "year":
+                return ((Number) value).intValue();
+            case "brand":
+                return value.toString();
+            default:
+                throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
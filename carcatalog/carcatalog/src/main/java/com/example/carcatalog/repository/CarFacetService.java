@@ -0,0 +1,151 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.event.CarsChangedEvent;
+import com.example.carcatalog.model.Car;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Root;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Фасеты каталога через GROUP BY в БД.
+// Результаты кэшируются по набору фильтров и сбрасываются при любом изменении машин,
+// так что повторные запросы панели фильтров в БД не ходят.
+@Service
+public class CarFacetService {
+
+    private static final int CACHE_SIZE = 256;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final Map<String, CarFacets> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CarFacets> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    public CarFacets facets(CarSearchCriteria criteria, double priceStep) {
+        String key = criteria + "|" + priceStep;
+        CarFacets cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long versionBefore = version.get();
+        CarFacets facets = query(criteria, priceStep);
+        // Не кэшируем, если каталог поменялся, пока шли запросы
+        if (version.get() == versionBefore) {
+            cache.put(key, facets);
+        }
+        return facets;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        invalidate();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarsChanged(CarsChangedEvent event) {
+        invalidate();
+    }
+
+    private void invalidate() {
+        version.incrementAndGet();
+        cache.clear();
+    }
+
+    private CarFacets query(CarSearchCriteria criteria, double priceStep) {
+        CarFacets facets = new CarFacets();
+        facets.setTotal(count(criteria));
+
+        CarSearchCriteria withoutBrand = criteria.copy();
+        withoutBrand.setBrand(null);
+        facets.setBrands(countBy(withoutBrand, "brand"));
+
+        CarSearchCriteria withoutFuelType = criteria.copy();
+        withoutFuelType.setFuelType(null);
+        facets.setFuelTypes(countBy(withoutFuelType, "fuelType"));
+
+        CarSearchCriteria withoutTransmission = criteria.copy();
+        withoutTransmission.setTransmission(null);
+        facets.setTransmissions(countBy(withoutTransmission, "transmission"));
+
+        CarSearchCriteria withoutYear = criteria.copy();
+        withoutYear.setMinYear(null);
+        withoutYear.setMaxYear(null);
+        List<CarFacets.Value> years = countBy(withoutYear, "year");
+        years.sort(Comparator.comparingInt(v -> (Integer) v.getValue()));
+        facets.setYears(years);
+
+        CarSearchCriteria withoutPrice = criteria.copy();
+        withoutPrice.setMinPrice(null);
+        withoutPrice.setMaxPrice(null);
+        facets.setPrices(priceHistogram(withoutPrice, priceStep));
+
+        return facets;
+    }
+
+    private long count(CarSearchCriteria criteria) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Car> root = query.from(Car.class);
+        query.select(cb.count(root))
+             .where(criteria.toSpecification().toPredicate(root, query, cb));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    // SELECT attr, count(*) ... WHERE <фильтры> AND attr IS NOT NULL GROUP BY attr
+    private List<CarFacets.Value> countBy(CarSearchCriteria criteria, String attribute) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Car> root = query.from(Car.class);
+        Expression<Object> value = root.get(attribute);
+        query.multiselect(value, cb.count(root))
+             .where(cb.and(criteria.toSpecification().toPredicate(root, query, cb), cb.isNotNull(value)))
+             .groupBy(value);
+
+        List<CarFacets.Value> values = new ArrayList<>();
+        for (Object[] row : entityManager.createQuery(query).getResultList()) {
+            values.add(new CarFacets.Value(row[0], (Long) row[1]));
+        }
+        values.sort(CarFacets.BY_COUNT);
+        return values;
+    }
+
+    // Гистограмма цен с шагом priceStep: floor(price / step)
+    private List<CarFacets.Range> priceHistogram(CarSearchCriteria criteria, double priceStep) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Car> root = query.from(Car.class);
+        Expression<Number> bucket = cb.function("floor", Number.class, cb.quot(root.get("price"), priceStep));
+        query.multiselect(bucket, cb.count(root))
+             .where(criteria.toSpecification().toPredicate(root, query, cb))
+             .groupBy(bucket)
+             .orderBy(cb.asc(bucket));
+
+        List<CarFacets.Range> ranges = new ArrayList<>();
+        for (Object[] row : entityManager.createQuery(query).getResultList()) {
+            double from = ((Number) row[0]).longValue() * priceStep;
+            ranges.add(new CarFacets.Range(from, from + priceStep, (Long) row[1]));
+        }
+        return ranges;
+    }
+}
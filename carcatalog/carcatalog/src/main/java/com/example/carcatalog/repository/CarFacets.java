@@ -0,0 +1,69 @@
+package com.example.carcatalog.repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Счётчики для панели фильтров: сколько машин у каждого значения.
+// Счётчики измерения учитывают все активные фильтры, кроме фильтра по самому измерению,
+// чтобы в списке оставались и другие варианты.
+public class CarFacets {
+
+    public static class Value {
+        private final Object value;
+        private final long count;
+
+        public Value(Object value, long count) {
+            this.value = value;
+            this.count = count;
+        }
+
+        public Object getValue() { return value; }
+        public long getCount() { return count; }
+    }
+
+    public static class Range {
+        private final double from;
+        private final double to;
+        private final long count;
+
+        public Range(double from, double to, long count) {
+            this.from = from;
+            this.to = to;
+            this.count = count;
+        }
+
+        public double getFrom() { return from; }
+        public double getTo() { return to; }
+        public long getCount() { return count; }
+    }
+
+    // Популярные значения первыми, при равенстве - по алфавиту
+    public static final Comparator<Value> BY_COUNT = Comparator.comparingLong(Value::getCount).reversed()
+            .thenComparing(v -> String.valueOf(v.getValue()));
+
+    private long total;
+    private List<Value> brands = new ArrayList<>();
+    private List<Value> fuelTypes = new ArrayList<>();
+    private List<Value> transmissions = new ArrayList<>();
+    private List<Value> years = new ArrayList<>();
+    private List<Range> prices = new ArrayList<>();
+
+    public long getTotal() { return total; }
+    public void setTotal(long total) { this.total = total; }
+
+    public List<Value> getBrands() { return brands; }
+    public void setBrands(List<Value> brands) { this.brands = brands; }
+
+    public List<Value> getFuelTypes() { return fuelTypes; }
+    public void setFuelTypes(List<Value> fuelTypes) { this.fuelTypes = fuelTypes; }
+
+    public List<Value> getTransmissions() { return transmissions; }
+    public void setTransmissions(List<Value> transmissions) { this.transmissions = transmissions; }
+
+    public List<Value> getYears() { return years; }
+    public void setYears(List<Value> years) { this.years = years; }
+
+    public List<Range> getPrices() { return prices; }
+    public void setPrices(List<Range> prices) { this.prices = prices; }
+}
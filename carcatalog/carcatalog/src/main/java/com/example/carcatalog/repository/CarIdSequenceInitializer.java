@@ -0,0 +1,45 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.model.Car;
+import com.example.carcatalog.model.CarChange;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Раньше id машин (и записей журнала изменений) выдавала IDENTITY-колонка, теперь - последовательности
+// cars_seq и car_changes_seq. В существующей базе новая последовательность начинается с 1, поэтому до приёма
+// запросов сдвигаем её за максимальный id (с запасом на блок, который Hibernate выделяет по одному значению).
+@Component
+public class CarIdSequenceInitializer implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CarIdSequenceInitializer.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Схема (и последовательность) создаётся при инициализации EntityManagerFactory
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void afterPropertiesSet() {
+        movePastExistingIds("cars", Car.ID_SEQUENCE, Car.ID_ALLOCATION_SIZE);
+        // Версии журнала не должны повторяться: клиенты запомнили уже выданные
+        movePastExistingIds("car_changes", CarChange.ID_SEQUENCE, CarChange.ID_ALLOCATION_SIZE);
+    }
+
+    private void movePastExistingIds(String table, String sequence, int allocationSize) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        Long next = jdbcTemplate.queryForObject("SELECT nextval('" + sequence + "')", Long.class);
+        if (maxId == null || next == null || next - allocationSize > maxId) {
+            return;
+        }
+        long restart = maxId + allocationSize + 1;
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + restart);
+        log.info("Sequence {} moved past existing ids of {}: restart with {}", sequence, table, restart);
+    }
+}
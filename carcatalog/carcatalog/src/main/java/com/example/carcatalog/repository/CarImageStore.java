@@ -0,0 +1,225 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.model.Car;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Фотографии машин на локальном диске.
+// Имя файла - хеш содержимого оригинала (Car.imageKey), поэтому файл по одному URL никогда
+// не меняется и может кэшироваться клиентами навсегда. При загрузке сразу готовятся
+// уменьшенные копии: thumb для списков и medium для карточки машины.
+@Service
+public class CarImageStore {
+
+    // Форматы, которые умеет читать ImageIO без плагинов
+    static final Map<String, String> EXTENSIONS = Map.of(
+            "jpeg", "jpg",
+            "png", "png",
+            "gif", "gif",
+            "bmp", "bmp"
+    );
+    static final int THUMB_SIZE = 320;
+    static final int MEDIUM_SIZE = 1024;
+    static final float JPEG_QUALITY = 0.82f;
+
+    // <key>.<ext> - оригинал, <key>-thumb.jpg / <key>-medium.jpg - копии
+    private static final Pattern FILE_NAME = Pattern.compile(
+            "([0-9a-f]{" + Car.IMAGE_KEY_LENGTH + "})(\\.(jpg|png|gif|bmp)|-(thumb|medium)\\.jpg)");
+
+    public static class InvalidImageException extends RuntimeException {
+        InvalidImageException(String message) {
+            super(message);
+        }
+    }
+
+    // Результат загрузки: ключ и URL оригинала
+    public static class StoredImage {
+        private final String key;
+        private final String originalUrl;
+
+        StoredImage(String key, String originalUrl) {
+            this.key = key;
+            this.originalUrl = originalUrl;
+        }
+
+        public String getKey() { return key; }
+        public String getOriginalUrl() { return originalUrl; }
+    }
+
+    private final Path directory;
+    private final long maxPixels;
+
+    public CarImageStore(
+            @Value("${catalog.images.dir:data/images}") String directory,
+            @Value("${catalog.images.max-pixels:40000000}") long maxPixels
+    ) throws IOException {
+        this.directory = Paths.get(directory).toAbsolutePath().normalize();
+        this.maxPixels = maxPixels;
+        Files.createDirectories(this.directory);
+    }
+
+    public StoredImage store(byte[] data) throws IOException {
+        String format = detectFormat(data);
+        String key = hash(data);
+        String original = key + "." + EXTENSIONS.get(format);
+
+        // Тот же файл уже загружали (в т.ч. для другой машины) - копии уже есть
+        if (!Files.exists(path(key + "-thumb.jpg"))) {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+            if (image == null) {
+                throw new InvalidImageException("Unsupported image");
+            }
+            BufferedImage medium = scaleToFit(image, MEDIUM_SIZE);
+            write(original, data);
+            write(key + "-medium.jpg", encodeJpeg(medium));
+            // thumb пишется последним: по нему проверяется, что все файлы на месте
+            write(key + "-thumb.jpg", encodeJpeg(scaleToFit(medium, THUMB_SIZE)));
+        }
+        return new StoredImage(key, Car.IMAGE_PATH + original);
+    }
+
+    // Путь к файлу по имени из URL; null - имя не наше или файла нет
+    public Path resolve(String fileName) {
+        if (!FILE_NAME.matcher(fileName).matches()) {
+            return null;
+        }
+        Path path = path(fileName);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    // Содержимое файла не меняется, поэтому ETag - само имя
+    public static String etag(String fileName) {
+        return "\"" + fileName + "\"";
+    }
+
+    public static String contentType(String fileName) {
+        String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+        return "jpg".equals(extension) ? "image/jpeg" : "image/" + extension;
+    }
+
+    // Файлы раскладываются по подкаталогам из первых двух символов ключа
+    private Path path(String fileName) {
+        return directory.resolve(fileName.substring(0, 2)).resolve(fileName);
+    }
+
+    // Формат и размеры читаются из заголовка, до распаковки пикселей
+    private String detectFormat(byte[] data) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new InvalidImageException("Unsupported image format, expected JPEG, PNG, GIF or BMP");
+            }
+            ImageReader reader = readers.next();
+            try {
+                String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+                if (!EXTENSIONS.containsKey(format)) {
+                    throw new InvalidImageException("Unsupported image format: " + format);
+                }
+                reader.setInput(input);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new InvalidImageException("Image is too large: " + pixels + " pixels, max " + maxPixels);
+                }
+                return format;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Уменьшение по большей стороне, без увеличения; прозрачность заливается белым (JPEG).
+    // Уменьшаем по шагам не больше чем вдвое, иначе билинейная интерполяция даёт "лесенку"
+    static BufferedImage scaleToFit(BufferedImage image, int maxSize) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) maxSize / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = image;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, Color.WHITE, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    // Запись во временный файл и переименование: читатели не видят недописанный файл
+    private void write(String fileName, byte[] data) throws IOException {
+        Path target = path(fileName);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), fileName, ".tmp");
+        try {
+            Files.write(temp, data);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            return HexFormat.of().formatHex(digest, 0, Car.IMAGE_KEY_LENGTH / 2);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
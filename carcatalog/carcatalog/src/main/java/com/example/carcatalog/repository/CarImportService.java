@@ -0,0 +1,280 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.event.CarsChangedEvent;
+import com.example.carcatalog.model.Car;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+// Массовый импорт машин из CSV (с заголовком) или NDJSON.
+// Вход читается потоком, строки проверяются и сохраняются порциями по chunk-size:
+// каждая порция - отдельная транзакция с JDBC-батчами INSERT.
+// В ответ по мере работы пишется NDJSON: ошибки по строкам, прогресс после каждой порции, итог.
+@Service
+public class CarImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    static final int MAX_STRING_LENGTH = 255;
+    static final int MIN_YEAR = 1886;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${catalog.import.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    private interface RowSource {
+        // empty - конец входа; ошибка разбора строки - RowException
+        Optional<Car> next() throws IOException;
+    }
+
+    private static class RowException extends RuntimeException {
+        RowException(String message) {
+            super(message);
+        }
+    }
+
+    public void importCars(InputStream in, Format format, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        RowSource source = format == Format.CSV ? csvSource(reader) : ndjsonSource(reader);
+
+        try (JsonGenerator report = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            report.setRootValueSeparator(null);
+            long row = 0;
+            long imported = 0;
+            long failed = 0;
+            List<Car> chunk = new ArrayList<>(chunkSize);
+            List<Long> chunkRows = new ArrayList<>(chunkSize);
+
+            while (true) {
+                Car car;
+                row++;
+                try {
+                    Optional<Car> next = source.next();
+                    if (next.isEmpty()) {
+                        break;
+                    }
+                    car = next.get();
+                    validate(car);
+                } catch (RowException e) {
+                    failed++;
+                    writeLine(report, line("row", row, "error", e.getMessage()));
+                    continue;
+                }
+                car.setId(null);
+                car.setVersion(null);
+                chunk.add(car);
+                chunkRows.add(row);
+
+                if (chunk.size() == chunkSize) {
+                    long saved = saveChunk(chunk, chunkRows, report);
+                    imported += saved;
+                    failed += chunk.size() - saved;
+                    chunk.clear();
+                    chunkRows.clear();
+                    writeLine(report, line("imported", imported, "failed", failed));
+                }
+            }
+            if (!chunk.isEmpty()) {
+                long saved = saveChunk(chunk, chunkRows, report);
+                imported += saved;
+                failed += chunk.size() - saved;
+            }
+            writeLine(report, line("done", true, "imported", imported, "failed", failed));
+        }
+    }
+
+    // Одна транзакция на порцию; при ошибке БД (и записи журнала изменений) порция откатывается целиком
+    private long saveChunk(List<Car> chunk, List<Long> rows, JsonGenerator report) throws IOException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Импортированные машины не кладём в кэш второго уровня
+                entityManager.setProperty(SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+                for (Car car : chunk) {
+                    entityManager.persist(car);
+                }
+                entityManager.flush();
+                entityManager.clear();
+                // Одно событие на порцию: журнал изменений пишется в этой же транзакции,
+                // индексы обрабатывают порцию за раз после commit
+                eventPublisher.publishEvent(CarsChangedEvent.created(chunk));
+            });
+        } catch (RuntimeException e) {
+            writeLine(report, line(
+                    "rows", rows.get(0) + "-" + rows.get(rows.size() - 1),
+                    "error", "Chunk was not saved: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage()));
+            return 0;
+        }
+        return chunk.size();
+    }
+
+    private RowSource ndjsonSource(BufferedReader reader) {
+        return () -> {
+            String line = reader.readLine();
+            while (line != null && line.isBlank()) {
+                line = reader.readLine();
+            }
+            if (line == null) {
+                return Optional.empty();
+            }
+            Car car;
+            try {
+                car = objectMapper.readValue(line, Car.class);
+            } catch (JsonProcessingException e) {
+                throw new RowException("Invalid JSON: " + e.getOriginalMessage());
+            }
+            // Строка "null" - ошибка строки, а не конец входа
+            if (car == null) {
+                throw new RowException("row is null");
+            }
+            return Optional.of(car);
+        };
+    }
+
+    // Первая строка - заголовок с именами полей Car (регистр не важен)
+    private RowSource csvSource(BufferedReader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.next();
+        Map<String, Integer> columns = new HashMap<>();
+        if (header != null) {
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+        }
+        return () -> {
+            List<String> fields;
+            try {
+                fields = csv.next();
+            } catch (IOException e) {
+                throw new RowException(e.getMessage());
+            }
+            if (fields == null) {
+                return Optional.empty();
+            }
+            if (fields.size() != columns.size()) {
+                throw new RowException("Expected " + columns.size() + " columns, got " + fields.size()
+                        + " (line " + csv.getRecordLine() + ")");
+            }
+            Car car = new Car();
+            car.setBrand(text(fields, columns, "brand"));
+            car.setModel(text(fields, columns, "model"));
+            car.setYear(number(fields, columns, "year", Integer::valueOf, 0));
+            car.setPrice(number(fields, columns, "price", Double::valueOf, -1.0));
+            car.setImageUrl(text(fields, columns, "imageurl"));
+            car.setDescription(text(fields, columns, "description"));
+            car.setColor(text(fields, columns, "color"));
+            car.setMileage(number(fields, columns, "mileage", Integer::valueOf, null));
+            car.setFuelType(text(fields, columns, "fueltype"));
+            car.setTransmission(text(fields, columns, "transmission"));
+            return Optional.of(car);
+        };
+    }
+
+    private static String text(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static <T> T number(List<String> fields, Map<String, Integer> columns, String name,
+                                Function<String, T> parser, T missing) {
+        String value = text(fields, columns, name);
+        if (value == null) {
+            return missing;
+        }
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException e) {
+            throw new RowException(name + " is not a number: " + value);
+        }
+    }
+
+    private static void validate(Car car) {
+        if (car.getBrand() == null || car.getBrand().isBlank()) {
+            throw new RowException("brand is required");
+        }
+        if (car.getModel() == null || car.getModel().isBlank()) {
+            throw new RowException("model is required");
+        }
+        int maxYear = Year.now().getValue() + 1;
+        if (car.getYear() < MIN_YEAR || car.getYear() > maxYear) {
+            throw new RowException("year must be between " + MIN_YEAR + " and " + maxYear);
+        }
+        if (!(car.getPrice() >= 0) || Double.isInfinite(car.getPrice())) {
+            throw new RowException("price must be a non-negative number");
+        }
+        if (car.getMileage() != null && car.getMileage() < 0) {
+            throw new RowException("mileage must not be negative");
+        }
+        checkLength("brand", car.getBrand(), MAX_STRING_LENGTH);
+        checkLength("model", car.getModel(), MAX_STRING_LENGTH);
+        checkLength("color", car.getColor(), MAX_STRING_LENGTH);
+        checkLength("fuelType", car.getFuelType(), MAX_STRING_LENGTH);
+        checkLength("transmission", car.getTransmission(), MAX_STRING_LENGTH);
+        checkLength("imageUrl", car.getImageUrl(), 1000);
+        checkLength("description", car.getDescription(), 2000);
+    }
+
+    private static void checkLength(String name, String value, int max) {
+        if (value != null && value.length() > max) {
+            throw new RowException(name + " is longer than " + max + " characters");
+        }
+    }
+
+    // Поля строки отчёта в заданном порядке: ключ, значение, ключ, значение...
+    private static Map<String, Object> line(Object... keyValues) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            line.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return line;
+    }
+
+    private static void writeLine(JsonGenerator report, Map<String, Object> line) throws IOException {
+        report.writeObject(line);
+        report.writeRaw('\n');
+        report.flush();
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.model.Car;
+import jakarta.persistence.Tuple;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Проекция машины для списков: только нужные клиенту поля вместо всей сущности
+// (description до 2000 символов и imageUrl до 1000 сетке карточек не нужны).
+// view=summary - карточка (id, brand, model, year, price, thumbnailUrl), fields=brand,price,... - свой набор.
+// Колонки проекции попадают в SELECT (CarRepositoryCustom); строка ответа - Map в порядке полей,
+// поэтому одинаково пишется в JSON, CBOR и Smile.
+public final class CarProjection {
+
+    public static final String SUMMARY = "summary";
+    static final List<String> SUMMARY_FIELDS = List.of("id", "brand", "model", "year", "price", "thumbnailUrl");
+    static final List<String> COLUMNS = List.of("id", "version", "brand", "model", "year", "price", "imageUrl",
+            "description", "color", "mileage", "fuelType", "transmission", "imageKey");
+    // Вычисляемые поля - из imageKey, как у Car
+    static final Set<String> IMAGE_FIELDS = Set.of("thumbnailUrl", "mediumUrl");
+
+    public static class InvalidProjectionException extends IllegalArgumentException {
+        InvalidProjectionException(String message) {
+            super(message);
+        }
+    }
+
+    private final List<String> fields;
+    private final List<String> columns;
+
+    private CarProjection(List<String> fields) {
+        this.fields = List.copyOf(fields);
+        // id выбирается всегда: по нему порядок страниц и курсор
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        for (String field : fields) {
+            selected.add(IMAGE_FIELDS.contains(field) ? "imageKey" : field);
+        }
+        this.columns = List.copyOf(selected);
+    }
+
+    // Из параметров fields / view; null - ни того, ни другого (полный Car)
+    public static CarProjection parse(String fields, String view) {
+        boolean hasFields = fields != null && !fields.isBlank();
+        if (view != null && !view.isBlank()) {
+            if (!SUMMARY.equalsIgnoreCase(view.trim())) {
+                throw new InvalidProjectionException("view must be " + SUMMARY);
+            }
+            if (hasFields) {
+                throw new InvalidProjectionException("Use either fields or view, not both");
+            }
+            return new CarProjection(SUMMARY_FIELDS);
+        }
+        if (!hasFields) {
+            return null;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        for (String part : fields.split(",")) {
+            String field = part.trim();
+            if (field.isEmpty()) {
+                continue;
+            }
+            if (!COLUMNS.contains(field) && !IMAGE_FIELDS.contains(field)) {
+                throw new InvalidProjectionException("Unknown field: " + field);
+            }
+            selected.add(field);
+        }
+        if (selected.isEmpty()) {
+            throw new InvalidProjectionException("fields must not be empty");
+        }
+        return new CarProjection(new ArrayList<>(selected));
+    }
+
+    // Поля ответа в порядке запроса
+    public List<String> getFields() {
+        return fields;
+    }
+
+    // Атрибуты Car для SELECT
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    // Для ETag: разные проекции одного URL - разные представления
+    public String key() {
+        return String.join(",", fields);
+    }
+
+    public Map<String, Object> toMap(Tuple row) {
+        return toMap(row::get);
+    }
+
+    public Map<String, Object> toMap(Car car) {
+        return toMap(column -> column(car, column));
+    }
+
+    private Map<String, Object> toMap(Function<String, Object> column) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : fields) {
+            if (field.equals("thumbnailUrl")) {
+                row.put(field, Car.thumbnailUrl((String) column.apply("imageKey")));
+            } else if (field.equals("mediumUrl")) {
+                row.put(field, Car.mediumUrl((String) column.apply("imageKey")));
+            } else {
+                row.put(field, column.apply(field));
+            }
+        }
+        return row;
+    }
+
+    private static Object column(Car car, String column) {
+        switch (column) {
+            case "id":
+                return car.getId();
+            case "version":
+                return car.getVersion();
+            case "brand":
+                return car.getBrand();
+            case "model":
+                return car.getModel();
+            case "year":
+                return car.getYear();
+            case "price":
+                return car.getPrice();
+            case "imageUrl":
+                return car.getImageUrl();
+            case "description":
+                return car.getDescription();
+            case "color":
+                return car.getColor();
+            case "mileage":
+                return car.getMileage();
+            case "fuelType":
+                return car.getFuelType();
+            case "transmission":
+                return car.getTransmission();
+            case "imageKey":
+                return car.getImageKey();
+            default:
+                throw new IllegalArgumentException(column);
+        }
+    }
+}
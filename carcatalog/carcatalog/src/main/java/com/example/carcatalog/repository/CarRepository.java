@@ -2,10 +2,31 @@ package com.example.carcatalog.repository;
 
 
 import com.example.carcatalog.model.Car;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 
 @Repository
-public interface CarRepository extends JpaRepository<Car, Long> {
+public interface CarRepository extends JpaRepository<Car, Long>, JpaSpecificationExecutor<Car>, CarRepositoryCustom {
+    // Постраничное чтение всей таблицы по id (для построения индексов).
+    // Мимо кэша второго уровня, чтобы полный проход не вытеснял из него популярные машины
+    @QueryHints(@QueryHint(name = SpecHints.HINT_SPEC_CACHE_STORE_MODE, value = "BYPASS"))
+    List<Car> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Страница поиска /api/cars/search: результат (id машин) и count - в кэше запросов,
+    // Hibernate сбрасывает их при любой записи в cars
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Page<Car> findAll(Specification<Car> spec, Pageable pageable);
 }
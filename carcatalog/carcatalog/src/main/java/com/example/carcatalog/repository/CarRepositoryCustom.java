@@ -0,0 +1,31 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.model.Car;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public interface CarRepositoryCustom {
+    // Потоковое чтение машин курсором БД (fetch size), без загрузки всего результата в память.
+    // Вызывать внутри транзакции; поток нужно закрыть. Выданные машины отсоединены от контекста.
+    Stream<Car> streamAll(Specification<Car> spec, Sort sort);
+
+    // То же с проекцией: SELECT только колонок projection, строки - Map полей ответа
+    Stream<Map<String, Object>> streamAll(Specification<Car> spec, Sort sort, CarProjection projection);
+
+    // Страница поиска с проекцией (как findAll(spec, pageable), включая кэш запросов)
+    Page<Map<String, Object>> findAll(Specification<Car> spec, Pageable pageable, CarProjection projection);
+
+    // Машины по id в том же порядке; сначала из кэша второго уровня, недостающие - одним запросом.
+    // Удалённых машин в результате нет.
+    List<Car> findAllInOrder(List<Long> ids);
+
+    // Разные марки (без null) в порядке ORDER BY brand самой БД, т.е. по её collation.
+    // Вне read-only транзакции - из primary
+    List<String> findBrandsInSortOrder();
+}
@@ -0,0 +1,127 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.model.Car;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+public class CarRepositoryCustomImpl implements CarRepositoryCustom {
+
+    static final int STREAM_FETCH_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<Car> streamAll(Specification<Car> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Car> query = cb.createQuery(Car.class);
+        Root<Car> root = query.from(Car.class);
+
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        TypedQuery<Car> typedQuery = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+
+        // Отсоединяем каждую машину, чтобы контекст не рос вместе с результатом
+        return typedQuery.getResultStream().peek(entityManager::detach);
+    }
+
+    @Override
+    public Stream<Map<String, Object>> streamAll(Specification<Car> spec, Sort sort, CarProjection projection) {
+        return entityManager.createQuery(select(spec, sort, projection))
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream()
+                .map(projection::toMap);
+    }
+
+    @Override
+    public Page<Map<String, Object>> findAll(Specification<Car> spec, Pageable pageable, CarProjection projection) {
+        List<Map<String, Object>> content = entityManager.createQuery(select(spec, pageable.getSort(), projection))
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .getResultStream()
+                .map(projection::toMap)
+                .toList();
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(spec));
+    }
+
+    private CriteriaQuery<Tuple> select(Specification<Car> spec, Sort sort, CarProjection projection) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Car> root = query.from(Car.class);
+        query.multiselect(projection.getColumns().stream()
+                .<Selection<?>>map(column -> root.get(column).alias(column))
+                .toList());
+        where(query, root, cb, spec);
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        return query;
+    }
+
+    private long count(Specification<Car> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Car> root = query.from(Car.class);
+        query.select(cb.count(root));
+        where(query, root, cb, spec);
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .getSingleResult();
+    }
+
+    private static void where(CriteriaQuery<?> query, Root<Car> root, CriteriaBuilder cb, Specification<Car> spec) {
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+    }
+
+    @Override
+    public List<Car> findAllInOrder(List<Long> ids) {
+        return entityManager.unwrap(Session.class)
+                .byMultipleIds(Car.class)
+                .multiLoad(ids)
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public List<String> findBrandsInSortOrder() {
+        return entityManager.createQuery(
+                "select distinct c.brand from Car c where c.brand is not null order by c.brand", String.class)
+                .getResultList();
+    }
+}
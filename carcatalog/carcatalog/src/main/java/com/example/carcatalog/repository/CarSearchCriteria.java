@@ -0,0 +1,214 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.model.Car;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Параметры поиска машин (/api/cars/search).
+// Spring биндит их из query-параметров, а сам поиск выполняется одним SQL-запросом.
+public class CarSearchCriteria {
+
+    private String search;
+    private String brand;
+    private String fuelType;
+    private String transmission;
+    private Double minPrice;
+    private Double maxPrice;
+    private Integer minYear;
+    private Integer maxYear;
+    private Integer minMileage;
+    private Integer maxMileage;
+    private String sortBy;
+    private String sortOrder;
+
+    // Id машин, найденных по тексту в CarTextIndex (не биндится из запроса)
+    private List<Long> textMatchIds;
+
+    // Превращаем фильтры в WHERE-условие
+    public Specification<Car> toSpecification() {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            // id IN сужает поиск по первичному ключу; LIKE остаётся, чтобы результат не зависел
+            // от того, успел ли индекс получить последнее изменение машины
+            if (textMatchIds != null) {
+                predicates.add(root.get("id").in(textMatchIds));
+            }
+            if (hasText(search)) {
+                String pattern = "%" + escapeLike(search.toLowerCase()) + "%";
+                predicates.add(cb.or(
+                        cb.like(cb.lower(root.get("brand")), pattern, '\\'),
+                        cb.like(cb.lower(root.get("model")), pattern, '\\'),
+                        cb.like(cb.lower(root.get("description")), pattern, '\\')
+                ));
+            }
+            if (hasText(brand)) {
+                predicates.add(cb.equal(cb.lower(root.get("brand")), brand.toLowerCase()));
+            }
+            if (hasText(fuelType)) {
+                predicates.add(cb.equal(cb.lower(root.get("fuelType")), fuelType.toLowerCase()));
+            }
+            if (hasText(transmission)) {
+                predicates.add(cb.equal(cb.lower(root.get("transmission")), transmission.toLowerCase()));
+            }
+            if (minPrice != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), minPrice));
+            }
+            if (maxPrice != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("price"), maxPrice));
+            }
+            if (minYear != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("year"), minYear));
+            }
+            if (maxYear != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("year"), maxYear));
+            }
+            if (minMileage != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("mileage"), minMileage));
+            }
+            if (maxMileage != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("mileage"), maxMileage));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // Сортировка: price / year / brand, по умолчанию по id.
+    // id всегда добавляется последним, чтобы страницы были стабильными.
+    public Sort toSort() {
+        Sort.Direction direction = isDescending() ? Sort.Direction.DESC : Sort.Direction.ASC;
+        String property = sortProperty();
+        if (property.equals("id")) {
+            return Sort.by(direction, "id");
+        }
+        return Sort.by(direction, property).and(Sort.by(direction, "id"));
+    }
+
+    public String sortProperty() {
+        if (!hasText(sortBy)) {
+            return "id";
+        }
+        switch (sortBy.toLowerCase()) {
+            case "price":
+                return "price";
+            case "year":
+                return "year";
+            case "brand":
+                return "brand";
+            default:
+                return "id";
+        }
+    }
+
+    public boolean isDescending() {
+        return "desc".equalsIgnoreCase(sortOrder);
+    }
+
+    public CarSearchCriteria copy() {
+        CarSearchCriteria copy = new CarSearchCriteria();
+        copy.search = search;
+        copy.brand = brand;
+        copy.fuelType = fuelType;
+        copy.transmission = transmission;
+        copy.minPrice = minPrice;
+        copy.maxPrice = maxPrice;
+        copy.minYear = minYear;
+        copy.maxYear = maxYear;
+        copy.minMileage = minMileage;
+        copy.maxMileage = maxMileage;
+        copy.sortBy = sortBy;
+        copy.sortOrder = sortOrder;
+        copy.textMatchIds = textMatchIds;
+        return copy;
+    }
+
+    // Добавить к LIKE по тексту условие id IN (...) по результату текстового индекса
+    public void restrictToIds(long[] ids) {
+        List<Long> list = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            list.add(id);
+        }
+        this.textMatchIds = list;
+    }
+
+    // Задан хотя бы один фильтр (сортировка не считается)
+    public boolean hasFilters() {
+        return hasText(search) || hasText(brand) || hasText(fuelType) || hasText(transmission)
+                || minPrice != null || maxPrice != null || minYear != null || maxYear != null
+                || minMileage != null || maxMileage != null;
+    }
+
+    public boolean hasSearch() {
+        return hasText(search);
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                    .replace("%", "\\%")
+                    .replace("_", "\\_");
+    }
+
+    // Getters and Setters
+    public String getSearch() { return search; }
+    public void setSearch(String search) { this.search = search; }
+
+    public String getBrand() { return brand; }
+    public void setBrand(String brand) { this.brand = brand; }
+
+    public String getFuelType() { return fuelType; }
+    public void setFuelType(String fuelType) { this.fuelType = fuelType; }
+
+    public String getTransmission() { return transmission; }
+    public void setTransmission(String transmission) { this.transmission = transmission; }
+
+    public Double getMinPrice() { return minPrice; }
+    public void setMinPrice(Double minPrice) { this.minPrice = minPrice; }
+
+    public Double getMaxPrice() { return maxPrice; }
+    public void setMaxPrice(Double maxPrice) { this.maxPrice = maxPrice; }
+
+    public Integer getMinYear() { return minYear; }
+    public void setMinYear(Integer minYear) { this.minYear = minYear; }
+
+    public Integer getMaxYear() { return maxYear; }
+    public void setMaxYear(Integer maxYear) { this.maxYear = maxYear; }
+
+    public Integer getMinMileage() { return minMileage; }
+    public void setMinMileage(Integer minMileage) { this.minMileage = minMileage; }
+
+    public Integer getMaxMileage() { return maxMileage; }
+    public void setMaxMileage(Integer maxMileage) { this.maxMileage = maxMileage; }
+
+    public String getSortBy() { return sortBy; }
+    public void setSortBy(String sortBy) { this.sortBy = sortBy; }
+
+    public String getSortOrder() { return sortOrder; }
+    public void setSortOrder(String sortOrder) { this.sortOrder = sortOrder; }
+
+    @Override
+    public String toString() {
+        return "CarSearchCriteria{" +
+                "search='" + search + '\'' +
+                ", brand='" + brand + '\'' +
+                ", fuelType='" + fuelType + '\'' +
+                ", transmission='" + transmission + '\'' +
+                ", minPrice=" + minPrice +
+                ", maxPrice=" + maxPrice +
+                ", minYear=" + minYear +
+                ", maxYear=" + maxYear +
+                ", minMileage=" + minMileage +
+                ", maxMileage=" + maxMileage +
+                ", sortBy='" + sortBy + '\'' +
+                ", sortOrder='" + sortOrder + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.model.Car;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Запись машин в ответ по мере чтения из БД: в памяти одновременно только
+// одна порция строк курсора, а первые байты уходят клиенту сразу.
+@Service
+public class CarStreamService {
+
+    static final String[] CSV_COLUMNS = {
+            "id", "brand", "model", "year", "price", "imageUrl", "description",
+            "color", "mileage", "fuelType", "transmission"
+    };
+    static final int CSV_BUFFER_SIZE = 16 * 1024;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // JSON-массив [ {...}, {...} ] - тот же формат, что и у обычного списка.
+    // projection (может быть null) - только выбранные поля, они же и в SELECT
+    public void writeJsonArray(CarSearchCriteria criteria, CarProjection projection, OutputStream out) throws IOException {
+        writeArray(criteria, projection, objectMapper, out);
+    }
+
+    // Массив в формате фабрики mapper: CBOR / Smile пишутся так же потоком, что и JSON
+    public void writeArray(CarSearchCriteria criteria, CarProjection projection, ObjectMapper mapper,
+                           OutputStream out) throws IOException {
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            forEach(criteria, projection, generator::writeObject);
+            generator.writeEndArray();
+        }
+    }
+
+    // NDJSON: одна машина на строку
+    public void writeNdjson(CarSearchCriteria criteria, CarProjection projection, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.setRootValueSeparator(null);
+            forEach(criteria, projection, row -> {
+                generator.writeObject(row);
+                generator.writeRaw('\n');
+            });
+        }
+    }
+
+    // CSV с заголовком; те же имена колонок принимает импорт (CarImportService)
+    public void writeCsv(CarSearchCriteria criteria, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), CSV_BUFFER_SIZE);
+        CsvWriter csv = new CsvWriter(writer);
+        csv.writeRecord((Object[]) CSV_COLUMNS);
+        forEach(criteria, car -> csv.writeRecord(
+                car.getId(), car.getBrand(), car.getModel(), car.getYear(),
+                // без экспоненты: 1.5E7 -> 15000000
+                BigDecimal.valueOf(car.getPrice()).toPlainString(),
+                car.getImageUrl(), car.getDescription(), car.getColor(), car.getMileage(),
+                car.getFuelType(), car.getTransmission()));
+        writer.flush();
+    }
+
+    interface CarWriter {
+        void write(Car car) throws IOException;
+    }
+
+    interface RowWriter {
+        void write(Object row) throws IOException;
+    }
+
+    void forEach(CarSearchCriteria criteria, CarWriter writer) throws IOException {
+        forEach(criteria, null, row -> writer.write((Car) row));
+    }
+
+    // Курсор PostgreSQL работает только внутри транзакции
+    void forEach(CarSearchCriteria criteria, CarProjection projection, RowWriter writer) throws IOException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<?> rows = projection == null
+                        ? carRepository.streamAll(criteria.toSpecification(), criteria.toSort())
+                        : carRepository.streamAll(criteria.toSpecification(), criteria.toSort(), projection)) {
+                    Iterator<?> iterator = rows.iterator();
+                    while (iterator.hasNext()) {
+                        writer.write(iterator.next());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.event.CarsChangedEvent;
+import com.example.carcatalog.model.Car;
+import com.example.carcatalog.model.Favorite;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaDelete;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+// Изменение машин из админки: создание, правка и удаление одной машины и массовые операции по фильтру.
+// Правка идёт в транзакции над загруженной машиной: Hibernate пишет только изменённые колонки
+// (@DynamicUpdate) с условием на version. Массовая операция - один UPDATE/DELETE с условием
+// фильтра и одно CarsChangedEvent с id изменённых машин. События публикуются внутри транзакции:
+// журнал изменений пишется в ней же (BEFORE_COMMIT), индексы и кэши получают их после commit.
+// Конфликт версий - ConcurrencyFailureException (409 в ApiExceptionHandler).
+@Service
+public class CarUpdateService {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private FavoriteIdCache favoriteIdCache;
+
+    public Car create(Car car) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Car saved = carRepository.save(car);
+            eventPublisher.publishEvent(CarChangedEvent.created(saved));
+            return saved;
+        });
+    }
+
+    // Применить changes к машине id. null - машины нет.
+    // expectedVersion (если задана) не совпала с текущей - ObjectOptimisticLockingFailureException,
+    // как и при параллельной записи между чтением и UPDATE
+    public Car update(Long id, Long expectedVersion, Consumer<Car> changes) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Car current = entityManager.find(Car.class, id);
+            if (current == null) {
+                return null;
+            }
+            if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(Car.class, id);
+            }
+            Car previous = new Car(current);
+            changes.accept(current);
+            // UPDATE до события: версия машины в событии - уже новая
+            entityManager.flush();
+            // Версия не выросла - ничего не изменилось и UPDATE не было
+            if (!Objects.equals(current.getVersion(), previous.getVersion())) {
+                eventPublisher.publishEvent(CarChangedEvent.updated(previous, current));
+            }
+            return current;
+        });
+    }
+
+    // false - машины нет
+    public boolean delete(Long id) {
+        return Boolean.TRUE.equals(new TransactionTemplate(transactionManager).execute(status -> {
+            Car car = entityManager.find(Car.class, id);
+            if (car == null) {
+                return false;
+            }
+            carRepository.delete(car);
+            eventPublisher.publishEvent(CarChangedEvent.deleted(car));
+            return true;
+        }));
+    }
+
+    // Цена машин под фильтром меняется на percent процентов (с округлением до сотых) одним UPDATE.
+    // Возвращает число изменённых машин
+    public int reprice(CarSearchCriteria criteria, double percent) {
+        double factor = 1 + percent / 100;
+        return bulkTransaction().execute(status -> {
+            List<Long> ids = matchingIds(criteria);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaUpdate<Car> update = cb.createCriteriaUpdate(Car.class);
+            Root<Car> root = update.from(Car.class);
+            update.set(root.<Double>get("price"), cb.round(cb.prod(root.<Double>get("price"), factor), 2));
+            update.set(root.<Long>get("version"), cb.sum(root.<Long>get("version"), 1L));
+            update.where(criteria.toSpecification().toPredicate(root, null, cb));
+            entityManager.createQuery(update).executeUpdate();
+            // Машины в контексте не знают о UPDATE мимо него
+            entityManager.clear();
+            eventPublisher.publishEvent(CarsChangedEvent.updated(ids));
+            return ids.size();
+        });
+    }
+
+    // Машины под фильтром удаляются одним DELETE, их записи в избранном - ещё одним.
+    // Возвращает число удалённых машин
+    public int delete(CarSearchCriteria criteria) {
+        int deleted = bulkTransaction().execute(status -> {
+            List<Long> ids = matchingIds(criteria);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaDelete<Favorite> favorites = cb.createCriteriaDelete(Favorite.class);
+            Root<Favorite> favorite = favorites.from(Favorite.class);
+            Subquery<Long> carIds = favorites.subquery(Long.class);
+            Root<Car> car = carIds.from(Car.class);
+            carIds.select(car.get("id")).where(criteria.toSpecification().toPredicate(car, null, cb));
+            favorites.where(favorite.get("car").get("id").in(carIds));
+            entityManager.createQuery(favorites).executeUpdate();
+
+            CriteriaDelete<Car> cars = cb.createCriteriaDelete(Car.class);
+            Root<Car> root = cars.from(Car.class);
+            cars.where(criteria.toSpecification().toPredicate(root, null, cb));
+            entityManager.createQuery(cars).executeUpdate();
+            entityManager.clear();
+            eventPublisher.publishEvent(CarsChangedEvent.deleted(ids));
+            return ids.size();
+        });
+        if (deleted > 0) {
+            favoriteIdCache.clear();
+        }
+        return deleted;
+    }
+
+    // REPEATABLE READ: UPDATE/DELETE видят те же строки, что и выборка id; машину, изменённую
+    // параллельно после выборки, PostgreSQL не даст перезаписать (ошибка сериализации -> 409)
+    private TransactionTemplate bulkTransaction() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        return transactionTemplate;
+    }
+
+    // Id машин под фильтром, по возрастанию: сами машины не загружаются - индексы и журнал
+    // изменений получают одно событие с id и дочитывают то, что им нужно
+    private List<Long> matchingIds(CarSearchCriteria criteria) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Car> root = query.from(Car.class);
+        query.select(root.<Long>get("id"))
+                .where(criteria.toSpecification().toPredicate(root, query, cb))
+                .orderBy(cb.asc(root.get("id")));
+        return entityManager.createQuery(query).getResultList();
+    }
+}
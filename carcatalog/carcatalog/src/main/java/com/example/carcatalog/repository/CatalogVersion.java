@@ -0,0 +1,115 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.event.CarsChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Версия каталога для условных GET (ETag / Last-Modified).
+// Номер растёт при каждой записи машины, у каждой машины - номер её последней записи.
+// Машины, не менявшиеся с запуска, имеют версию 0 и время запуска; epoch (время запуска)
+// входит в ETag, поэтому после перезапуска старые ETag не совпадут.
+// Номера машин хранятся только для последних maxCarStamps записей; вытесненные машины получают
+// номер самой свежей вытесненной записи (floor) - он не меньше их настоящего, и ETag не откатится назад.
+@Component
+public class CatalogVersion {
+
+    private final long epoch = System.currentTimeMillis();
+    private final int maxCarStamps;
+
+    private final Object lock = new Object();
+    private volatile Stamp current = new Stamp(0, epoch);
+    private volatile Stamp floor = new Stamp(0, epoch);
+    private final Map<Long, Stamp> carStamps = new ConcurrentHashMap<>();
+    // Записи в порядке версий, под lock; могут быть устаревшие (машину записали ещё раз)
+    private final ArrayDeque<Map.Entry<Long, Stamp>> writeOrder = new ArrayDeque<>();
+
+    public CatalogVersion(@Value("${catalog.version.max-car-stamps:100000}") int maxCarStamps) {
+        this.maxCarStamps = Math.max(maxCarStamps, 1);
+    }
+
+    public static final class Stamp {
+        private final long version;
+        private final long lastModified;
+
+        Stamp(long version, long lastModified) {
+            this.version = version;
+            this.lastModified = lastModified;
+        }
+
+        public long getVersion() { return version; }
+
+        // Миллисекунды epoch
+        public long getLastModified() { return lastModified; }
+    }
+
+    //  Синхронизация с записью машин: после commit транзакции, опубликовавшей событие
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        synchronized (lock) {
+            Stamp next = nextStamp();
+            stamp(event.getCarId(), next);
+            current = next;
+        }
+    }
+
+    // Пакет - одна новая версия каталога, общая для всех его машин
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarsChanged(CarsChangedEvent event) {
+        synchronized (lock) {
+            Stamp next = nextStamp();
+            for (Long carId : event.getCarIds()) {
+                stamp(carId, next);
+            }
+            current = next;
+        }
+    }
+
+    private Stamp nextStamp() {
+        return new Stamp(current.version + 1, Math.max(System.currentTimeMillis(), current.lastModified));
+    }
+
+    // Под lock. Удалённые машины тоже остаются с новой версией, иначе их ETag вернулся бы к исходному
+    private void stamp(Long carId, Stamp stamp) {
+        carStamps.put(carId, stamp);
+        writeOrder.addLast(Map.entry(carId, stamp));
+        while (writeOrder.size() > maxCarStamps) {
+            Map.Entry<Long, Stamp> eldest = writeOrder.pollFirst();
+            // Сначала floor, потом удаление: читатель без записи в карте уже видит новый floor
+            floor = eldest.getValue();
+            carStamps.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    // Состояние всего каталога: читать до обращения к БД, тогда ETag не опередит данные
+    public Stamp current() {
+        return current;
+    }
+
+    public Stamp car(Long carId) {
+        Stamp stamp = carStamps.get(carId);
+        return stamp != null ? stamp : floor;
+    }
+
+    // Сильный ETag. variant различает представления одного URL (JSON и NDJSON, проекции,
+    // сжатие: gzip-ответ - другие байты, у него суффикс -gzip)
+    public String etag(Stamp stamp, String variant) {
+        return "\"" + Long.toString(epoch, 36) + "-" + stamp.version + (variant.isEmpty() ? "" : "-" + variant) + "\"";
+    }
+
+    // Last-Modified с точностью до секунды: пока секунда записи не закончилась, следующая запись
+    // в ту же секунду получит то же значение и If-Modified-Since вернул бы устаревший 304.
+    // Поэтому такую секунду не отдаём (-1 - только ETag). Читать после current()/car()
+    public long lastModified(Stamp stamp) {
+        return lastModified(stamp, System.currentTimeMillis());
+    }
+
+    static long lastModified(Stamp stamp, long now) {
+        return stamp.lastModified / 1000 < now / 1000 ? stamp.lastModified : -1;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.model.Car;
+
+import java.time.Instant;
+
+// Машина из избранного для списка: поля Car без description + время добавления.
+// Собирается прямо в JPQL-запросе (select new ...), сущности не создаются.
+public class FavoriteCarView {
+    private final Long id;
+    private final String brand;
+    private final String model;
+    private final int year;
+    private final double price;
+    private final String imageUrl;
+    private final String thumbnailUrl;
+    private final String color;
+    private final Integer mileage;
+    private final String fuelType;
+    private final String transmission;
+    private final Instant favoritedAt;
+
+    public FavoriteCarView(Long id, String brand, String model, int year, double price, String imageUrl,
+                           String imageKey, String color, Integer mileage, String fuelType, String transmission,
+                           Instant favoritedAt) {
+        this.id = id;
+        this.brand = brand;
+        this.model = model;
+        this.year = year;
+        this.price = price;
+        this.imageUrl = imageUrl;
+        this.thumbnailUrl = Car.thumbnailUrl(imageKey);
+        this.color = color;
+        this.mileage = mileage;
+        this.fuelType = fuelType;
+        this.transmission = transmission;
+        this.favoritedAt = favoritedAt;
+    }
+
+    public Long getId() { return id; }
+    public String getBrand() { return brand; }
+    public String getModel() { return model; }
+    public int getYear() { return year; }
+    public double getPrice() { return price; }
+    public String getImageUrl() { return imageUrl; }
+    public String getThumbnailUrl() { return thumbnailUrl; }
+    public String getColor() { return color; }
+    public Integer getMileage() { return mileage; }
+    public String getFuelType() { return fuelType; }
+    public String getTransmission() { return transmission; }
+    public Instant getFavoritedAt() { return favoritedAt; }
+}
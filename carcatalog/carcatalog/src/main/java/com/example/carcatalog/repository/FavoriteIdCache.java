@@ -0,0 +1,130 @@
+package com.example.carcatalog.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Кэш id избранных машин по пользователям.
+// Для каждого пользователя - отсортированный long[] (8 байт на машину), загружается
+// при первом обращении одним запросом, обновляется при добавлении/удалении,
+// пользователи вытесняются по LRU.
+// Изменение внутри транзакции применяется после её commit: загрузка, прочитавшая БД до commit,
+// иначе не заметила бы записи и закэшировала бы уже удалённую машину.
+@Component
+public class FavoriteIdCache {
+
+    @Autowired
+    private FavoriteRepository favoriteRepository;
+
+    @Value("${favorites.cache.max-users:10000}")
+    private int maxUsers = 10000;
+
+    // Счётчик записей: загрузка, во время которой что-то поменялось, в кэш не кладётся
+    private final AtomicLong writes = new AtomicLong();
+
+    private final Map<Long, long[]> favoritesByUser = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                    return size() > maxUsers;
+                }
+            });
+
+    public boolean isFavorite(Long userId, Long carId) {
+        return Arrays.binarySearch(get(userId), carId) >= 0;
+    }
+
+    // Какие из carIds есть в избранном, в исходном порядке
+    public long[] filterFavorites(Long userId, List<Long> carIds) {
+        long[] favorites = get(userId);
+        return carIds.stream()
+                .filter(id -> id != null && Arrays.binarySearch(favorites, id) >= 0)
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    // Все id избранных машин пользователя по возрастанию
+    public long[] get(Long userId) {
+        long[] cached = favoritesByUser.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long writesBefore = writes.get();
+        long[] loaded = favoriteRepository.findCarIdsByUserId(userId).stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+        if (writes.get() == writesBefore) {
+            favoritesByUser.put(userId, loaded);
+        }
+        return loaded;
+    }
+
+    public void added(Long userId, Long carId) {
+        afterCommit(() -> insert(userId, carId));
+    }
+
+    public void removed(Long userId, Long carId) {
+        afterCommit(() -> remove(userId, carId));
+    }
+
+    // Сбросить кэш целиком (массовое удаление машин вместе с их избранным)
+    public void clear() {
+        afterCommit(() -> {
+            writes.incrementAndGet();
+            favoritesByUser.clear();
+        });
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    private void insert(Long userId, Long carId) {
+        writes.incrementAndGet();
+        favoritesByUser.computeIfPresent(userId, (id, favorites) -> {
+            int i = Arrays.binarySearch(favorites, carId);
+            if (i >= 0) {
+                return favorites;
+            }
+            i = -i - 1;
+            long[] updated = new long[favorites.length + 1];
+            System.arraycopy(favorites, 0, updated, 0, i);
+            updated[i] = carId;
+            System.arraycopy(favorites, i, updated, i + 1, favorites.length - i);
+            return updated;
+        });
+    }
+
+    private void remove(Long userId, Long carId) {
+        writes.incrementAndGet();
+        favoritesByUser.computeIfPresent(userId, (id, favorites) -> {
+            int i = Arrays.binarySearch(favorites, carId);
+            if (i < 0) {
+                return favorites;
+            }
+            long[] updated = new long[favorites.length - 1];
+            System.arraycopy(favorites, 0, updated, 0, i);
+            System.arraycopy(favorites, i + 1, updated, i, favorites.length - i - 1);
+            return updated;
+        });
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.carcatalog.repository;
 
 import com.example.carcatalog.model.Favorite;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,6 +15,18 @@ public interface FavoriteRepository extends JpaRepository<Favorite, Long> {
     // Получить все избранные машины пользователя
     List<Favorite> findByUserId(Long userId);
     
+    // Избранные машины одним join-запросом, сразу в проекцию.
+    // Порядок задаёт Pageable (по f.id - порядок добавления).
+    @Query("select new com.example.carcatalog.repository.FavoriteCarView("
+            + "c.id, c.brand, c.model, c.year, c.price, c.imageUrl, c.imageKey, c.color, c.mileage, "
+            + "c.fuelType, c.transmission, f.createdAt) "
+            + "from Favorite f join f.car c where f.user.id = :userId")
+    Slice<FavoriteCarView> findCarViewsByUserId(Long userId, Pageable pageable);
+
+    // Только id избранных машин пользователя, без загрузки сущностей
+    @Query("select f.car.id from Favorite f where f.user.id = :userId order by f.car.id")
+    List<Long> findCarIdsByUserId(Long userId);
+    
     // Найти конкретную запись избранного
     Optional<Favorite> findByUserIdAndCarId(Long userId, Long carId);
     
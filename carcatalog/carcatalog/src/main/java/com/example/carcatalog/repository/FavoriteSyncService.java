@@ -0,0 +1,190 @@
+package com.example.carcatalog.repository;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Пакетная синхронизация избранного (очередь изменений из офлайн-клиента).
+// Все операции - в одной транзакции, по id без загрузки сущностей, JDBC-батчами.
+// Идемпотентность обеспечивает уникальный ключ (user_id, car_id): повторное добавление
+// ничего не вставляет, повторное удаление ничего не удаляет.
+@Service
+public class FavoriteSyncService {
+
+    public static final String OP_ADD = "add";
+    public static final String OP_REMOVE = "remove";
+
+    // Вставка только при существующих пользователе и машине: машина, удалённая после проверки
+    // в apply, не валит весь батч нарушением внешнего ключа, а пропускается этой строкой
+    private static final String INSERT_SQL =
+            "INSERT INTO favorites (user_id, car_id, created_at) "
+            + "SELECT u.id, c.id, CURRENT_TIMESTAMP FROM users u, cars c WHERE u.id = ? AND c.id = ? "
+            + "ON CONFLICT DO NOTHING";
+    private static final String DELETE_SQL =
+            "DELETE FROM favorites WHERE user_id = ? AND car_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public static class Item {
+        private Long userId;
+        private Long carId;
+        private String op;
+
+        public Long getUserId() { return userId; }
+        public void setUserId(Long userId) { this.userId = userId; }
+
+        public Long getCarId() { return carId; }
+        public void setCarId(Long carId) { this.carId = carId; }
+
+        public String getOp() { return op; }
+        public void setOp(String op) { this.op = op; }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Result {
+        private final Long userId;
+        private final Long carId;
+        private final String op;
+        private String status;
+        private String error;
+
+        Result(Item item) {
+            this.userId = item.getUserId();
+            this.carId = item.getCarId();
+            this.op = item.getOp();
+        }
+
+        public Long getUserId() { return userId; }
+        public Long getCarId() { return carId; }
+        public String getOp() { return op; }
+        public String getStatus() { return status; }
+        public String getError() { return error; }
+
+        // Изменилось ли что-то в БД (для обновления кэшей)
+        @JsonIgnore
+        public boolean isApplied() {
+            return "added".equals(status) || "removed".equals(status);
+        }
+
+        void fail(String error) {
+            this.status = "error";
+            this.error = error;
+        }
+    }
+
+    // Результат для каждой операции в том же порядке
+    @Transactional
+    public List<Result> apply(List<Item> items) {
+        List<Result> results = new ArrayList<>(items.size());
+        for (Item item : items) {
+            results.add(new Result(item));
+        }
+
+        Set<Long> userIds = existingIds("users", items, Item::getUserId);
+        Set<Long> carIds = existingIds("cars", items, Item::getCarId);
+
+        // Подряд идущие операции одного типа выполняем одним батчем,
+        // так что порядок add/remove для одной пары сохраняется
+        List<Integer> run = new ArrayList<>();
+        String runOp = null;
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            Result result = results.get(i);
+            String op = item.getOp() != null ? item.getOp().toLowerCase() : null;
+
+            if (item.getUserId() == null || item.getCarId() == null) {
+                result.fail("userId and carId are required");
+                continue;
+            }
+            if (!OP_ADD.equals(op) && !OP_REMOVE.equals(op)) {
+                result.fail("op must be 'add' or 'remove'");
+                continue;
+            }
+            if (OP_ADD.equals(op) && !userIds.contains(item.getUserId())) {
+                result.fail("User not found");
+                continue;
+            }
+            if (OP_ADD.equals(op) && !carIds.contains(item.getCarId())) {
+                result.fail("Car not found");
+                continue;
+            }
+
+            if (runOp != null && !runOp.equals(op)) {
+                executeRun(runOp, run, items, results);
+                run.clear();
+            }
+            runOp = op;
+            run.add(i);
+        }
+        if (!run.isEmpty()) {
+            executeRun(runOp, run, items, results);
+        }
+        return results;
+    }
+
+    private void executeRun(String op, List<Integer> run, List<Item> items, List<Result> results) {
+        List<Object[]> args = new ArrayList<>(run.size());
+        for (int i : run) {
+            Item item = items.get(i);
+            args.add(new Object[] { item.getUserId(), item.getCarId() });
+        }
+
+        int[] counts = jdbcTemplate.batchUpdate(OP_ADD.equals(op) ? INSERT_SQL : DELETE_SQL, args);
+
+        // Невставленная пара - уже в избранном или пользователь / машина удалены после проверки
+        List<Item> skipped = new ArrayList<>();
+        for (int k = 0; k < run.size(); k++) {
+            if (OP_ADD.equals(op) && counts[k] == 0) {
+                skipped.add(items.get(run.get(k)));
+            }
+        }
+        Set<Long> userIds = existingIds("users", skipped, Item::getUserId);
+        Set<Long> carIds = existingIds("cars", skipped, Item::getCarId);
+
+        for (int k = 0; k < run.size(); k++) {
+            Item item = items.get(run.get(k));
+            Result result = results.get(run.get(k));
+            boolean changed = counts[k] > 0;
+            if (!OP_ADD.equals(op)) {
+                result.status = changed ? "removed" : "not_in_favorites";
+            } else if (changed) {
+                result.status = "added";
+            } else if (!userIds.contains(item.getUserId())) {
+                result.fail("User not found");
+            } else if (!carIds.contains(item.getCarId())) {
+                result.fail("Car not found");
+            } else {
+                result.status = "already_added";
+            }
+        }
+    }
+
+    private Set<Long> existingIds(String table, List<Item> items, Function<Item, Long> idOf) {
+        Set<Long> requested = new HashSet<>();
+        for (Item item : items) {
+            if (idOf.apply(item) != null) {
+                requested.add(idOf.apply(item));
+            }
+        }
+        if (requested.isEmpty()) {
+            return requested;
+        }
+        return new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT id FROM " + table + " WHERE id IN (:ids)", Map.of("ids", requested), Long.class));
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.carcatalog.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+
+// Проверка занятости username/email при вводе в форме регистрации.
+// Фильтры Блума по всем username и email строятся при старте и пополняются при регистрации:
+// "точно свободно" отвечается из памяти, "возможно занято" проверяется в БД.
+// Пока фильтры не построены - всегда спрашиваем БД.
+@Component
+public class UserAvailabilityIndex {
+
+    private static final int FETCH_SIZE = 1000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${users.bloom.expected-insertions:1000000}")
+    private long expectedInsertions = 1_000_000;
+
+    @Value("${users.bloom.false-positive-rate:0.01}")
+    private double falsePositiveRate = 0.01;
+
+    // Готовые фильтры (null - ещё не построены)
+    private volatile BloomFilter usernames;
+    private volatile BloomFilter emails;
+
+    // Фильтры в процессе построения: регистрации во время чтения таблицы попадают и сюда
+    private volatile BloomFilter pendingUsernames;
+    private volatile BloomFilter pendingEmails;
+
+    //  Построение фильтров при старте приложения
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        BloomFilter newUsernames = new BloomFilter(expectedInsertions, falsePositiveRate);
+        BloomFilter newEmails = new BloomFilter(expectedInsertions, falsePositiveRate);
+        pendingUsernames = newUsernames;
+        pendingEmails = newEmails;
+
+        // Курсор PostgreSQL работает только внутри транзакции
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("SELECT username, email FROM users");
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            newUsernames.add(rs.getString(1));
+            newEmails.add(rs.getString(2));
+        }));
+
+        usernames = newUsernames;
+        emails = newEmails;
+        pendingUsernames = null;
+        pendingEmails = null;
+    }
+
+    public boolean isUsernameAvailable(String username) {
+        BloomFilter filter = usernames;
+        if (filter != null && !filter.mightContain(username)) {
+            return true;
+        }
+        return !userRepository.existsByUsername(username);
+    }
+
+    public boolean isEmailAvailable(String email) {
+        BloomFilter filter = emails;
+        if (filter != null && !filter.mightContain(email)) {
+            return true;
+        }
+        return !userRepository.existsByEmail(email);
+    }
+
+    //  Вызывается после успешной вставки пользователя
+    public void added(String username, String email) {
+        add(pendingUsernames, username);
+        add(usernames, username);
+        add(pendingEmails, email);
+        add(emails, email);
+    }
+
+    private static void add(BloomFilter filter, String value) {
+        if (filter != null) {
+            filter.add(value);
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.carcatalog.repository;
 
+import com.example.carcatalog.auth.PasswordHashingService;
 import com.example.carcatalog.model.User;
 import com.example.carcatalog.repository.UserRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
@@ -14,35 +16,81 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    // Хеширование идёт в отдельном ограниченном пуле, не на потоке запроса
+    @Autowired
+    private PasswordHashingService passwordHashing;
+
+    @Autowired
+    private UserAvailabilityIndex userAvailabilityIndex;
 
+    // Один INSERT: занятость username/email определяет уникальный индекс,
+    // так что одновременные регистрации с одинаковыми данными не проходят обе
     public String registerUser(User user) {
-        if (userRepository.existsByUsername(user.getUsername())) {
-            return "Username already exists";
-        }
-        if (userRepository.existsByEmail(user.getEmail())) {
-            return "Email already registered";
+        user.setPassword(passwordHashing.encode(user.getPassword()));
+        try {
+            userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            String violated = violatedConstraint(e);
+            if (violated.contains(User.USERNAME_CONSTRAINT) || violated.contains("(username)")) {
+                return "Username already exists";
+            }
+            if (violated.contains(User.EMAIL_CONSTRAINT) || violated.contains("(email)")) {
+                return "Email already registered";
+            }
+            throw e;
         }
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
-        userRepository.save(user);
+        userAvailabilityIndex.added(user.getUsername(), user.getEmail());
         return "User registered successfully";
     }
 
+    // Имя ограничения; для схем, созданных до именованных ограничений, - текст ошибки БД
+    // (PostgreSQL: "Key (username)=(...) already exists")
+    private static String violatedConstraint(DataIntegrityViolationException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof ConstraintViolationException violation) {
+            String name = violation.getConstraintName() != null ? violation.getConstraintName() : "";
+            String message = violation.getSQLException() != null ? violation.getSQLException().getMessage() : "";
+            return (name + " " + message).toLowerCase();
+        }
+        return String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase();
+    }
+
+    public boolean isUsernameAvailable(String username) {
+        return userAvailabilityIndex.isUsernameAvailable(username);
+    }
+
+    public boolean isEmailAvailable(String email) {
+        return userAvailabilityIndex.isEmailAvailable(email);
+    }
+
     public Optional<User> loginUserByEmail(String email, String rawPassword) {
         return userRepository.findByEmail(email)
-                .filter(user -> passwordEncoder.matches(rawPassword, user.getPassword()));
+                .filter(user -> checkPassword(user, rawPassword));
     }
 
     public Optional<User> loginUser(String username, String rawPassword) {
         return userRepository.findByUsername(username)
-                .filter(user -> passwordEncoder.matches(rawPassword, user.getPassword()));
+                .filter(user -> checkPassword(user, rawPassword));
+    }
+
+    // После успешной проверки устаревший хеш (другой алгоритм или стоимость) заменяется в фоне
+    private boolean checkPassword(User user, String rawPassword) {
+        String hash = user.getPassword();
+        if (!passwordHashing.matches(rawPassword, hash)) {
+            return false;
+        }
+        if (passwordHashing.needsRehash(hash)) {
+            passwordHashing.rehashAsync(rawPassword,
+                    newHash -> userRepository.updatePasswordHash(user.getId(), hash, newHash));
+        }
+        return true;
     }
 
     // Метод для смены пароля
     public boolean changePassword(Long userId, String oldPassword, String newPassword) {
         return userRepository.findById(userId).map(user -> {
-            if (passwordEncoder.matches(oldPassword, user.getPassword())) {
-                user.setPassword(passwordEncoder.encode(newPassword));
+            if (passwordHashing.matches(oldPassword, user.getPassword())) {
+                user.setPassword(passwordHashing.encode(newPassword));
                 userRepository.save(user);
                 return true;
             }
@@ -0,0 +1,67 @@
+package com.example.carcatalog.search;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.event.CarsChangedEvent;
+import com.example.carcatalog.model.Car;
+import com.example.carcatalog.repository.CarRepository;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Чтение всей таблицы cars пачками по id - для построения индексов при старте,
+// и машин пакетного изменения, если их нет в событии
+final class CarBatches {
+
+    static final int DEFAULT_BATCH_SIZE = 5000;
+    static final int CHANGED_BATCH_SIZE = 1000;
+
+    private CarBatches() {}
+
+    static void forEach(CarRepository carRepository, Consumer<List<Car>> consumer) {
+        long lastId = 0;
+        List<Car> batch;
+        do {
+            batch = carRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(DEFAULT_BATCH_SIZE));
+            if (batch.isEmpty()) {
+                return;
+            }
+            consumer.accept(batch);
+            lastId = batch.get(batch.size() - 1).getId();
+        } while (batch.size() == DEFAULT_BATCH_SIZE);
+    }
+
+    // Пакетное изменение порциями (removedIds, cars): удалённые машины и новое состояние остальных.
+    // Машин UPDATED в событии нет - читаем их по id; не найденная машина уже удалена
+    static void forEachChanged(CarRepository carRepository, CarsChangedEvent event,
+                               BiConsumer<List<Long>, List<Car>> consumer) {
+        if (event.getType() == CarChangedEvent.Type.DELETED) {
+            consumer.accept(event.getCarIds(), List.of());
+            return;
+        }
+        if (event.getCars() != null) {
+            consumer.accept(List.of(), event.getCars());
+            return;
+        }
+        List<Long> ids = event.getCarIds();
+        for (int from = 0; from < ids.size(); from += CHANGED_BATCH_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + CHANGED_BATCH_SIZE, ids.size()));
+            List<Car> cars = carRepository.findAllById(chunk);
+            Set<Long> found = new HashSet<>();
+            for (Car car : cars) {
+                found.add(car.getId());
+            }
+            List<Long> removed = new ArrayList<>();
+            for (Long id : chunk) {
+                if (!found.contains(id)) {
+                    removed.add(id);
+                }
+            }
+            consumer.accept(removed, cars);
+        }
+    }
+}
@@ -0,0 +1,563 @@
+package com.example.carcatalog.search;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.event.CarsChangedEvent;
+import com.example.carcatalog.model.Car;
+import com.example.carcatalog.repository.CarFacets;
+import com.example.carcatalog.repository.CarRepository;
+import com.example.carcatalog.repository.CarSearchCriteria;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Колоночный индекс каталога в памяти (catalog.search.mode=index).
+// Цена, год и пробег лежат в примитивных массивах, brand / fuelType / transmission
+// закодированы словарём и хранятся как битмапы по значению.
+// Слот машины в массивах не связан с её id: связь хранит slotById.
+@Component
+@ConditionalOnProperty(name = "catalog.search.mode", havingValue = "index")
+public class CarSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CarSearchIndex.class);
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_MILEAGE = Integer.MIN_VALUE;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private CarTextIndex carTextIndex;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Dictionary brands = new Dictionary();
+    private final Dictionary fuelTypes = new Dictionary();
+    private final Dictionary transmissions = new Dictionary();
+
+    private final BitSet live = new BitSet();
+    private final Map<Long, Integer> slotById = new HashMap<>();
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+    private int[] years = new int[INITIAL_CAPACITY];
+    private int[] mileages = new int[INITIAL_CAPACITY];
+    private int[] brandCodes = new int[INITIAL_CAPACITY];
+    private int[] fuelTypeCodes = new int[INITIAL_CAPACITY];
+    private int[] transmissionCodes = new int[INITIAL_CAPACITY];
+
+    // Количество занятых слотов (включая удалённые "дырки")
+    private int size;
+
+    // Машины, изменённые событиями во время rebuild (null - rebuild не идёт): пачка, прочитанная
+    // до их commit, не должна вернуть старое состояние или удалённую машину. Под write-lock
+    private Set<Long> changedDuringRebuild;
+
+    private volatile boolean ready;
+
+    // Результат поиска: id машин запрошенной страницы в нужном порядке и общее число совпадений
+    public static class Result {
+        private final long[] ids;
+        private final int total;
+
+        Result(long[] ids, int total) {
+            this.ids = ids;
+            this.total = total;
+        }
+
+        public long[] getIds() { return ids; }
+        public int getTotal() { return total; }
+    }
+
+    // Текстовый фильтр search обслуживает CarTextIndex, поэтому ждём и его
+    public boolean isReady() {
+        return ready && carTextIndex.isReady();
+    }
+
+    // Поиск по тексту индекс выполняет, только если CarTextIndex отвечает так же, как LIKE в БД
+    public boolean supports(CarSearchCriteria criteria) {
+        return !criteria.hasSearch() || carTextIndex.isSearchable();
+    }
+
+    public int liveCount() {
+        lock.readLock().lock();
+        try {
+            return slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //  Построение индекса при старте приложения
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        ready = false;
+        lock.writeLock().lock();
+        try {
+            clear();
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Читаем таблицу пачками по id, чтобы не держать весь каталог в памяти.
+        // Машины, уже обновлённые событием, пачка не трогает: событие новее
+        try {
+            CarBatches.forEach(carRepository, batch -> {
+                lock.writeLock().lock();
+                try {
+                    for (Car car : batch) {
+                        if (!changedDuringRebuild.contains(car.getId())) {
+                            upsert(car);
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        refreshBrandOrder();
+        ready = true;
+        log.info("Car search index built: {} cars", liveCount());
+    }
+
+    //  Синхронизация с записью машин: после commit транзакции, опубликовавшей событие
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        boolean newBrand = false;
+        lock.writeLock().lock();
+        try {
+            changed(event.getCarId());
+            if (event.getType() == CarChangedEvent.Type.DELETED) {
+                remove(event.getCarId());
+            } else {
+                upsert(event.getCar());
+                newBrand = !brands.isRanked(event.getCar().getBrand());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (newBrand) {
+            refreshBrandOrder();
+        }
+    }
+
+    //  Пакет изменений (порция импорта, массовая операция): блокировка - на порцию,
+    // порядок марок запрашивается один раз на пакет
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarsChanged(CarsChangedEvent event) {
+        boolean[] newBrand = new boolean[1];
+        CarBatches.forEachChanged(carRepository, event, (removedIds, cars) -> {
+            lock.writeLock().lock();
+            try {
+                for (Long id : removedIds) {
+                    changed(id);
+                    remove(id);
+                }
+                for (Car car : cars) {
+                    changed(car.getId());
+                    upsert(car);
+                    newBrand[0] |= !brands.isRanked(car.getBrand());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+        if (newBrand[0]) {
+            refreshBrandOrder();
+        }
+    }
+
+    // Порядок марок для sortBy=brand берётся из БД: ORDER BY brand там идёт по collation базы
+    // (регистр, локаль), и страницы индекса должны совпадать с SQL-поиском и keyset-прокруткой.
+    // Запрос - при построении индекса и при появлении новой марки
+    private void refreshBrandOrder() {
+        List<String> order = carRepository.findBrandsInSortOrder();
+        lock.writeLock().lock();
+        try {
+            brands.rank(order);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //  Поиск: пересечение битмапов + проход по примитивным массивам
+    public Result search(CarSearchCriteria criteria, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            int[] matches = collect(criteria);
+            int count = matches.length;
+
+            // Сортируются только слоты до конца страницы, а не все совпадения
+            int from = Math.min(offset, count);
+            int to = (int) Math.min((long) from + limit, count);
+            SlotSorter.sortTop(matches, count, to, comparator(criteria));
+
+            long[] page = new long[to - from];
+            for (int i = from; i < to; i++) {
+                page[i - from] = ids[matches[i]];
+            }
+            return new Result(page, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //  Фасеты по тем же фильтрам, что и CarFacetService, но без запросов в БД
+    public CarFacets facets(CarSearchCriteria criteria, double priceStep) {
+        lock.readLock().lock();
+        try {
+            CarFacets facets = new CarFacets();
+            facets.setTotal(collect(criteria).length);
+
+            CarSearchCriteria withoutBrand = criteria.copy();
+            withoutBrand.setBrand(null);
+            facets.setBrands(brands.count(brandCodes, collect(withoutBrand)));
+
+            CarSearchCriteria withoutFuelType = criteria.copy();
+            withoutFuelType.setFuelType(null);
+            facets.setFuelTypes(fuelTypes.count(fuelTypeCodes, collect(withoutFuelType)));
+
+            CarSearchCriteria withoutTransmission = criteria.copy();
+            withoutTransmission.setTransmission(null);
+            facets.setTransmissions(transmissions.count(transmissionCodes, collect(withoutTransmission)));
+
+            CarSearchCriteria withoutYear = criteria.copy();
+            withoutYear.setMinYear(null);
+            withoutYear.setMaxYear(null);
+            int[] yearSlots = collect(withoutYear);
+            long[] yearValues = new long[yearSlots.length];
+            for (int i = 0; i < yearSlots.length; i++) {
+                yearValues[i] = years[yearSlots[i]];
+            }
+            List<CarFacets.Value> yearCounts = new ArrayList<>();
+            countRuns(yearValues, (value, count) -> yearCounts.add(new CarFacets.Value((int) value, count)));
+            facets.setYears(yearCounts);
+
+            CarSearchCriteria withoutPrice = criteria.copy();
+            withoutPrice.setMinPrice(null);
+            withoutPrice.setMaxPrice(null);
+            int[] priceSlots = collect(withoutPrice);
+            long[] buckets = new long[priceSlots.length];
+            for (int i = 0; i < priceSlots.length; i++) {
+                buckets[i] = (long) Math.floor(prices[priceSlots[i]] / priceStep);
+            }
+            List<CarFacets.Range> priceCounts = new ArrayList<>();
+            countRuns(buckets, (bucket, count) ->
+                    priceCounts.add(new CarFacets.Range(bucket * priceStep, (bucket + 1) * priceStep, count)));
+            facets.setPrices(priceCounts);
+
+            return facets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private interface RunConsumer {
+        void accept(long value, long count);
+    }
+
+    // Сортирует значения и отдаёт (значение, сколько раз встретилось) по возрастанию
+    private static void countRuns(long[] values, RunConsumer consumer) {
+        Arrays.sort(values);
+        int i = 0;
+        while (i < values.length) {
+            int j = i;
+            while (j < values.length && values[j] == values[i]) {
+                j++;
+            }
+            consumer.accept(values[i], j - i);
+            i = j;
+        }
+    }
+
+    // Слоты, подходящие под все фильтры, в порядке слотов. Вызывается под read-lock.
+    private int[] collect(CarSearchCriteria criteria) {
+        BitSet candidates = (BitSet) live.clone();
+        if (!brands.restrict(candidates, criteria.getBrand())
+                || !fuelTypes.restrict(candidates, criteria.getFuelType())
+                || !transmissions.restrict(candidates, criteria.getTransmission())) {
+            return new int[0];
+        }
+        if (criteria.hasSearch()) {
+            long[] textMatches = carTextIndex.find(criteria.getSearch());
+            if (textMatches != null) {
+                BitSet matched = new BitSet();
+                for (long id : textMatches) {
+                    Integer slot = slotById.get(id);
+                    if (slot != null) {
+                        matched.set(slot);
+                    }
+                }
+                candidates.and(matched);
+            }
+        }
+
+        double minPrice = criteria.getMinPrice() != null ? criteria.getMinPrice() : Double.NEGATIVE_INFINITY;
+        double maxPrice = criteria.getMaxPrice() != null ? criteria.getMaxPrice() : Double.POSITIVE_INFINITY;
+        int minYear = criteria.getMinYear() != null ? criteria.getMinYear() : Integer.MIN_VALUE;
+        int maxYear = criteria.getMaxYear() != null ? criteria.getMaxYear() : Integer.MAX_VALUE;
+        boolean mileageFilter = criteria.getMinMileage() != null || criteria.getMaxMileage() != null;
+        int minMileage = criteria.getMinMileage() != null ? criteria.getMinMileage() : Integer.MIN_VALUE + 1;
+        int maxMileage = criteria.getMaxMileage() != null ? criteria.getMaxMileage() : Integer.MAX_VALUE;
+
+        int[] matches = new int[candidates.cardinality()];
+        int count = 0;
+        for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+            if (prices[slot] < minPrice || prices[slot] > maxPrice) continue;
+            if (years[slot] < minYear || years[slot] > maxYear) continue;
+            if (mileageFilter && (mileages[slot] == NO_MILEAGE
+                    || mileages[slot] < minMileage || mileages[slot] > maxMileage)) continue;
+            matches[count++] = slot;
+        }
+        return count == matches.length ? matches : Arrays.copyOf(matches, count);
+    }
+
+    // Тот же порядок, что и CarSearchCriteria.toSort(): поле, затем id
+    private SlotSorter.SlotComparator comparator(CarSearchCriteria criteria) {
+        SlotSorter.SlotComparator byId = (a, b) -> Long.compare(ids[a], ids[b]);
+        SlotSorter.SlotComparator ascending;
+        switch (criteria.sortProperty()) {
+            case "price":
+                ascending = (a, b) -> {
+                    int c = Double.compare(prices[a], prices[b]);
+                    return c != 0 ? c : byId.compare(a, b);
+                };
+                break;
+            case "year":
+                ascending = (a, b) -> {
+                    int c = Integer.compare(years[a], years[b]);
+                    return c != 0 ? c : byId.compare(a, b);
+                };
+                break;
+            case "brand":
+                ascending = (a, b) -> {
+                    int c = brands.compareValues(brandCodes[a], brandCodes[b]);
+                    return c != 0 ? c : byId.compare(a, b);
+                };
+                break;
+            default:
+                ascending = byId;
+        }
+        if (criteria.isDescending()) {
+            SlotSorter.SlotComparator asc = ascending;
+            return (a, b) -> asc.compare(b, a);
+        }
+        return ascending;
+    }
+
+    // Вызывается под write-lock
+    private void changed(Long carId) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(carId);
+        }
+    }
+
+    // Вызывается под write-lock
+    private void upsert(Car car) {
+        Integer existing = slotById.get(car.getId());
+        int slot;
+        if (existing != null) {
+            slot = existing;
+            brands.remove(slot, brandCodes[slot]);
+            fuelTypes.remove(slot, fuelTypeCodes[slot]);
+            transmissions.remove(slot, transmissionCodes[slot]);
+        } else {
+            // Переиспользуем слоты удалённых машин
+            slot = live.nextClearBit(0);
+            if (slot == size) {
+                ensureCapacity(size + 1);
+                size++;
+            }
+            live.set(slot);
+            slotById.put(car.getId(), slot);
+        }
+
+        ids[slot] = car.getId();
+        prices[slot] = car.getPrice();
+        years[slot] = car.getYear();
+        mileages[slot] = car.getMileage() != null ? car.getMileage() : NO_MILEAGE;
+        brandCodes[slot] = brands.add(slot, car.getBrand());
+        fuelTypeCodes[slot] = fuelTypes.add(slot, car.getFuelType());
+        transmissionCodes[slot] = transmissions.add(slot, car.getTransmission());
+    }
+
+    // Вызывается под write-lock
+    private void remove(Long carId) {
+        Integer slot = slotById.remove(carId);
+        if (slot == null) {
+            return;
+        }
+        live.clear(slot);
+        brands.remove(slot, brandCodes[slot]);
+        fuelTypes.remove(slot, fuelTypeCodes[slot]);
+        transmissions.remove(slot, transmissionCodes[slot]);
+    }
+
+    private void clear() {
+        live.clear();
+        slotById.clear();
+        brands.clear();
+        fuelTypes.clear();
+        transmissions.clear();
+        size = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        prices = Arrays.copyOf(prices, newCapacity);
+        years = Arrays.copyOf(years, newCapacity);
+        mileages = Arrays.copyOf(mileages, newCapacity);
+        brandCodes = Arrays.copyOf(brandCodes, newCapacity);
+        fuelTypeCodes = Arrays.copyOf(fuelTypeCodes, newCapacity);
+        transmissionCodes = Arrays.copyOf(transmissionCodes, newCapacity);
+    }
+
+    // Словарь значений колонки: значение -> код и битмап слотов для каждого кода.
+    // Коды - по точному значению, как GROUP BY в БД: "BMW" и "bmw" - разные значения фасета.
+    // Фильтр, как и lower(brand) = lower(?), без учёта регистра - по всем кодам с тем же значением
+    // в нижнем регистре
+    private static class Dictionary {
+        private static final int NULL_CODE = -1;
+        private static final int UNRANKED = -1;
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final Map<String, List<Integer>> codesByLowerCase = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final List<BitSet> bitmaps = new ArrayList<>();
+        // Место значения в порядке сортировки БД (по коду); UNRANKED - ещё не известно
+        private int[] ranks = new int[0];
+
+        int add(int slot, String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                codesByLowerCase.computeIfAbsent(value.toLowerCase(), key -> new ArrayList<>(1)).add(code);
+                values.add(value);
+                bitmaps.add(new BitSet());
+                if (ranks.length <= code) {
+                    ranks = Arrays.copyOf(ranks, Math.max(code + 1, ranks.length * 2));
+                }
+                ranks[code] = UNRANKED;
+            }
+            bitmaps.get(code).set(slot);
+            return code;
+        }
+
+        void remove(int slot, int code) {
+            if (code != NULL_CODE) {
+                bitmaps.get(code).clear(slot);
+            }
+        }
+
+        // Оставляет в candidates только слоты с данным значением (без учёта регистра).
+        // false - значения нет в словаре, результат заведомо пустой.
+        boolean restrict(BitSet candidates, String value) {
+            if (value == null || value.isEmpty()) {
+                return true;
+            }
+            List<Integer> matching = codesByLowerCase.get(value.toLowerCase());
+            if (matching == null) {
+                return false;
+            }
+            if (matching.size() == 1) {
+                candidates.and(bitmaps.get(matching.get(0)));
+            } else {
+                BitSet union = new BitSet();
+                for (int code : matching) {
+                    union.or(bitmaps.get(code));
+                }
+                candidates.and(union);
+            }
+            return true;
+        }
+
+        // Счётчики значений по слотам; null-значения не считаются
+        List<CarFacets.Value> count(int[] codesBySlot, int[] slots) {
+            int[] counts = new int[values.size()];
+            for (int slot : slots) {
+                int code = codesBySlot[slot];
+                if (code != NULL_CODE) {
+                    counts[code]++;
+                }
+            }
+            List<CarFacets.Value> result = new ArrayList<>();
+            for (int code = 0; code < counts.length; code++) {
+                if (counts[code] > 0) {
+                    result.add(new CarFacets.Value(values.get(code), counts[code]));
+                }
+            }
+            result.sort(CarFacets.BY_COUNT);
+            return result;
+        }
+
+        // Порядок значений - список из ORDER BY в БД
+        void rank(List<String> ordered) {
+            for (int i = 0; i < ordered.size(); i++) {
+                Integer code = codes.get(ordered.get(i));
+                if (code != null) {
+                    ranks[code] = i;
+                }
+            }
+        }
+
+        boolean isRanked(String value) {
+            if (value == null) {
+                return true;
+            }
+            Integer code = codes.get(value);
+            return code != null && ranks[code] != UNRANKED;
+        }
+
+        // NULLS LAST, как ORDER BY ... ASC в PostgreSQL (при DESC компаратор разворачивается - NULLS FIRST).
+        // Значения без места в порядке БД (её ещё не спросили) - после известных
+        int compareValues(int a, int b) {
+            if (a == b) return 0;
+            if (a == NULL_CODE) return 1;
+            if (b == NULL_CODE) return -1;
+            int rankA = ranks[a] == UNRANKED ? Integer.MAX_VALUE : ranks[a];
+            int rankB = ranks[b] == UNRANKED ? Integer.MAX_VALUE : ranks[b];
+            int c = Integer.compare(rankA, rankB);
+            return c != 0 ? c : values.get(a).compareTo(values.get(b));
+        }
+
+        void clear() {
+            codes.clear();
+            codesByLowerCase.clear();
+            values.clear();
+            bitmaps.clear();
+            ranks = new int[0];
+        }
+    }
+}
@@ -0,0 +1,658 @@
+package com.example.carcatalog.search;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.event.CarsChangedEvent;
+import com.example.carcatalog.model.Car;
+import com.example.carcatalog.repository.CarRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Year;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Индекс "похожих машин": k ближайших соседей в памяти, без обращения к таблице cars.
+// Числовые признаки приводятся к общей шкале: единица - priceRatio раз по цене,
+// yearStep лет, mileageStep км пробега. Несовпадение brand / fuelType / transmission
+// добавляет штраф в тех же единицах.
+// Точки лежат в примитивных массивах по слотам; слот неизменяем: изменение машины - новый слот,
+// старый помечается удалённым. По слотам построено KD-дерево (неявное, медиана диапазона - узел),
+// отдельное на каждую марку: сначала ищем в своей марке и получаем узкую границу,
+// остальные марки отсекаются почти сразу. Слоты, добавленные после построения дерева,
+// просматриваются перебором, пока их не станет много - тогда в фоновом потоке живые слоты
+// переносятся в новые массивы (удалённые уходят) и по ним строится новое дерево.
+// Запись машины при этом только меняет слоты, поиск до замены идёт по старому дереву.
+@Component
+public class CarSimilarityIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CarSimilarityIndex.class);
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int DIMENSIONS = 3;
+    private static final int LEAF_SIZE = 8;
+    // Перестройка, когда новых и удалённых слотов больше max(MIN_REBUILD_CHANGES, live / REBUILD_FRACTION)
+    private static final int MIN_REBUILD_CHANGES = 1024;
+    private static final int REBUILD_FRACTION = 16;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Value("${catalog.similar.price-ratio:1.25}")
+    private double priceRatio = 1.25;
+    @Value("${catalog.similar.year-step:2}")
+    private double yearStep = 2;
+    @Value("${catalog.similar.mileage-step:30000}")
+    private double mileageStep = 30000;
+    @Value("${catalog.similar.brand-penalty:2}")
+    private double brandPenalty = 2;
+    @Value("${catalog.similar.fuel-type-penalty:1}")
+    private double fuelTypePenalty = 1;
+    @Value("${catalog.similar.transmission-penalty:0.5}")
+    private double transmissionPenalty = 0.5;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "car-similarity-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, Integer> brandCodes = new HashMap<>();
+    private final Map<String, Integer> fuelTypeCodes = new HashMap<>();
+    private final Map<String, Integer> transmissionCodes = new HashMap<>();
+
+    private final BitSet live = new BitSet();
+    private Map<Long, Integer> slotById = new HashMap<>();
+    private long[] ids = new long[INITIAL_CAPACITY];
+    // x, y, z слота i - в coords[3i .. 3i+2]
+    private float[] coords = new float[INITIAL_CAPACITY * DIMENSIONS];
+    private int[] brands = new int[INITIAL_CAPACITY];
+    private int[] fuelTypes = new int[INITIAL_CAPACITY];
+    private int[] transmissions = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private Tree tree = Tree.EMPTY;
+    // Слоты дерева, удалённые после его построения
+    private int deadInTree;
+    // Меняется при перестройке и очистке: дерево, построенное по старым номерам слотов, не ставится
+    private int generation;
+
+    private volatile boolean ready;
+
+    // KD-деревья по маркам в одном массиве слотов: марка b - диапазон [start[b], end[b])
+    private static final class Tree {
+        static final Tree EMPTY = new Tree(new int[0], new byte[0], new int[0], new int[0], 0);
+
+        final int[] order;
+        final byte[] splitDims;
+        final int[] start;
+        final int[] end;
+        // Слоты с номером от builtSize в дерево не входят
+        final int builtSize;
+
+        Tree(int[] order, byte[] splitDims, int[] start, int[] end, int builtSize) {
+            this.order = order;
+            this.splitDims = splitDims;
+            this.start = start;
+            this.end = end;
+            this.builtSize = builtSize;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean contains(Long carId) {
+        lock.readLock().lock();
+        try {
+            return slotById.containsKey(carId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //  Построение индекса при старте приложения
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        ready = false;
+        lock.writeLock().lock();
+        try {
+            clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        CarBatches.forEach(carRepository, batch -> {
+            lock.writeLock().lock();
+            try {
+                for (Car car : batch) {
+                    upsert(car);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+        rebuildTree();
+
+        ready = true;
+        log.info("Car similarity index built: {} cars", slotById.size());
+    }
+
+    //  Синхронизация с записью машин: после commit транзакции, опубликовавшей событие
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        boolean rebuildNeeded;
+        lock.writeLock().lock();
+        try {
+            remove(event.getCarId());
+            if (event.getType() != CarChangedEvent.Type.DELETED) {
+                upsert(event.getCar());
+            }
+            rebuildNeeded = rebuildNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (rebuildNeeded && ready) {
+            scheduleRebuild();
+        }
+    }
+
+    //  Пакет изменений: блокировка - на порцию
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarsChanged(CarsChangedEvent event) {
+        boolean[] rebuildNeeded = new boolean[1];
+        CarBatches.forEachChanged(carRepository, event, (removedIds, cars) -> {
+            lock.writeLock().lock();
+            try {
+                removedIds.forEach(this::remove);
+                cars.forEach(this::upsert);
+                rebuildNeeded[0] = rebuildNeeded();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+        if (rebuildNeeded[0] && ready) {
+            scheduleRebuild();
+        }
+    }
+
+    // Под lock: новых и удалённых слотов слишком много для перебора
+    private boolean rebuildNeeded() {
+        int live = slotById.size();
+        return (size - tree.builtSize) + deadInTree > Math.max(MIN_REBUILD_CHANGES, live / REBUILD_FRACTION);
+    }
+
+    // Перестройка - в своём потоке: поток записи не ждёт O(n log n), поиск идёт по старому дереву
+    private void scheduleRebuild() {
+        if (rebuilder.isShutdown() || !rebuildScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        rebuilder.execute(() -> {
+            rebuildScheduled.set(false);
+            boolean needed;
+            lock.readLock().lock();
+            try {
+                needed = rebuildNeeded();
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (needed) {
+                try {
+                    rebuildTree();
+                } catch (RuntimeException e) {
+                    log.error("Car similarity tree rebuild failed", e);
+                }
+            }
+        });
+    }
+
+    // id до limit машин, ближайших к машине carId (сама она не входит), от ближайшей;
+    // null - машины нет в индексе
+    public long[] similar(Long carId, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotById.get(carId);
+            if (slot == null) {
+                return null;
+            }
+            Neighbours neighbours = new Neighbours(limit);
+            Tree current = tree;
+            int brand = brands[slot];
+
+            // Своя марка первой: её соседи дают узкую границу для остальных
+            if (brand < current.start.length) {
+                searchNode(current, current.start[brand], current.end[brand], slot, 0, neighbours);
+            }
+            double otherBrand = brandPenalty * brandPenalty;
+            for (int b = 0; b < current.start.length; b++) {
+                if (b != brand) {
+                    searchNode(current, current.start[b], current.end[b], slot, otherBrand, neighbours);
+                }
+            }
+            // Слоты после построения дерева - перебором
+            for (int s = live.nextSetBit(current.builtSize); s >= 0 && s < size; s = live.nextSetBit(s + 1)) {
+                consider(s, slot, neighbours);
+            }
+            return neighbours.sortedIds(ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void searchNode(Tree tree, int from, int to, int query, double penalty, Neighbours neighbours) {
+        while (to - from > LEAF_SIZE) {
+            int mid = (from + to) >>> 1;
+            int node = tree.order[mid];
+            consider(node, query, neighbours);
+
+            int dim = tree.splitDims[mid];
+            float diff = coords[query * DIMENSIONS + dim] - coords[node * DIMENSIONS + dim];
+            boolean left = diff < 0;
+            // Ближняя половина - рекурсивно, дальняя - только если плоскость ближе k-го соседа
+            if (penalty + (double) diff * diff < neighbours.worst()) {
+                if (left) {
+                    searchNode(tree, from, mid, query, penalty, neighbours);
+                    from = mid + 1;
+                } else {
+                    searchNode(tree, mid + 1, to, query, penalty, neighbours);
+                    to = mid;
+                }
+            } else if (left) {
+                to = mid;
+            } else {
+                from = mid + 1;
+            }
+        }
+        for (int i = from; i < to; i++) {
+            consider(tree.order[i], query, neighbours);
+        }
+    }
+
+    private void consider(int slot, int query, Neighbours neighbours) {
+        if (slot == query || !live.get(slot)) {
+            return;
+        }
+        double distance = 0;
+        for (int d = 0; d < DIMENSIONS; d++) {
+            double diff = coords[query * DIMENSIONS + d] - coords[slot * DIMENSIONS + d];
+            distance += diff * diff;
+        }
+        if (brands[slot] != brands[query]) {
+            distance += brandPenalty * brandPenalty;
+        }
+        if (fuelTypes[slot] != fuelTypes[query]) {
+            distance += fuelTypePenalty * fuelTypePenalty;
+        }
+        if (transmissions[slot] != transmissions[query]) {
+            distance += transmissionPenalty * transmissionPenalty;
+        }
+        neighbours.offer(slot, distance);
+    }
+
+    // Живые слоты снимка переносятся в новые массивы и по ним строится дерево - без блокировки:
+    // слоты неизменяемы, старые массивы (до расширения) содержат те же значения.
+    // Под write lock только замена и изменения, сделанные за время построения: новые слоты
+    // дописываются за деревом, удалённые помечаются. Одновременно строится одно дерево
+    void rebuildTree() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            BitSet snapshot;
+            int snapshotSize;
+            long[] snapshotIds;
+            float[] snapshotCoords;
+            int[] snapshotBrands;
+            int[] snapshotFuelTypes;
+            int[] snapshotTransmissions;
+            int brandCount;
+            int builtGeneration;
+            lock.readLock().lock();
+            try {
+                builtGeneration = generation;
+                snapshotSize = size;
+                snapshot = live.get(0, snapshotSize);
+                snapshotIds = ids;
+                snapshotCoords = coords;
+                snapshotBrands = brands;
+                snapshotFuelTypes = fuelTypes;
+                snapshotTransmissions = transmissions;
+                brandCount = brandCodes.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            int count = snapshot.cardinality();
+            int capacity = Math.max(INITIAL_CAPACITY, count * 2);
+            long[] newIds = new long[capacity];
+            float[] newCoords = new float[capacity * DIMENSIONS];
+            int[] newBrands = new int[capacity];
+            int[] newFuelTypes = new int[capacity];
+            int[] newTransmissions = new int[capacity];
+            Map<Long, Integer> newSlotById = new HashMap<>(capacity);
+            int[] slots = new int[count];
+            int next = 0;
+            for (int slot = snapshot.nextSetBit(0); slot >= 0; slot = snapshot.nextSetBit(slot + 1)) {
+                newIds[next] = snapshotIds[slot];
+                System.arraycopy(snapshotCoords, slot * DIMENSIONS, newCoords, next * DIMENSIONS, DIMENSIONS);
+                newBrands[next] = snapshotBrands[slot];
+                newFuelTypes[next] = snapshotFuelTypes[slot];
+                newTransmissions[next] = snapshotTransmissions[slot];
+                newSlotById.put(newIds[next], next);
+                slots[next] = next;
+                next++;
+            }
+            Tree built = build(slots, newCoords, newBrands, brandCount, count);
+
+            lock.writeLock().lock();
+            try {
+                if (generation != builtGeneration) {
+                    return;
+                }
+                // Удалены за время построения: остаются в дереве мёртвыми
+                BitSet removed = (BitSet) snapshot.clone();
+                removed.andNot(live);
+                BitSet newLive = new BitSet(capacity);
+                newLive.set(0, count);
+                int dead = 0;
+                for (int slot = removed.nextSetBit(0); slot >= 0; slot = removed.nextSetBit(slot + 1)) {
+                    int newSlot = newSlotById.remove(snapshotIds[slot]);
+                    newLive.clear(newSlot);
+                    dead++;
+                }
+
+                long[] oldIds = ids;
+                float[] oldCoords = coords;
+                int[] oldBrands = brands;
+                int[] oldFuelTypes = fuelTypes;
+                int[] oldTransmissions = transmissions;
+                ids = newIds;
+                coords = newCoords;
+                brands = newBrands;
+                fuelTypes = newFuelTypes;
+                transmissions = newTransmissions;
+                slotById = newSlotById;
+                size = count;
+                // Добавлены за время построения - за деревом, до следующей перестройки перебором
+                // (удалённый слот живым не становится: после снимка живые только новые слоты)
+                for (int slot = live.nextSetBit(snapshotSize); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                    if (size == ids.length) {
+                        grow();
+                    }
+                    int newSlot = size++;
+                    ids[newSlot] = oldIds[slot];
+                    System.arraycopy(oldCoords, slot * DIMENSIONS, coords, newSlot * DIMENSIONS, DIMENSIONS);
+                    brands[newSlot] = oldBrands[slot];
+                    fuelTypes[newSlot] = oldFuelTypes[slot];
+                    transmissions[newSlot] = oldTransmissions[slot];
+                    newLive.set(newSlot);
+                    slotById.put(ids[newSlot], newSlot);
+                }
+                live.clear();
+                live.or(newLive);
+                tree = built;
+                deadInTree = dead;
+                generation++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    // Слоты сортируются по марке (подсчётом), внутри марки - KD-дерево
+    static Tree build(int[] slots, float[] points, int[] brandOf, int brandCount, int builtSize) {
+        int[] start = new int[brandCount];
+        int[] end = new int[brandCount];
+        for (int slot : slots) {
+            end[brandOf[slot]]++;
+        }
+        int offset = 0;
+        for (int b = 0; b < brandCount; b++) {
+            start[b] = offset;
+            offset += end[b];
+            end[b] = start[b];
+        }
+        int[] order = new int[slots.length];
+        for (int slot : slots) {
+            order[end[brandOf[slot]]++] = slot;
+        }
+        byte[] splitDims = new byte[order.length];
+        for (int b = 0; b < brandCount; b++) {
+            buildNode(order, splitDims, points, start[b], end[b]);
+        }
+        return new Tree(order, splitDims, start, end, builtSize);
+    }
+
+    // Узел диапазона [from, to) - его медиана по измерению с наибольшим разбросом
+    private static void buildNode(int[] order, byte[] splitDims, float[] points, int from, int to) {
+        while (to - from > LEAF_SIZE) {
+            int dim = widestDimension(order, points, from, to);
+            int mid = (from + to) >>> 1;
+            select(order, points, dim, from, to - 1, mid);
+            splitDims[mid] = (byte) dim;
+            buildNode(order, splitDims, points, from, mid);
+            from = mid + 1;
+        }
+    }
+
+    private static int widestDimension(int[] order, float[] points, int from, int to) {
+        int widest = 0;
+        float widestSpread = -1;
+        for (int d = 0; d < DIMENSIONS; d++) {
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                float value = points[order[i] * DIMENSIONS + d];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (max - min > widestSpread) {
+                widestSpread = max - min;
+                widest = d;
+            }
+        }
+        return widest;
+    }
+
+    // Quickselect: order[k] - k-й по значению измерения dim, слева не больше, справа не меньше
+    private static void select(int[] order, float[] points, int dim, int left, int right, int k) {
+        while (right > left) {
+            float pivot = points[order[(left + right) >>> 1] * DIMENSIONS + dim];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (points[order[i] * DIMENSIONS + dim] < pivot) {
+                    i++;
+                }
+                while (points[order[j] * DIMENSIONS + dim] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    // Изменения - только под write lock
+    private void upsert(Car car) {
+        remove(car.getId());
+        if (size == ids.length) {
+            grow();
+        }
+        int slot = size++;
+        ids[slot] = car.getId();
+        coords[slot * DIMENSIONS] = (float) (Math.log(Math.max(car.getPrice(), 1)) / Math.log(priceRatio));
+        coords[slot * DIMENSIONS + 1] = (float) (car.getYear() / yearStep);
+        // Пробег не указан - считаем по возрасту, как у типичной машины (15 000 км в год)
+        double mileage = car.getMileage() != null
+                ? car.getMileage()
+                : Math.max(0, Year.now().getValue() - car.getYear()) * 15000.0;
+        coords[slot * DIMENSIONS + 2] = (float) (mileage / mileageStep);
+        brands[slot] = code(brandCodes, car.getBrand());
+        fuelTypes[slot] = code(fuelTypeCodes, car.getFuelType());
+        transmissions[slot] = code(transmissionCodes, car.getTransmission());
+        live.set(slot);
+        slotById.put(car.getId(), slot);
+    }
+
+    private void remove(Long carId) {
+        Integer slot = slotById.remove(carId);
+        if (slot != null) {
+            live.clear(slot);
+            if (slot < tree.builtSize) {
+                deadInTree++;
+            }
+        }
+    }
+
+    // Пустое значение - отдельная категория: совпадает только с пустым
+    private static int code(Map<String, Integer> codes, String value) {
+        String key = value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+        return codes.computeIfAbsent(key, k -> codes.size());
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        coords = Arrays.copyOf(coords, capacity * DIMENSIONS);
+        brands = Arrays.copyOf(brands, capacity);
+        fuelTypes = Arrays.copyOf(fuelTypes, capacity);
+        transmissions = Arrays.copyOf(transmissions, capacity);
+    }
+
+    private void clear() {
+        brandCodes.clear();
+        fuelTypeCodes.clear();
+        transmissionCodes.clear();
+        live.clear();
+        slotById.clear();
+        ids = new long[INITIAL_CAPACITY];
+        coords = new float[INITIAL_CAPACITY * DIMENSIONS];
+        brands = new int[INITIAL_CAPACITY];
+        fuelTypes = new int[INITIAL_CAPACITY];
+        transmissions = new int[INITIAL_CAPACITY];
+        size = 0;
+        tree = Tree.EMPTY;
+        deadInTree = 0;
+        generation++;
+    }
+
+    // k лучших кандидатов: max-куча по расстоянию (в корне - худший из отобранных)
+    private static final class Neighbours {
+        private final int capacity;
+        private final int[] slots;
+        private final double[] distances;
+        private int count;
+
+        Neighbours(int capacity) {
+            this.capacity = capacity;
+            this.slots = new int[capacity];
+            this.distances = new double[capacity];
+        }
+
+        // Граница отсечения: пока кандидатов меньше k - без ограничения
+        double worst() {
+            return count < capacity ? Double.POSITIVE_INFINITY : distances[0];
+        }
+
+        void offer(int slot, double distance) {
+            if (count < capacity) {
+                slots[count] = slot;
+                distances[count] = distance;
+                siftUp(count++);
+            } else if (distance < distances[0]) {
+                slots[0] = slot;
+                distances[0] = distance;
+                siftDown(0);
+            }
+        }
+
+        long[] sortedIds(long[] ids) {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+            long[] result = new long[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = ids[slots[order[i]]];
+            }
+            return result;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (distances[parent] >= distances[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < count && distances[left] > distances[largest]) {
+                    largest = left;
+                }
+                if (right < count && distances[right] > distances[largest]) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int slot = slots[a];
+            slots[a] = slots[b];
+            slots[b] = slot;
+            double distance = distances[a];
+            distances[a] = distances[b];
+            distances[b] = distance;
+        }
+    }
+}
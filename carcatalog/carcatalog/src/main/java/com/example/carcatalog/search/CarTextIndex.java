@@ -0,0 +1,386 @@
+package com.example.carcatalog.search;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.event.CarsChangedEvent;
+import com.example.carcatalog.model.Car;
+import com.example.carcatalog.repository.CarRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+// Триграммный инвертированный индекс по brand, model и description.
+// Поиск - тот же, что LIKE '%запрос%' по lower(...) в CarSearchCriteria: подстрока без учёта регистра.
+// Поля в нижнем регистре хранятся как есть, разделённые символом \u0001; триграммы запроса
+// (пересечение их списков) дают кандидатов, каждый кандидат проверяется по тексту машины.
+// Запрос из 1-2 символов триграмм не имеет - проверяются все машины.
+// Здесь же словарь "марка модель" для автодополнения.
+@Component
+public class CarTextIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CarTextIndex.class);
+
+    private static final char FIELD_SEPARATOR = '\u0001';
+    private static final int INITIAL_CAPACITY = 1024;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Value("${catalog.search.text-index.include-description:true}")
+    private boolean includeDescription = true;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final Map<Long, Integer> docById = new HashMap<>();
+    private final BitSet usedDocs = new BitSet();
+    private long[] idByDoc = new long[INITIAL_CAPACITY];
+    // Текст машины в нижнем регистре - для проверки кандидатов и снятия её триграмм
+    private String[] textByDoc = new String[INITIAL_CAPACITY];
+    // Марка и модель, с которыми машина попала в подсказки: удаление не требует прежнего состояния
+    private String[] brandByDoc = new String[INITIAL_CAPACITY];
+    private String[] modelByDoc = new String[INITIAL_CAPACITY];
+
+    // Ключ - нормализованные "марка модель" и "модель", значение - подсказка с числом машин
+    private final TreeMap<String, Map<String, Integer>> suggestions = new TreeMap<>();
+
+    // Машины, изменённые событиями во время rebuild (null - rebuild не идёт): пачка, прочитанная
+    // до их commit, не должна вернуть удалённую машину или старый текст. Под write-lock
+    private Set<Long> changedDuringRebuild;
+
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Индекс отвечает на поиск так же, как LIKE в БД, только если в нём есть description
+    public boolean isSearchable() {
+        return ready && includeDescription;
+    }
+
+    //  Построение индекса при старте приложения
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        ready = false;
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docById.clear();
+            usedDocs.clear();
+            Arrays.fill(textByDoc, null);
+            Arrays.fill(brandByDoc, null);
+            Arrays.fill(modelByDoc, null);
+            suggestions.clear();
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            CarBatches.forEach(carRepository, batch -> {
+                lock.writeLock().lock();
+                try {
+                    for (Car car : batch) {
+                        if (!changedDuringRebuild.contains(car.getId())) {
+                            add(car);
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        ready = true;
+        log.info("Car text index built: {} trigrams", postings.size());
+    }
+
+    //  Синхронизация с записью машин: после commit транзакции, опубликовавшей событие
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarChanged(CarChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            changed(event.getCarId());
+            remove(event.getCarId());
+            if (event.getCar() != null) {
+                add(event.getCar());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //  Пакет изменений: блокировка - на порцию
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarsChanged(CarsChangedEvent event) {
+        CarBatches.forEachChanged(carRepository, event, (removedIds, cars) -> {
+            lock.writeLock().lock();
+            try {
+                for (Long id : removedIds) {
+                    changed(id);
+                    remove(id);
+                }
+                for (Car car : cars) {
+                    changed(car.getId());
+                    remove(car.getId());
+                    add(car);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    //  Id машин, у которых brand, model или description содержат запрос без учёта регистра.
+    // null - запрос пустой, фильтровать не нужно.
+    public long[] find(String query) {
+        if (query == null || query.isEmpty()) {
+            return null;
+        }
+        // Как в CarSearchCriteria: lower(поле) LIKE '%' || lower(запрос) || '%'
+        String lower = query.toLowerCase();
+        long[] keys = trigrams(lower);
+
+        lock.readLock().lock();
+        try {
+            int[] candidates;
+            if (keys.length == 0) {
+                candidates = usedDocs.stream().toArray();
+            } else {
+                List<PostingList> lists = new ArrayList<>(keys.length);
+                for (long key : keys) {
+                    PostingList list = postings.get(key);
+                    if (list == null) {
+                        return new long[0];
+                    }
+                    lists.add(list);
+                }
+                candidates = PostingList.intersect(lists);
+            }
+            long[] ids = new long[candidates.length];
+            int count = 0;
+            for (int doc : candidates) {
+                if (textByDoc[doc].contains(lower)) {
+                    ids[count++] = idByDoc[doc];
+                }
+            }
+            ids = Arrays.copyOf(ids, count);
+            Arrays.sort(ids);
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //  Подсказки "Марка Модель" по префиксу марки или модели, популярные первыми
+    public List<String> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, Integer> found = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, Map<String, Integer>> entry : suggestions.tailMap(normalized, true).entrySet()) {
+                if (!entry.getKey().startsWith(normalized)) {
+                    break;
+                }
+                entry.getValue().forEach((display, count) -> found.merge(display, count, Math::max));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return found.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    // Вызывается под write-lock
+    private void changed(Long carId) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(carId);
+        }
+    }
+
+    // Вызывается под write-lock
+    private void add(Car car) {
+        if (docById.containsKey(car.getId())) {
+            return;
+        }
+        int doc = usedDocs.nextClearBit(0);
+        usedDocs.set(doc);
+        if (doc >= idByDoc.length) {
+            idByDoc = Arrays.copyOf(idByDoc, idByDoc.length * 2);
+            textByDoc = Arrays.copyOf(textByDoc, textByDoc.length * 2);
+            brandByDoc = Arrays.copyOf(brandByDoc, brandByDoc.length * 2);
+            modelByDoc = Arrays.copyOf(modelByDoc, modelByDoc.length * 2);
+        }
+        String text = documentText(car);
+        idByDoc[doc] = car.getId();
+        textByDoc[doc] = text;
+        brandByDoc[doc] = car.getBrand();
+        modelByDoc[doc] = car.getModel();
+        docById.put(car.getId(), doc);
+
+        for (long key : trigrams(text)) {
+            postings.computeIfAbsent(key, k -> new PostingList()).add(doc);
+        }
+        forEachSuggestionKey(car.getBrand(), car.getModel(), (key, display) ->
+                suggestions.computeIfAbsent(key, k -> new HashMap<>()).merge(display, 1, Integer::sum));
+    }
+
+    // Вызывается под write-lock; триграммы и подсказки снимаются по сохранённому состоянию машины
+    private void remove(Long carId) {
+        Integer doc = docById.remove(carId);
+        if (doc == null) {
+            return;
+        }
+        usedDocs.clear(doc);
+        String text = textByDoc[doc];
+        String brand = brandByDoc[doc];
+        String model = modelByDoc[doc];
+        textByDoc[doc] = null;
+        brandByDoc[doc] = null;
+        modelByDoc[doc] = null;
+
+        for (long key : trigrams(text)) {
+            PostingList list = postings.get(key);
+            if (list != null) {
+                list.remove(doc);
+                if (list.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+        forEachSuggestionKey(brand, model, (key, display) -> {
+            Map<String, Integer> displays = suggestions.get(key);
+            if (displays == null) {
+                return;
+            }
+            displays.computeIfPresent(display, (d, count) -> count > 1 ? count - 1 : null);
+            if (displays.isEmpty()) {
+                suggestions.remove(key);
+            }
+        });
+    }
+
+    private void forEachSuggestionKey(String carBrand, String carModel, BiConsumer<String, String> consumer) {
+        String brand = carBrand != null ? carBrand.trim() : "";
+        String model = carModel != null ? carModel.trim() : "";
+        String display = (brand + " " + model).trim();
+        if (display.isEmpty()) {
+            return;
+        }
+        consumer.accept(normalize(display), display);
+        String normalizedModel = normalize(model);
+        if (!normalizedModel.isEmpty()) {
+            consumer.accept(normalizedModel, display);
+        }
+    }
+
+    private String documentText(Car car) {
+        StringBuilder text = new StringBuilder();
+        appendField(text, car.getBrand());
+        appendField(text, car.getModel());
+        if (includeDescription) {
+            appendField(text, car.getDescription());
+        }
+        return text.toString();
+    }
+
+    private static void appendField(StringBuilder text, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (text.length() > 0) {
+            text.append(FIELD_SEPARATOR);
+        }
+        text.append(value.toLowerCase());
+    }
+
+    // Триграммы текста; окна, задевающие границу полей, пропускаются
+    private static long[] trigrams(String text) {
+        if (text.length() < 3) {
+            return new long[0];
+        }
+        long[] keys = new long[text.length() - 2];
+        int count = 0;
+        for (int i = 0; i + 2 < text.length(); i++) {
+            char c0 = text.charAt(i), c1 = text.charAt(i + 1), c2 = text.charAt(i + 2);
+            if (c0 == FIELD_SEPARATOR || c1 == FIELD_SEPARATOR || c2 == FIELD_SEPARATOR) {
+                continue;
+            }
+            keys[count++] = key(c0, c1, c2);
+        }
+        return distinct(keys, count);
+    }
+
+    private static long[] distinct(long[] keys, int count) {
+        Arrays.sort(keys, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || keys[unique - 1] != keys[i]) {
+                keys[unique++] = keys[i];
+            }
+        }
+        return Arrays.copyOf(keys, unique);
+    }
+
+    private static long key(char c0, char c1, char c2) {
+        return ((long) c0 << 32) | ((long) c1 << 16) | c2;
+    }
+
+    // Нижний регистр, всё кроме букв и цифр -> пробел, пробелы схлопываются
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        boolean space = true;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+                space = false;
+            } else if (!space) {
+                sb.append(' ');
+                space = true;
+            }
+        }
+        int length = sb.length();
+        if (length > 0 && sb.charAt(length - 1) == ' ') {
+            sb.setLength(length - 1);
+        }
+        return sb.toString();
+    }
+}
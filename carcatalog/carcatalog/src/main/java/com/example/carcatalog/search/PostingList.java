@@ -0,0 +1,72 @@
+package com.example.carcatalog.search;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Отсортированный список номеров документов для одной триграммы
+final class PostingList {
+
+    private int[] docs = new int[4];
+    private int size;
+
+    void add(int doc) {
+        int i = Arrays.binarySearch(docs, 0, size, doc);
+        if (i >= 0) {
+            return;
+        }
+        i = -i - 1;
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size * 2);
+        }
+        System.arraycopy(docs, i, docs, i + 1, size - i);
+        docs[i] = doc;
+        size++;
+    }
+
+    void remove(int doc) {
+        int i = Arrays.binarySearch(docs, 0, size, doc);
+        if (i < 0) {
+            return;
+        }
+        System.arraycopy(docs, i + 1, docs, i, size - i - 1);
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Пересечение списков: начинаем с самого короткого,
+    // остальные проверяем бинарным поиском
+    static int[] intersect(List<PostingList> lists) {
+        if (lists.isEmpty()) {
+            return new int[0];
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        PostingList smallest = lists.get(0);
+        int[] result = Arrays.copyOf(smallest.docs, smallest.size);
+        int count = result.length;
+        for (int l = 1; l < lists.size() && count > 0; l++) {
+            PostingList other = lists.get(l);
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < count; i++) {
+                int j = Arrays.binarySearch(other.docs, from, other.size, result[i]);
+                if (j >= 0) {
+                    result[kept++] = result[i];
+                    from = j + 1;
+                } else {
+                    from = -j - 1;
+                }
+            }
+            count = kept;
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
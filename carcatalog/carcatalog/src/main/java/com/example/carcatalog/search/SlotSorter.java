@@ -0,0 +1,99 @@
+package com.example.carcatalog.search;
+
+// Сортировка массива слотов индекса без упаковки в Integer.
+// Сортировка слиянием - стабильная, O(n log n); для страницы - отбор первых k кучей, O(n log k).
+final class SlotSorter {
+
+    interface SlotComparator {
+        int compare(int a, int b);
+    }
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private SlotSorter() {}
+
+    static void sort(int[] slots, int length, SlotComparator comparator) {
+        if (length < 2) {
+            return;
+        }
+        int[] buffer = new int[length];
+        mergeSort(slots, buffer, 0, length, comparator);
+    }
+
+    // Первые k слотов по порядку comparator - в начало массива и отсортированы, остальные - как попало.
+    // Порядок должен быть полным (последним ключом id), иначе состав страницы зависел бы от слотов
+    static void sortTop(int[] slots, int length, int k, SlotComparator comparator) {
+        if (k <= 0) {
+            return;
+        }
+        if (k >= length / 2) {
+            sort(slots, length, comparator);
+            return;
+        }
+        // slots[0..k) - max-куча лучших k: вершина - худший из них
+        for (int i = k / 2 - 1; i >= 0; i--) {
+            siftDown(slots, i, k, comparator);
+        }
+        for (int i = k; i < length; i++) {
+            if (comparator.compare(slots[i], slots[0]) < 0) {
+                int worst = slots[0];
+                slots[0] = slots[i];
+                slots[i] = worst;
+                siftDown(slots, 0, k, comparator);
+            }
+        }
+        sort(slots, k, comparator);
+    }
+
+    private static void siftDown(int[] heap, int i, int size, SlotComparator cmp) {
+        int value = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && cmp.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (cmp.compare(heap[child], value) <= 0) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+    }
+
+    private static void mergeSort(int[] a, int[] buffer, int from, int to, SlotComparator cmp) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(a, from, to, cmp);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(a, buffer, from, mid, cmp);
+        mergeSort(a, buffer, mid, to, cmp);
+        if (cmp.compare(a[mid - 1], a[mid]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(a, from, buffer, from, to - from);
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to) {
+            a[k++] = cmp.compare(buffer[j], buffer[i]) < 0 ? buffer[j++] : buffer[i++];
+        }
+        while (i < mid) a[k++] = buffer[i++];
+        while (j < to) a[k++] = buffer[j++];
+    }
+
+    private static void insertionSort(int[] a, int from, int to, SlotComparator cmp) {
+        for (int i = from + 1; i < to; i++) {
+            int value = a[i];
+            int j = i - 1;
+            while (j >= from && cmp.compare(a[j], value) > 0) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = value;
+        }
+    }
+}
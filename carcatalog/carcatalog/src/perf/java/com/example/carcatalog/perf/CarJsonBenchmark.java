@@ -0,0 +1,53 @@
+package com.example.carcatalog.perf;
+
+import com.example.carcatalog.model.Car;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Сериализация списка машин в JSON: страница /search целиком в byte[]
+// и потоковая запись по одной машине, как в CarStreamService
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CarJsonBenchmark {
+
+    @Param({"100", "10000"})
+    int size;
+
+    // Настройки как у ObjectMapper, который создаёт Spring Boot
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private List<Car> cars;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cars = new SyntheticCatalog().cars(size, SyntheticCatalog.DEFAULT_SEED);
+    }
+
+    @Benchmark
+    public byte[] listToBytes() throws IOException {
+        return objectMapper.writeValueAsBytes(cars);
+    }
+
+    @Benchmark
+    public void streamNdjson() throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory()
+                .createGenerator(OutputStream.nullOutputStream(), JsonEncoding.UTF8)) {
+            generator.setRootValueSeparator(null);
+            for (Car car : cars) {
+                generator.writeObject(car);
+                generator.writeRaw('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.carcatalog.perf;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.model.Car;
+import com.example.carcatalog.repository.CarFacets;
+import com.example.carcatalog.repository.CarRepository;
+import com.example.carcatalog.repository.CarSearchCriteria;
+import com.example.carcatalog.search.CarSearchIndex;
+import com.example.carcatalog.search.CarTextIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+// Поиск по индексу в памяти (catalog.search.mode=index): фильтры + сортировка + страница,
+// текстовый поиск, фасеты и список марок (/api/cars/brands) на каталогах разного размера
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CatalogSearchBenchmark {
+
+    static final int PAGE_SIZE = 100;
+
+    @Param({"10000", "100000", "1000000"})
+    int size;
+
+    private CarSearchIndex index;
+    private CarTextIndex textIndex;
+
+    private final CarSearchCriteria brandAndPrice = new CarSearchCriteria();
+    private final CarSearchCriteria yearAndFuel = new CarSearchCriteria();
+    private final CarSearchCriteria everything = new CarSearchCriteria();
+    private final CarSearchCriteria text = new CarSearchCriteria();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        textIndex = new CarTextIndex();
+        index = new CarSearchIndex();
+        ReflectionTestUtils.setField(index, "carTextIndex", textIndex);
+        // Порядок марок, который вернула бы БД (ORDER BY brand)
+        CarRepository carRepository = mock(CarRepository.class, withSettings().stubOnly());
+        when(carRepository.findBrandsInSortOrder())
+                .thenReturn(Arrays.stream(SyntheticCatalog.brands()).sorted().collect(Collectors.toList()));
+        ReflectionTestUtils.setField(index, "carRepository", carRepository);
+        for (Car car : new SyntheticCatalog().cars(size, SyntheticCatalog.DEFAULT_SEED)) {
+            CarChangedEvent event = CarChangedEvent.created(car);
+            textIndex.onCarChanged(event);
+            index.onCarChanged(event);
+        }
+
+        brandAndPrice.setBrand("BMW");
+        brandAndPrice.setMinPrice(10000.0);
+        brandAndPrice.setMaxPrice(40000.0);
+        brandAndPrice.setSortBy("price");
+
+        yearAndFuel.setMinYear(2015);
+        yearAndFuel.setFuelType("Diesel");
+        yearAndFuel.setSortBy("year");
+        yearAndFuel.setSortOrder("desc");
+
+        everything.setSortBy("price");
+
+        text.setSearch("leather");
+        text.setSortBy("price");
+    }
+
+    @Benchmark
+    public CarSearchIndex.Result brandAndPriceByPrice() {
+        return index.search(brandAndPrice, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CarSearchIndex.Result yearAndFuelByYearDesc() {
+        return index.search(yearAndFuel, 0, PAGE_SIZE);
+    }
+
+    // Худший случай: сортировка всего каталога ради одной страницы
+    @Benchmark
+    public CarSearchIndex.Result everythingByPrice() {
+        return index.search(everything, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CarSearchIndex.Result textByPrice() {
+        return index.search(text, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public long[] textIndexFind() {
+        return textIndex.find("camry");
+    }
+
+    @Benchmark
+    public List<String> suggest() {
+        return textIndex.suggest("to", 10);
+    }
+
+    @Benchmark
+    public CarFacets facets() {
+        return index.facets(brandAndPrice, 10000);
+    }
+
+    // То же, что делает CarController.getBrands
+    @Benchmark
+    public List<String> brands() {
+        return index.facets(new CarSearchCriteria(), 10000).getBrands().stream()
+                .map(value -> (String) value.getValue())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.carcatalog.perf;
+
+import com.example.carcatalog.model.Car;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+// Заполняет cars, users и favorites синтетическими данными заданного размера (для нагрузочного теста).
+// Схему создаёт само приложение (ddl-auto=update), поэтому его нужно хотя бы раз запустить на этой БД.
+// Индексы в памяти строятся при старте приложения - после генерации его нужно перезапустить.
+//
+// mvn -Pperf test-compile exec:java@generate-data -Dexec.args="--cars 1000000 --users 100000 --favorites 5000000 --reset"
+//
+// id машин 1..cars, id пользователей 1..users; пользователь 1 - администратор admin@example.com,
+// остальные - user<id>@example.com, у всех пароль LoadDriver.PASSWORD.
+public class DatasetGenerator {
+
+    static final int BATCH_SIZE = 1000;
+    static final int COMMIT_EVERY = 20_000;
+    static final int BCRYPT_STRENGTH = 10;
+
+    public static void main(String[] args) throws SQLException {
+        Map<String, String> options = Options.parse(args);
+        String url = Options.get(options, "url", "jdbc:postgresql://localhost:5432/car_catalog");
+        int cars = Options.getInt(options, "cars", 100_000);
+        int users = Options.getInt(options, "users", 10_000);
+        long favorites = Options.getInt(options, "favorites", 500_000);
+        long seed = Long.parseLong(Options.get(options, "seed", String.valueOf(SyntheticCatalog.DEFAULT_SEED)));
+        boolean reset = options.containsKey("reset");
+
+        boolean postgres = url.startsWith("jdbc:postgresql:");
+        if (postgres && !url.contains("reWriteBatchedInserts")) {
+            // Драйвер склеивает батч в многострочный INSERT - в разы быстрее на больших объёмах
+            url += (url.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true";
+        }
+
+        try (Connection connection = DriverManager.getConnection(url,
+                Options.get(options, "user", "postgres"), Options.get(options, "password", "123"))) {
+            connection.setAutoCommit(false);
+            prepare(connection, postgres, reset);
+
+            long started = System.nanoTime();
+            insertCars(connection, cars, seed);
+            insertUsers(connection, users);
+            long inserted = insertFavorites(connection, users, cars, favorites, seed);
+            System.out.printf("Done in %s: %d cars, %d users, %d favorites%n",
+                    Duration.ofNanos(System.nanoTime() - started).withNanos(0), cars, users, inserted);
+            System.out.println("Restart the application so that in-memory indexes pick up the new data.");
+        }
+    }
+
+    private static void prepare(Connection connection, boolean postgres, boolean reset) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            long existing;
+            try (ResultSet rs = statement.executeQuery(
+                    "SELECT (SELECT COUNT(*) FROM cars) + (SELECT COUNT(*) FROM users)")) {
+                rs.next();
+                existing = rs.getLong(1);
+            }
+            if (existing > 0 && !reset) {
+                throw new IllegalStateException("Tables cars/users are not empty; pass --reset to delete existing data");
+            }
+            if (postgres) {
+                statement.execute("TRUNCATE TABLE favorites, users, cars RESTART IDENTITY");
+            } else {
+                statement.execute("DELETE FROM favorites");
+                statement.execute("DELETE FROM users");
+                statement.execute("DELETE FROM cars");
+            }
+        }
+        connection.commit();
+    }
+
+    private static void insertCars(Connection connection, int count, long seed) throws SQLException {
+        SyntheticCatalog catalog = new SyntheticCatalog();
+        SplittableRandom random = new SplittableRandom(seed);
+        Progress progress = new Progress("cars", count);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO cars (id, brand, model, year, price, description, color, mileage, fuel_type, transmission) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (long id = 1; id <= count; id++) {
+                Car car = catalog.car(id, random);
+                insert.setLong(1, id);
+                insert.setString(2, car.getBrand());
+                insert.setString(3, car.getModel());
+                insert.setInt(4, car.getYear());
+                insert.setDouble(5, car.getPrice());
+                insert.setString(6, car.getDescription());
+                insert.setString(7, car.getColor());
+                insert.setObject(8, car.getMileage(), Types.INTEGER);
+                insert.setString(9, car.getFuelType());
+                insert.setString(10, car.getTransmission());
+                insert.addBatch();
+                flush(connection, insert, id, progress);
+            }
+            flush(connection, insert, -1, progress);
+        }
+        // Как CarIdSequenceInitializer: следующий блок id из cars_seq - за последней машиной
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER SEQUENCE " + Car.ID_SEQUENCE
+                    + " RESTART WITH " + (count + Car.ID_ALLOCATION_SIZE + 1));
+        }
+        connection.commit();
+    }
+
+    private static void insertUsers(Connection connection, int count) throws SQLException {
+        // Один хеш на всех: вход каждого пользователя стоит столько же, сколько в реальности,
+        // а генерация не тратит часы на bcrypt
+        String hash = new BCryptPasswordEncoder(BCRYPT_STRENGTH).encode(LoadDriver.PASSWORD);
+        Progress progress = new Progress("users", count);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO users (id, username, email, password, is_admin) VALUES (?, ?, ?, ?, ?)")) {
+            for (long id = 1; id <= count; id++) {
+                insert.setLong(1, id);
+                insert.setString(2, LoadDriver.username(id));
+                insert.setString(3, LoadDriver.email(id));
+                insert.setString(4, hash);
+                insert.setBoolean(5, id == LoadDriver.ADMIN_ID);
+                insert.addBatch();
+                flush(connection, insert, id, progress);
+            }
+            flush(connection, insert, -1, progress);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE users ALTER COLUMN id RESTART WITH " + (count + 1));
+        }
+        connection.commit();
+    }
+
+    // Число избранных у пользователя - экспоненциальное со средним favorites/users;
+    // популярные машины (меньшие id) попадают в избранное чаще
+    private static long insertFavorites(Connection connection, int users, int cars, long target, long seed)
+            throws SQLException {
+        SplittableRandom random = new SplittableRandom(seed + 1);
+        double mean = (double) target / users;
+        int maxPerUser = Math.min(cars, (int) Math.max(1, mean * 20));
+        Instant now = Instant.now();
+        Progress progress = new Progress("favorites", target);
+        long inserted = 0;
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO favorites (user_id, car_id, created_at) VALUES (?, ?, ?)")) {
+            Set<Long> chosen = new HashSet<>();
+            for (long userId = 1; userId <= users && inserted < target; userId++) {
+                int count = (int) Math.min(maxPerUser, Math.round(-Math.log(1 - random.nextDouble()) * mean));
+                count = (int) Math.min(count, target - inserted);
+                chosen.clear();
+                while (chosen.size() < count) {
+                    double u = random.nextDouble();
+                    chosen.add(1 + (long) (cars * u * u));
+                }
+                for (long carId : chosen) {
+                    insert.setLong(1, userId);
+                    insert.setLong(2, carId);
+                    insert.setTimestamp(3, Timestamp.from(now.minusSeconds(random.nextLong(365L * 24 * 3600))));
+                    insert.addBatch();
+                    flush(connection, insert, ++inserted, progress);
+                }
+            }
+            flush(connection, insert, -1, progress);
+        }
+        connection.commit();
+        return inserted;
+    }
+
+    // row = -1 - дописать остаток
+    private static void flush(Connection connection, PreparedStatement insert, long row, Progress progress)
+            throws SQLException {
+        if (row >= 0 && row % BATCH_SIZE != 0) {
+            return;
+        }
+        insert.executeBatch();
+        if (row < 0 || row % COMMIT_EVERY == 0) {
+            connection.commit();
+            progress.report(row);
+        }
+    }
+
+    private static class Progress {
+        private final String table;
+        private final long total;
+        private final long started = System.nanoTime();
+
+        Progress(String table, long total) {
+            this.table = table;
+            this.total = total;
+        }
+
+        void report(long row) {
+            double seconds = (System.nanoTime() - started) / 1e9;
+            if (row < 0) {
+                System.out.printf("%s: done in %.1f s%n", table, seconds);
+            } else {
+                System.out.printf("%s: %d / %d (%.0f rows/s)%n", table, row, total, row / Math.max(seconds, 1e-3));
+            }
+        }
+    }
+}
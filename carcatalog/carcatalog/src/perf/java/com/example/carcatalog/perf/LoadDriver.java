@@ -0,0 +1,326 @@
+package com.example.carcatalog.perf;
+
+import com.example.carcatalog.model.Car;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Нагрузочный тест запущенного приложения на данных DatasetGenerator.
+// Каждый поток в цикле выбирает операцию по весам из --mix и пишет задержку в гистограмму
+// своей операции; итог - пропускная способность и p50/p95/p99 по каждой операции.
+//
+// mvn -Pperf test-compile exec:java@load-test -Dexec.args="--cars 1000000 --users 100000 --duration 120 --concurrency 32"
+//
+// По умолчанию нагрузка замкнутая (следующий запрос сразу после ответа). С --rate N запросы
+// идут по расписанию N в секунду, а задержка считается от запланированного времени отправки,
+// чтобы медленные ответы не "прятали" очередь (coordinated omission).
+public class LoadDriver {
+
+    public static final String PASSWORD = "load-test-password";
+    public static final long ADMIN_ID = 1;
+    static final String DEFAULT_MIX = "search=50,details=25,favorites=12,login=8,write=5";
+    static final int SEARCH_PAGE_SIZE = 20;
+
+    public static String username(long id) {
+        return id == ADMIN_ID ? "admin" : "user" + id;
+    }
+
+    public static String email(long id) {
+        return username(id) + "@example.com";
+    }
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SyntheticCatalog catalog = new SyntheticCatalog();
+    private final String[] brands = SyntheticCatalog.brands();
+    private final String[] fuelTypes = SyntheticCatalog.fuelTypes();
+
+    private final String baseUrl;
+    private final int cars;
+    private final int users;
+    private final Map<String, Integer> mix;
+    private final Map<String, Stats> stats = new LinkedHashMap<>();
+
+    private volatile boolean recording;
+    private volatile boolean running = true;
+
+    LoadDriver(String baseUrl, int cars, int users, Map<String, Integer> mix) {
+        this.baseUrl = baseUrl;
+        this.cars = cars;
+        this.users = users;
+        this.mix = mix;
+        for (String operation : mix.keySet()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = Options.parse(args);
+        LoadDriver driver = new LoadDriver(
+                Options.get(options, "base-url", "http://localhost:8080"),
+                Options.getInt(options, "cars", 100_000),
+                Options.getInt(options, "users", 10_000),
+                parseMix(Options.get(options, "mix", DEFAULT_MIX)));
+        driver.run(
+                Options.getInt(options, "concurrency", 16),
+                Options.getInt(options, "warmup", 10),
+                Options.getInt(options, "duration", 60),
+                Options.getInt(options, "rate", 0),
+                Long.parseLong(Options.get(options, "seed", String.valueOf(SyntheticCatalog.DEFAULT_SEED))));
+    }
+
+    static Map<String, Integer> parseMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2 || !List.of("search", "details", "similar", "favorites", "login", "write").contains(pair[0])) {
+                throw new IllegalArgumentException("Bad --mix entry: " + part);
+            }
+            int weight = Integer.parseInt(pair[1]);
+            if (weight > 0) {
+                mix.put(pair[0], weight);
+            }
+        }
+        return mix;
+    }
+
+    void run(int concurrency, int warmupSeconds, int durationSeconds, int rate, long seed) throws Exception {
+        String adminToken = login(ADMIN_ID);
+        if (adminToken == null && mix.containsKey("write")) {
+            throw new IllegalStateException("Admin login failed: was the database filled by DatasetGenerator?");
+        }
+
+        // Интервал между запросами одного потока при заданной общей частоте
+        long intervalNanos = rate > 0 ? TimeUnit.SECONDS.toNanos(concurrency) / rate : 0;
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        List<String> operations = new ArrayList<>(mix.keySet());
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        long start = System.nanoTime();
+        for (int w = 0; w < concurrency; w++) {
+            SplittableRandom random = new SplittableRandom(seed + w);
+            long offset = intervalNanos * w / concurrency;
+            workers.execute(() -> work(random, operations, totalWeight, adminToken, start + offset, intervalNanos));
+        }
+
+        System.out.printf("Warming up for %d s with %d workers...%n", warmupSeconds, concurrency);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+        stats.values().forEach(Stats::reset);
+        recording = true;
+        long measureStart = System.nanoTime();
+        System.out.printf("Measuring for %d s...%n", durationSeconds);
+        Thread.sleep(TimeUnit.SECONDS.toMillis(durationSeconds));
+        recording = false;
+        double seconds = (System.nanoTime() - measureStart) / 1e9;
+        running = false;
+        workers.shutdown();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+
+        report(seconds);
+    }
+
+    private void work(SplittableRandom random, List<String> operations, int totalWeight,
+                      String adminToken, long firstStart, long intervalNanos) {
+        // Каждый поток - один залогиненный пользователь
+        long userId = 1 + random.nextInt(users);
+        String token = login(userId);
+        long intended = firstStart;
+        while (running) {
+            if (intervalNanos > 0) {
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    sleepNanos(wait);
+                }
+            }
+            String operation = pickOperation(random, operations, totalWeight);
+            long sendStart = intervalNanos > 0 ? intended : System.nanoTime();
+            boolean ok;
+            try {
+                ok = execute(operation, random, userId, token, adminToken);
+            } catch (IOException e) {
+                ok = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (recording) {
+                stats.get(operation).record(System.nanoTime() - sendStart, ok);
+            }
+            intended += intervalNanos;
+        }
+    }
+
+    private boolean execute(String operation, SplittableRandom random, long userId, String token, String adminToken)
+            throws IOException, InterruptedException {
+        switch (operation) {
+            case "search": {
+                StringBuilder query = new StringBuilder("/api/cars/search?size=" + SEARCH_PAGE_SIZE);
+                if (random.nextInt(3) > 0) {
+                    query.append("&brand=").append(brands[random.nextInt(brands.length)].replace(" ", "%20"));
+                }
+                if (random.nextBoolean()) {
+                    query.append("&fuelType=").append(fuelTypes[random.nextInt(fuelTypes.length)]);
+                }
+                if (random.nextBoolean()) {
+                    int from = 1000 * random.nextInt(60);
+                    query.append("&minPrice=").append(from).append("&maxPrice=").append(from + 20000);
+                }
+                if (random.nextInt(4) == 0) {
+                    query.append("&minYear=").append(SyntheticCatalog.NEWEST_YEAR - random.nextInt(15));
+                }
+                query.append("&sortBy=").append(random.nextBoolean() ? "price" : "year")
+                        .append("&sortOrder=").append(random.nextBoolean() ? "asc" : "desc")
+                        .append("&page=").append(random.nextInt(5));
+                return send(get(query.toString(), null));
+            }
+            case "details":
+                return send(get("/api/cars/" + carId(random), null));
+            case "similar":
+                return send(get("/api/cars/" + carId(random) + "/similar?limit=10", null));
+            case "favorites": {
+                // Статус избранного для страницы результатов поиска
+                StringJoiner carIds = new StringJoiner(",");
+                for (int i = 0; i < SEARCH_PAGE_SIZE; i++) {
+                    carIds.add(String.valueOf(carId(random)));
+                }
+                return send(get("/api/favorites/status?userId=" + userId + "&carIds=" + carIds, token));
+            }
+            case "login":
+                return login(1 + random.nextInt(users)) != null;
+            case "write": {
+                long id = carId(random);
+                Car car = catalog.car(id, random);
+                return send(request("/api/cars/" + id, adminToken)
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(car)))
+                        .build());
+            }
+            default:
+                throw new IllegalArgumentException(operation);
+        }
+    }
+
+    // Популярные машины (меньшие id) открывают чаще - как и в избранном DatasetGenerator
+    private long carId(SplittableRandom random) {
+        double u = random.nextDouble();
+        return 1 + (long) (cars * u * u);
+    }
+
+    private String login(long userId) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(Map.of("email", email(userId), "password", PASSWORD));
+            HttpResponse<byte[]> response = client.send(request("/api/auth/login", null)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                    .build(), HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            JsonNode json = objectMapper.readTree(response.body());
+            return json.path("token").asText(null);
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private HttpRequest get(String path, String token) {
+        return request(path, token).GET().build();
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    // Тело читается целиком: в задержку входит вся передача ответа
+    private boolean send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        return response.statusCode() < 400;
+    }
+
+    private String pickOperation(SplittableRandom random, List<String> operations, int totalWeight) {
+        int r = random.nextInt(totalWeight);
+        for (String operation : operations) {
+            r -= mix.get(operation);
+            if (r < 0) {
+                return operation;
+            }
+        }
+        return operations.get(operations.size() - 1);
+    }
+
+    private static void sleepNanos(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void report(double seconds) {
+        System.out.println();
+        System.out.printf("%-10s %10s %8s %10s %10s %10s %10s %10s%n",
+                "operation", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Stats s = entry.getValue();
+            printRow(entry.getKey(), s.latencies, s.errors.sum(), seconds);
+            total.add(s.latencies);
+            totalErrors += s.errors.sum();
+        }
+        printRow("total", total, totalErrors, seconds);
+    }
+
+    private static void printRow(String name, Histogram h, long errors, double seconds) {
+        System.out.printf("%-10s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                name, h.getTotalCount(), errors, h.getTotalCount() / seconds,
+                h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(95) / 1000.0,
+                h.getValueAtPercentile(99) / 1000.0, h.getMaxValue() / 1000.0);
+    }
+
+    // Задержки в микросекундах; ошибки (HTTP 4xx/5xx, сеть) тоже попадают в гистограмму
+    private static class Stats {
+        final ConcurrentHistogram latencies = new ConcurrentHistogram(3);
+        final LongAdder errors = new LongAdder();
+
+        void record(long nanos, boolean ok) {
+            latencies.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos)));
+            if (!ok) {
+                errors.increment();
+            }
+        }
+
+        void reset() {
+            latencies.reset();
+            errors.reset();
+        }
+    }
+}
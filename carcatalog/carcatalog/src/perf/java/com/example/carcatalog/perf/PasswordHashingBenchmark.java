@@ -0,0 +1,45 @@
+package com.example.carcatalog.perf;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+// Цена хеширования пароля (регистрация, смена пароля) и проверки (вход)
+// для bcrypt с разной стоимостью и argon2 (auth.password.*)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+public class PasswordHashingBenchmark {
+
+    static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"bcrypt-4", "bcrypt-8", "bcrypt-10", "bcrypt-12", "argon2"})
+    String encoder;
+
+    private PasswordEncoder passwordEncoder;
+    private String hash;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        passwordEncoder = encoder.equals("argon2")
+                ? Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8()
+                : new BCryptPasswordEncoder(Integer.parseInt(encoder.substring("bcrypt-".length())));
+        hash = passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public String encode() {
+        return passwordEncoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordEncoder.matches(PASSWORD, hash);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.carcatalog.perf;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.model.Car;
+import com.example.carcatalog.search.CarSimilarityIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Похожие машины (/api/cars/{id}/similar) из CarSimilarityIndex: поиск по дереву
+// и поиск, когда часть каталога изменилась после построения дерева
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SimilarCarsBenchmark {
+
+    static final int LIMIT = 10;
+    // Изменений после построения дерева - чуть меньше порога перестройки
+    static final int RECENT_CHANGES = 1000;
+
+    @Param({"10000", "100000", "1000000"})
+    int size;
+
+    private CarSimilarityIndex index;
+    private CarSimilarityIndex changedIndex;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = build();
+        changedIndex = build();
+        SyntheticCatalog catalog = new SyntheticCatalog();
+        SplittableRandom changes = new SplittableRandom(SyntheticCatalog.DEFAULT_SEED + 1);
+        for (int i = 0; i < RECENT_CHANGES; i++) {
+            long id = 1 + changes.nextInt(size);
+            Car car = catalog.car(id, changes);
+            changedIndex.onCarChanged(CarChangedEvent.updated(car, car));
+        }
+        random = new SplittableRandom(SyntheticCatalog.DEFAULT_SEED);
+    }
+
+    private CarSimilarityIndex build() {
+        CarSimilarityIndex similarityIndex = new CarSimilarityIndex();
+        for (Car car : new SyntheticCatalog().cars(size, SyntheticCatalog.DEFAULT_SEED)) {
+            similarityIndex.onCarChanged(CarChangedEvent.created(car));
+        }
+        ReflectionTestUtils.invokeMethod(similarityIndex, "rebuildTree");
+        return similarityIndex;
+    }
+
+    @Benchmark
+    public long[] similar() {
+        return index.similar(1L + random.nextInt(size), LIMIT);
+    }
+
+    @Benchmark
+    public long[] similarWithRecentChanges() {
+        return changedIndex.similar(1L + random.nextInt(size), LIMIT);
+    }
+}
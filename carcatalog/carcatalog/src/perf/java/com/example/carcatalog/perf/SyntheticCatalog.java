@@ -0,0 +1,135 @@
+package com.example.carcatalog.perf;
+
+import com.example.carcatalog.model.Car;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Воспроизводимый синтетический каталог: при одном seed всегда одни и те же машины.
+// Распределения примерно как на реальных площадках: популярность марок убывает
+// по закону Ципфа, больше свежих машин, цена зависит от класса марки, возраста и пробега.
+public class SyntheticCatalog {
+
+    public static final long DEFAULT_SEED = 42;
+
+    // Марка, базовая цена новой машины, модели
+    private static final Object[][] BRANDS = {
+            {"Toyota", 35000, new String[]{"Camry", "Corolla", "RAV4", "Land Cruiser", "Prius"}},
+            {"Volkswagen", 30000, new String[]{"Golf", "Passat", "Tiguan", "Polo", "Touareg"}},
+            {"Hyundai", 25000, new String[]{"Solaris", "Tucson", "Santa Fe", "Elantra", "Creta"}},
+            {"Kia", 24000, new String[]{"Rio", "Sportage", "Ceed", "Sorento", "K5"}},
+            {"BMW", 60000, new String[]{"3 Series", "5 Series", "X3", "X5", "i4"}},
+            {"Mercedes-Benz", 65000, new String[]{"C-Class", "E-Class", "GLC", "GLE", "S-Class"}},
+            {"Skoda", 26000, new String[]{"Octavia", "Rapid", "Kodiaq", "Superb", "Karoq"}},
+            {"Audi", 58000, new String[]{"A4", "A6", "Q5", "Q7", "e-tron"}},
+            {"Ford", 28000, new String[]{"Focus", "Mondeo", "Kuga", "Explorer", "Mustang"}},
+            {"Nissan", 27000, new String[]{"Qashqai", "X-Trail", "Almera", "Leaf", "Juke"}},
+            {"Renault", 20000, new String[]{"Logan", "Duster", "Sandero", "Kaptur", "Arkana"}},
+            {"Lada", 12000, new String[]{"Vesta", "Granta", "Niva", "XRAY", "Largus"}},
+            {"Mazda", 30000, new String[]{"Mazda3", "Mazda6", "CX-5", "CX-30", "MX-5"}},
+            {"Honda", 31000, new String[]{"Civic", "Accord", "CR-V", "Pilot", "Jazz"}},
+            {"Lexus", 70000, new String[]{"RX", "NX", "ES", "LX", "IS"}},
+            {"Tesla", 55000, new String[]{"Model 3", "Model Y", "Model S", "Model X"}},
+            {"Porsche", 110000, new String[]{"Cayenne", "Macan", "911", "Panamera", "Taycan"}},
+    };
+    private static final String[] COLORS = {"Black", "White", "Silver", "Gray", "Blue", "Red", "Green", "Brown"};
+    private static final String[] FUEL_TYPES = {"Petrol", "Diesel", "Hybrid", "Electric"};
+    private static final double[] FUEL_WEIGHTS = {0.62, 0.25, 0.08, 0.05};
+    private static final String[] TRANSMISSIONS = {"Automatic", "Manual"};
+    private static final String[] WORDS = {
+            "one owner", "full service history", "garage kept", "new tires", "leather seats",
+            "panoramic roof", "navigation", "heated seats", "parking sensors", "rear camera",
+            "no accidents", "winter package", "sport package", "tow hitch", "keyless entry"
+    };
+    public static final int NEWEST_YEAR = 2025;
+    public static final int OLDEST_YEAR = 1995;
+
+    private final double[] brandWeights;
+
+    public SyntheticCatalog() {
+        brandWeights = new double[BRANDS.length];
+        for (int i = 0; i < BRANDS.length; i++) {
+            brandWeights[i] = 1.0 / Math.pow(i + 1, 0.9);
+        }
+    }
+
+    public static String[] brands() {
+        String[] names = new String[BRANDS.length];
+        for (int i = 0; i < BRANDS.length; i++) {
+            names[i] = (String) BRANDS[i][0];
+        }
+        return names;
+    }
+
+    public static String[] fuelTypes() {
+        return FUEL_TYPES.clone();
+    }
+
+    // Машины с id 1..count
+    public List<Car> cars(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Car> cars = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            cars.add(car((long) i, random));
+        }
+        return cars;
+    }
+
+    // Одна машина; id задаёт вызывающий (null - для новой записи)
+    public Car car(Long id, SplittableRandom random) {
+        int brandIndex = pick(brandWeights, random);
+        Object[] brand = BRANDS[brandIndex];
+        String[] models = (String[]) brand[2];
+
+        // Возраст: экспоненциальное распределение, в среднем 6 лет
+        int age = Math.min(NEWEST_YEAR - OLDEST_YEAR, (int) (-Math.log(1 - random.nextDouble()) * 6));
+        int year = NEWEST_YEAR - age;
+        int mileage = (int) Math.max(0, age * 15000 * (0.5 + random.nextDouble()) + random.nextInt(5000));
+
+        String fuelType = "Tesla".equals(brand[0]) ? "Electric" : FUEL_TYPES[pick(FUEL_WEIGHTS, random)];
+        String transmission = "Electric".equals(fuelType) || random.nextDouble() < 0.7
+                ? TRANSMISSIONS[0] : TRANSMISSIONS[1];
+
+        // Минус ~12% в год и за пробег, разброс по состоянию и комплектации
+        double price = (int) brand[1] * Math.pow(0.88, age) * (1 - Math.min(0.3, mileage / 1_000_000.0))
+                * Math.exp(random.nextDouble(-0.25, 0.25));
+        price = Math.max(500, Math.round(price / 100) * 100);
+
+        Car car = new Car((String) brand[0], models[random.nextInt(models.length)], year, price);
+        car.setId(id);
+        car.setColor(COLORS[random.nextInt(COLORS.length)]);
+        car.setMileage(mileage);
+        car.setFuelType(fuelType);
+        car.setTransmission(transmission);
+        car.setDescription(description(random));
+        return car;
+    }
+
+    private static String description(SplittableRandom random) {
+        StringBuilder description = new StringBuilder();
+        int words = 2 + random.nextInt(4);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                description.append(", ");
+            }
+            description.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return description.toString();
+    }
+
+    static int pick(double[] weights, SplittableRandom random) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double r = random.nextDouble() * total;
+        for (int i = 0; i < weights.length - 1; i++) {
+            r -= weights[i];
+            if (r < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+}
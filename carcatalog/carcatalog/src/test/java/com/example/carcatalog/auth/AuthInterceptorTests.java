@@ -0,0 +1,56 @@
+package com.example.carcatalog.auth;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthInterceptorTests {
+
+	private final AuthTokenService tokens = new AuthTokenService("test-secret", Duration.ofHours(1));
+
+	private final AuthInterceptor interceptor = new AuthInterceptor();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(interceptor, "authTokenService", tokens);
+		ReflectionTestUtils.setField(interceptor, "required", true);
+	}
+
+	@Test
+	void requiresTokenForCarWritesAndFavorites() throws Exception {
+		assertThat(status("DELETE", "/api/cars/5", null)).isEqualTo(401);
+		assertThat(status("POST", "/api/cars", null)).isEqualTo(401);
+		assertThat(status("GET", "/api/favorites", null)).isEqualTo(401);
+		assertThat(status("GET", "/api/cars/5", null)).isEqualTo(200);
+		assertThat(status("DELETE", "/api/cars/5", tokens.issue(1L, false))).isEqualTo(403);
+		assertThat(status("DELETE", "/api/cars/5", tokens.issue(1L, true))).isEqualTo(200);
+	}
+
+	@Test
+	void checksDecodedPathWithoutPathParameters() throws Exception {
+		assertThat(status("DELETE", "/api/%63ars/5", null)).isEqualTo(401);
+		assertThat(status("PUT", "/api;x=1/cars/5", null)).isEqualTo(401);
+		assertThat(status("POST", "/api/cars;jsessionid=1", tokens.issue(1L, false))).isEqualTo(403);
+		assertThat(status("GET", "/api/%66avorites", null)).isEqualTo(401);
+	}
+
+	@Test
+	void rejectsInvalidTokenEverywhere() throws Exception {
+		assertThat(status("GET", "/api/cars/5", "garbage")).isEqualTo(401);
+	}
+
+	private int status(String method, String uri, String token) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+		if (token != null) {
+			request.addHeader("Authorization", "Bearer " + token);
+		}
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		return interceptor.preHandle(request, response, null) ? 200 : response.getStatus();
+	}
+}
@@ -0,0 +1,56 @@
+package com.example.carcatalog.auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthTokenServiceTests {
+
+	private final AuthTokenService service = new AuthTokenService("test-secret", Duration.ofHours(1));
+
+	@Test
+	void verifiesIssuedToken() {
+		AuthToken token = service.verify(service.issue(42L, true));
+
+		assertThat(token).isNotNull();
+		assertThat(token.getUserId()).isEqualTo(42L);
+		assertThat(token.isAdmin()).isTrue();
+		assertThat(token.getExpiresAt()).isGreaterThan(System.currentTimeMillis());
+	}
+
+	@Test
+	void rejectsTamperedAndForeignTokens() {
+		String token = service.issue(42L, false);
+		String payload = token.substring(0, token.indexOf('.'));
+		String signature = token.substring(token.indexOf('.'));
+		String otherPayload = new AuthTokenService("test-secret", Duration.ofHours(1)).issue(43L, true);
+
+		assertThat(service.verify(otherPayload.substring(0, otherPayload.indexOf('.')) + signature)).isNull();
+		assertThat(service.verify(payload + ".AAAA")).isNull();
+		assertThat(service.verify(new AuthTokenService("other-secret", Duration.ofHours(1)).issue(42L, false))).isNull();
+		assertThat(service.verify("garbage")).isNull();
+		assertThat(service.verify("!!!.???")).isNull();
+	}
+
+	@Test
+	void rejectsExpiredToken() {
+		AuthTokenService expired = new AuthTokenService("test-secret", Duration.ofMillis(-1));
+
+		assertThat(expired.verify(expired.issue(42L, false))).isNull();
+	}
+
+	@Test
+	void revokesTokensIssuedBeforePasswordChange() throws InterruptedException {
+		String old = service.issue(42L, false);
+		String otherUser = service.issue(43L, false);
+		Thread.sleep(2);
+		service.revokeAll(42L);
+		Thread.sleep(2);
+
+		assertThat(service.verify(old)).isNull();
+		assertThat(service.verify(otherUser)).isNotNull();
+		assertThat(service.verify(service.issue(42L, false))).isNotNull();
+	}
+}
@@ -0,0 +1,75 @@
+package com.example.carcatalog.auth;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingServiceTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private PasswordHashingService service = new PasswordHashingService(registry, "bcrypt", 5, 1, 1);
+
+	@AfterEach
+	void tearDown() {
+		service.shutdown();
+	}
+
+	@Test
+	void encodesAndMatchesOnHashingPool() {
+		String hash = service.encode("secret");
+
+		assertThat(service.matches("secret", hash)).isTrue();
+		assertThat(service.matches("wrong", hash)).isFalse();
+		assertThat(service.matches("secret", null)).isFalse();
+		assertThat(registry.get("auth.password.hash").tag("operation", "matches").timer().count()).isEqualTo(2);
+	}
+
+	@Test
+	void detectsHashesThatNeedUpgrade() {
+		assertThat(service.needsRehash(service.encode("secret"))).isFalse();
+		assertThat(service.needsRehash(new BCryptPasswordEncoder(4).encode("secret"))).isTrue();
+
+		service.shutdown();
+		service = new PasswordHashingService(new SimpleMeterRegistry(), "argon2", 5, 1, 1);
+		String bcryptHash = new BCryptPasswordEncoder(5).encode("secret");
+
+		assertThat(service.matches("secret", bcryptHash)).isTrue();
+		assertThat(service.needsRehash(bcryptHash)).isTrue();
+		assertThat(service.needsRehash(service.encode("secret"))).isFalse();
+	}
+
+	@Test
+	void rejectsWhenQueueIsFull() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		service.rehashAsync("busy", hash -> {
+			started.countDown();
+			awaitQuietly(release);
+		});
+		started.await();
+		service.rehashAsync("queued", hash -> {});
+
+		try {
+			assertThatThrownBy(() -> service.encode("secret")).isInstanceOf(HashingRejectedException.class);
+			assertThat(registry.get("auth.password.rejected").counter().count()).isEqualTo(1);
+			assertThat(registry.get("auth.password.queue").gauge().value()).isEqualTo(1);
+		} finally {
+			release.countDown();
+		}
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
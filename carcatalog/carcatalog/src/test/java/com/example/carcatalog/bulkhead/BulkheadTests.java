@@ -0,0 +1,125 @@
+package com.example.carcatalog.bulkhead;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class BulkheadTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void classifiesRequestsByWorkload() {
+		assertThat(Workload.of("GET", "/api/cars/search")).isEqualTo(Workload.CATALOG);
+		assertThat(Workload.of("GET", "/api/images/abc-thumb.jpg")).isEqualTo(Workload.CATALOG);
+		assertThat(Workload.of("PUT", "/api/cars/1")).isEqualTo(Workload.ADMIN);
+		assertThat(Workload.of("POST", "/api/cars/import")).isEqualTo(Workload.ADMIN);
+		assertThat(Workload.of("POST", "/api/favorites/sync")).isEqualTo(Workload.FAVORITES);
+		assertThat(Workload.of("POST", "/api/auth/login")).isEqualTo(Workload.AUTH);
+		assertThat(Workload.of("GET", "/actuator/health")).isNull();
+		assertThat(Workload.of("GET", "/api/cars/changes/stream")).isNull();
+		assertThat(Workload.of("GET", "/api/cars/changes")).isEqualTo(Workload.CATALOG);
+	}
+
+	@Test
+	void classifiesByDecodedPath() {
+		assertThat(Workload.of(new MockHttpServletRequest("POST", "/api/%63ars"))).isEqualTo(Workload.ADMIN);
+		assertThat(Workload.of(new MockHttpServletRequest("DELETE", "/api;x=1/cars/5"))).isEqualTo(Workload.ADMIN);
+		assertThat(Workload.of(new MockHttpServletRequest("POST", "/api/%61uth/login"))).isEqualTo(Workload.AUTH);
+		assertThat(Workload.of(new MockHttpServletRequest("GET", "/api/cars/changes/%73tream"))).isNull();
+		assertThat(Workload.of(new MockHttpServletRequest("GET", "/api/cars/5"))).isEqualTo(Workload.CATALOG);
+	}
+
+	@Test
+	void rejectsWhenQueueIsFullAndCountsRejection() {
+		Bulkhead bulkhead = new Bulkhead(Workload.ADMIN, 1, 0, Duration.ofMillis(10), 1, 5, meterRegistry);
+		bulkhead.acquire();
+
+		assertThatThrownBy(bulkhead::acquire)
+				.isInstanceOfSatisfying(BulkheadRejectedException.class,
+						e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(5));
+		assertThat(meterRegistry.get("catalog.bulkhead.rejected").tag("reason", "queue-full").counter().count())
+				.isEqualTo(1);
+
+		bulkhead.release();
+		bulkhead.acquire();
+		bulkhead.release();
+	}
+
+	@Test
+	void waitsForConnectionBudgetThenRejects() {
+		Bulkhead bulkhead = new Bulkhead(Workload.CATALOG, 10, 10, Duration.ofMillis(20), 1, 1, meterRegistry);
+		bulkhead.acquireConnection();
+
+		assertThatThrownBy(bulkhead::acquireConnection).isInstanceOf(BulkheadRejectedException.class);
+
+		bulkhead.releaseConnection();
+		bulkhead.acquireConnection();
+		assertThat(meterRegistry.get("catalog.bulkhead.connections").tag("bulkhead", "catalog").gauge().value())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void streamingBodyHoldsConnectionPermitOfItsRequest() throws Exception {
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty("catalog.bulkhead.catalog.db-connections", "1")
+				.withProperty("catalog.bulkhead.catalog.max-wait", "20ms");
+		environment.setConversionService(new ApplicationConversionService());
+		BulkheadRegistry registry = new BulkheadRegistry(environment, meterRegistry);
+		BulkheadInterceptor interceptor = new BulkheadInterceptor();
+		ReflectionTestUtils.setField(interceptor, "bulkheadRegistry", registry);
+		BulkheadDataSource dataSource = new BulkheadDataSource(mock(DataSource.class));
+		Bulkhead catalog = registry.get(Workload.CATALOG);
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cars/export");
+		request.setAsyncSupported(true);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		interceptor.preHandle(request, response, null);
+		WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+		asyncManager.setAsyncWebRequest(new StandardServletAsyncWebRequest(request, response));
+		asyncManager.setTaskExecutor(new SimpleAsyncTaskExecutor());
+		asyncManager.registerCallableInterceptor("bulkhead", interceptor);
+
+		CompletableFuture<Throwable> secondConnection = new CompletableFuture<>();
+		asyncManager.startCallableProcessing(() -> {
+			try (Connection cursor = dataSource.getConnection()) {
+				// Курсор потока записи занял единственное разрешение запроса
+				secondConnection.complete(catchThrowable(catalog::acquireConnection));
+			}
+			return null;
+		});
+		interceptor.afterConcurrentHandlingStarted(request, response, null);
+
+		assertThat(secondConnection.get(5, TimeUnit.SECONDS)).isInstanceOf(BulkheadRejectedException.class);
+		interceptor.afterCompletion(request, response, null, null);
+		catalog.acquireConnection();
+		catalog.releaseConnection();
+	}
+
+	private static Throwable catchThrowable(Runnable action) {
+		try {
+			action.run();
+			return null;
+		} catch (RuntimeException e) {
+			return e;
+		}
+	}
+}
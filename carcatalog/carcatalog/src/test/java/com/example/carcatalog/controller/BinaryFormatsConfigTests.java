@@ -0,0 +1,21 @@
+package com.example.carcatalog.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BinaryFormatsConfigTests {
+
+	@Test
+	void picksBinaryFormatOnlyWhenPreferred() {
+		assertThat(BinaryFormatsConfig.binaryFormat(null)).isNull();
+		assertThat(BinaryFormatsConfig.binaryFormat("*/*")).isNull();
+		assertThat(BinaryFormatsConfig.binaryFormat("application/json, application/cbor")).isNull();
+		assertThat(BinaryFormatsConfig.binaryFormat("application/cbor")).isEqualTo("cbor");
+		assertThat(BinaryFormatsConfig.binaryFormat("application/cbor, */*")).isEqualTo("cbor");
+		assertThat(BinaryFormatsConfig.binaryFormat("application/json;q=0.5, application/x-jackson-smile"))
+				.isEqualTo("smile");
+		assertThat(BinaryFormatsConfig.binaryFormat("application/cbor;q=0, application/json")).isNull();
+		assertThat(BinaryFormatsConfig.binaryFormat("not a type")).isNull();
+	}
+}
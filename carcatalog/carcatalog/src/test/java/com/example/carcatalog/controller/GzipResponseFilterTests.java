@@ -0,0 +1,80 @@
+package com.example.carcatalog.controller;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GzipResponseFilterTests {
+
+	private static final String BODY = "[{\"brand\":\"BMW\"}]";
+
+	private final GzipResponseFilter filter = new GzipResponseFilter();
+
+	@Test
+	void compressesWhenControllerAsksAndClientAcceptsGzip() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cars/1");
+		request.addHeader("Accept-Encoding", "gzip, deflate");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(request, response, new MockFilterChain(servlet(true)));
+
+		assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+		assertThat(response.containsHeader("Content-Length")).isFalse();
+		assertThat(gunzip(response.getContentAsByteArray())).isEqualTo(BODY);
+	}
+
+	@Test
+	void leavesResponseAloneOtherwise() throws Exception {
+		MockHttpServletRequest plain = new MockHttpServletRequest("GET", "/api/cars/1");
+		MockHttpServletResponse plainResponse = new MockHttpServletResponse();
+		filter.doFilter(plain, plainResponse, new MockFilterChain(servlet(true)));
+
+		MockHttpServletRequest notAsked = new MockHttpServletRequest("GET", "/api/cars/1");
+		notAsked.addHeader("Accept-Encoding", "gzip");
+		MockHttpServletResponse notAskedResponse = new MockHttpServletResponse();
+		filter.doFilter(notAsked, notAskedResponse, new MockFilterChain(servlet(false)));
+
+		assertThat(plainResponse.getHeader("Content-Encoding")).isNull();
+		assertThat(plainResponse.getContentAsString()).isEqualTo(BODY);
+		assertThat(notAskedResponse.getHeader("Content-Encoding")).isNull();
+		assertThat(notAskedResponse.getContentAsString()).isEqualTo(BODY);
+	}
+
+	@Test
+	void compressFailsOutsideFilter() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cars/1");
+		request.addHeader("Accept-Encoding", "gzip");
+
+		assertThat(GzipResponseFilter.compress(request)).isFalse();
+	}
+
+	private static HttpServlet servlet(boolean compress) {
+		return new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+				boolean compressed = compress && GzipResponseFilter.compress(request);
+				assertThat(compressed).isEqualTo(compress && request.getHeader("Accept-Encoding") != null);
+				byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+				response.setContentLength(body.length);
+				response.getOutputStream().write(body);
+			}
+		};
+	}
+
+	private static String gunzip(byte[] bytes) throws IOException {
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package com.example.carcatalog.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageControllerTests {
+
+	@Test
+	void parsesSingleRanges() {
+		assertThat(ImageController.parseRange("bytes=0-99", 1000)).containsExactly(0, 100);
+		assertThat(ImageController.parseRange("bytes=900-", 1000)).containsExactly(900, 1000);
+		assertThat(ImageController.parseRange("bytes=-100", 1000)).containsExactly(900, 1000);
+		assertThat(ImageController.parseRange("bytes=-5000", 1000)).containsExactly(0, 1000);
+		assertThat(ImageController.parseRange("bytes=990-5000", 1000)).containsExactly(990, 1000);
+	}
+
+	@Test
+	void rejectsRangesOutsideTheFile() {
+		assertThat(ImageController.parseRange("bytes=1000-", 1000)).isNull();
+		assertThat(ImageController.parseRange("bytes=2000-3000", 1000)).isNull();
+		assertThat(ImageController.parseRange("bytes=-0", 1000)).isNull();
+	}
+
+	@Test
+	void ignoresMalformedAndMultipleRanges() {
+		assertThat(ImageController.parseRange("bytes=0-1,5-6", 1000)).isEmpty();
+		assertThat(ImageController.parseRange("bytes=50-10", 1000)).isEmpty();
+		assertThat(ImageController.parseRange("bytes=abc", 1000)).isEmpty();
+		assertThat(ImageController.parseRange("items=0-1", 1000)).isEmpty();
+	}
+}
@@ -0,0 +1,118 @@
+package com.example.carcatalog.datasource;
+
+import com.example.carcatalog.auth.AuthToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesInterceptorTests {
+
+	private final ReadYourWritesInterceptor interceptor = new ReadYourWritesInterceptor(Duration.ofMinutes(1));
+
+	@Test
+	void readsFromPrimaryAfterOwnWrite() {
+		complete(request("POST", 7L), 200);
+
+		assertThat(readsFromPrimary(request("GET", 7L))).isTrue();
+		assertThat(readsFromPrimary(request("GET", 8L))).isFalse();
+		assertThat(ReadYourWritesInterceptor.primaryRequired()).isFalse();
+	}
+
+	@Test
+	void failedWriteAndReadsDoNotStick() {
+		complete(request("PUT", 7L), 400);
+		complete(request("GET", 7L), 200);
+
+		assertThat(readsFromPrimary(request("GET", 7L))).isFalse();
+	}
+
+	@Test
+	void expiresAfterWindow() throws InterruptedException {
+		ReadYourWritesInterceptor shortWindow = new ReadYourWritesInterceptor(Duration.ofMillis(10));
+		shortWindow.afterCompletion(request("POST", 7L), new MockHttpServletResponse(), null, null);
+		Thread.sleep(20);
+
+		shortWindow.preHandle(request("GET", 7L), new MockHttpServletResponse(), null);
+		assertThat(ReadYourWritesInterceptor.primaryRequired()).isFalse();
+	}
+
+	@Test
+	void clearsFlagWhenRequestGoesAsync() {
+		complete(request("POST", 7L), 200);
+		MockHttpServletRequest streaming = request("GET", 7L);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		interceptor.preHandle(streaming, response, null);
+		assertThat(ReadYourWritesInterceptor.primaryRequired()).isTrue();
+
+		interceptor.afterConcurrentHandlingStarted(streaming, response, null);
+		assertThat(ReadYourWritesInterceptor.primaryRequired()).isFalse();
+	}
+
+	@Test
+	void streamingBodyAfterOwnWriteReadsFromPrimary() throws Exception {
+		complete(request("POST", 7L), 200);
+
+		assertThat(streamReadsFromPrimary(request("GET", 7L))).isTrue();
+		assertThat(streamReadsFromPrimary(request("GET", 8L))).isFalse();
+	}
+
+	@Test
+	void resetsStaleFlagOnNextRequest() {
+		complete(request("POST", 7L), 200);
+		interceptor.preHandle(request("GET", 7L), new MockHttpServletResponse(), null);
+		// afterCompletion не вызван - флаг остался в потоке
+
+		interceptor.preHandle(request("GET", 8L), new MockHttpServletResponse(), null);
+		assertThat(ReadYourWritesInterceptor.primaryRequired()).isFalse();
+	}
+
+	private static MockHttpServletRequest request(String method, long userId) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/favorites");
+		request.setAttribute(AuthToken.REQUEST_ATTRIBUTE, new AuthToken(userId, false, 0, Long.MAX_VALUE));
+		return request;
+	}
+
+	private void complete(MockHttpServletRequest request, int status) {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setStatus(status);
+		interceptor.preHandle(request, response, null);
+		interceptor.afterCompletion(request, response, null, null);
+	}
+
+	private boolean readsFromPrimary(MockHttpServletRequest request) {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		interceptor.preHandle(request, response, null);
+		boolean primary = ReadYourWritesInterceptor.primaryRequired();
+		interceptor.afterCompletion(request, response, null, null);
+		return primary;
+	}
+
+	// Тело пишется в другом потоке, как StreamingResponseBody
+	private boolean streamReadsFromPrimary(MockHttpServletRequest request) throws Exception {
+		request.setAsyncSupported(true);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		interceptor.preHandle(request, response, null);
+		WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+		asyncManager.setAsyncWebRequest(new StandardServletAsyncWebRequest(request, response));
+		asyncManager.setTaskExecutor(new SimpleAsyncTaskExecutor());
+		asyncManager.registerCallableInterceptor("read-your-writes", interceptor);
+
+		CompletableFuture<Boolean> primary = new CompletableFuture<>();
+		asyncManager.startCallableProcessing(() -> {
+			primary.complete(ReadYourWritesInterceptor.primaryRequired());
+			return null;
+		});
+		interceptor.afterConcurrentHandlingStarted(request, response, null);
+		return primary.get(5, TimeUnit.SECONDS);
+	}
+}
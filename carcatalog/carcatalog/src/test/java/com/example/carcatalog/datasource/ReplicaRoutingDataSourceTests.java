@@ -0,0 +1,69 @@
+package com.example.carcatalog.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReplicaRoutingDataSourceTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicLong catalogChangedAt = new AtomicLong(Long.MIN_VALUE);
+	private final HikariDataSource primary = pool("primary");
+	private final ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(
+			primary, List.of(pool("replica")), ReplicaRoutingDataSource.Strategy.ROUND_ROBIN,
+			Duration.ofSeconds(5), Duration.ofHours(1), "SELECT 0", catalogChangedAt::get, meterRegistry);
+
+	@AfterEach
+	void tearDown() {
+		routing.close();
+		primary.close();
+	}
+
+	@Test
+	void readsFromReplicaOnlyAfterItAppliedLatestCatalogChange() throws Exception {
+		routing.checkLag();
+		read();
+		assertThat(reads("replica")).isEqualTo(1);
+
+		// Изменение после последней проверки: реплика могла его ещё не применить
+		catalogChangedAt.set(System.currentTimeMillis() + 50);
+		read();
+		assertThat(reads("primary")).isEqualTo(1);
+
+		Thread.sleep(60);
+		routing.checkLag();
+		read();
+		assertThat(reads("replica")).isEqualTo(2);
+	}
+
+	@Test
+	void rejectsExplicitCredentialsAsSqlException() {
+		assertThatThrownBy(() -> routing.getConnection("sa", ""))
+				.isInstanceOf(SQLFeatureNotSupportedException.class);
+	}
+
+	private void read() throws Exception {
+		routing.getConnection().close();
+	}
+
+	private double reads(String target) {
+		return meterRegistry.get("catalog.datasource.reads").tag("target", target).counter().count();
+	}
+
+	private static HikariDataSource pool(String name) {
+		HikariDataSource dataSource = new HikariDataSource();
+		dataSource.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+		dataSource.setUsername("sa");
+		dataSource.setPoolName(name);
+		return dataSource;
+	}
+}
@@ -0,0 +1,32 @@
+package com.example.carcatalog.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementCounterTests {
+
+	private final StatementCounter counter = new StatementCounter();
+
+	@Test
+	void countsStatementsBetweenStartAndStop() {
+		counter.inspect("select 1");
+
+		StatementCounter.start();
+		assertThat(counter.inspect("select * from cars")).isEqualTo("select * from cars");
+		counter.inspect("select * from favorites");
+
+		assertThat(StatementCounter.stop()).isEqualTo(2);
+		assertThat(StatementCounter.stop()).isEqualTo(-1);
+	}
+
+	@Test
+	void countsOnlyCurrentThread() throws InterruptedException {
+		StatementCounter.start();
+		Thread other = new Thread(() -> counter.inspect("select 1"));
+		other.start();
+		other.join();
+
+		assertThat(StatementCounter.stop()).isZero();
+	}
+}
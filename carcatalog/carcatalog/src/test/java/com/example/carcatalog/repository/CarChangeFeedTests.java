@@ -0,0 +1,176 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.event.CarsChangedEvent;
+import com.example.carcatalog.model.Car;
+import com.example.carcatalog.model.CarChange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Журнал пишется перед commit: тестам нужны настоящие транзакции, а не откат после каждого теста
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({CarChangeFeed.class, CarChangeRetention.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CarChangeFeedTests {
+
+	@Autowired
+	private CarChangeFeed feed;
+
+	@Autowired
+	private CarChangeRetention retention;
+
+	@Autowired
+	private CarRepository carRepository;
+
+	@Autowired
+	private CarChangeRepository carChangeRepository;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transaction;
+
+	@BeforeEach
+	void setUp() {
+		transaction = new TransactionTemplate(transactionManager);
+		carChangeRepository.deleteAllInBatch();
+		carRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void returnsLatestStateOfEachCarAfterSince() {
+		Car x5 = create(car("BMW", "X5"));
+		long since = feed.latestVersion();
+		Car m3 = create(car("BMW", "M3"));
+		Car a4 = create(car("Audi", "A4"));
+		update(x5, 40000);
+		delete(m3);
+
+		CarChangeBatch batch = feed.changesSince(since);
+
+		assertThat(batch.isReset()).isFalse();
+		assertThat(batch.isHasMore()).isFalse();
+		assertThat(batch.getVersion()).isEqualTo(feed.latestVersion());
+		assertThat(batch.getChanges()).extracting(CarChangeBatch.Entry::getCarId)
+				.containsExactly(a4.getId(), x5.getId(), m3.getId());
+		assertThat(batch.getChanges().get(1).getCar().getPrice()).isEqualTo(40000);
+		// Удалённая машина - tombstone без состояния
+		assertThat(batch.getChanges().get(2).getCar()).isNull();
+		assertThat(feed.changesSince(batch.getVersion()).getChanges()).isEmpty();
+	}
+
+	@Test
+	void resetsClientsWithoutOrBeyondVersion() {
+		create(car("BMW", "X5"));
+		long latest = feed.latestVersion();
+
+		CarChangeBatch full = feed.changesSince(null);
+		assertThat(full.isReset()).isTrue();
+		assertThat(full.getVersion()).isEqualTo(latest);
+
+		CarChangeBatch unknown = feed.changesSince(latest + 100);
+		assertThat(unknown.isReset()).isTrue();
+		assertThat(unknown.getVersion()).isEqualTo(latest);
+	}
+
+	@Test
+	void bulkEventWritesOneChangePerCar() {
+		create(car("BMW", "X5"));
+		long since = feed.latestVersion();
+		List<Car> cars = transaction.execute(status -> {
+			List<Car> saved = carRepository.saveAll(List.of(car("Kia", "Rio"), car("Kia", "Ceed")));
+			eventPublisher.publishEvent(CarsChangedEvent.created(saved));
+			return saved;
+		});
+
+		assertThat(feed.changesSince(since).getChanges()).extracting(CarChangeBatch.Entry::getCarId)
+				.containsExactly(cars.get(0).getId(), cars.get(1).getId());
+	}
+
+	@Test
+	void failedChangeLogWriteRollsBackCarWrite() {
+		assertThatThrownBy(() -> transaction.executeWithoutResult(status -> {
+			carRepository.save(car("BMW", "X5"));
+			// car_id не может быть null: INSERT в журнал падает при commit
+			eventPublisher.publishEvent(CarChangedEvent.created(car("Audi", "A4")));
+		})).isInstanceOf(RuntimeException.class);
+
+		assertThat(carRepository.count()).isZero();
+		assertThat(carChangeRepository.count()).isZero();
+	}
+
+	@Test
+	void cleanupKeepsLatestChangePerCarAndResetsClientsBehindRetention() {
+		Car x5 = create(car("BMW", "X5"));
+		long beforeUpdates = feed.latestVersion();
+		update(x5, 41000);
+		update(x5, 42000);
+		Car a4 = create(car("Audi", "A4"));
+
+		retention.cleanup(Instant.now());
+
+		// Промежуточная правка X5 сжата; самая старая запись остаётся границей журнала
+		assertThat(carChangeRepository.findAll()).extracting(CarChange::getCarId)
+				.containsExactlyInAnyOrder(x5.getId(), x5.getId(), a4.getId());
+		assertThat(feed.changesSince(beforeUpdates).getChanges()).extracting(CarChangeBatch.Entry::getCarId)
+				.containsExactly(x5.getId(), a4.getId());
+
+		retention.cleanup(Instant.now().plus(Duration.ofDays(8)));
+
+		// По сроку удалено всё, кроме последней записи
+		assertThat(carChangeRepository.findAll()).extracting(CarChange::getCarId).containsExactly(a4.getId());
+		assertThat(feed.changesSince(beforeUpdates).isReset()).isTrue();
+		assertThat(feed.changesSince(feed.latestVersion() - 1).isReset()).isFalse();
+	}
+
+	private Car create(Car car) {
+		return transaction.execute(status -> {
+			Car saved = carRepository.save(car);
+			eventPublisher.publishEvent(CarChangedEvent.created(saved));
+			return saved;
+		});
+	}
+
+	private void update(Car car, double price) {
+		transaction.executeWithoutResult(status -> {
+			Car current = carRepository.findById(car.getId()).orElseThrow();
+			Car previous = new Car(current);
+			current.setPrice(price);
+			eventPublisher.publishEvent(CarChangedEvent.updated(previous, current));
+		});
+	}
+
+	private void delete(Car car) {
+		transaction.executeWithoutResult(status -> {
+			carRepository.deleteById(car.getId());
+			eventPublisher.publishEvent(CarChangedEvent.deleted(car));
+		});
+	}
+
+	private static Car car(String brand, String model) {
+		return new Car(brand, model, 2020, 30000);
+	}
+}
@@ -0,0 +1,115 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.event.CarsChangedEvent;
+import com.example.carcatalog.model.Car;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(CarFacetService.class)
+class CarFacetServiceTests {
+
+	@Autowired
+	private CarFacetService carFacetService;
+
+	@Autowired
+	private CarRepository carRepository;
+
+	@BeforeEach
+	void setUp() {
+		carRepository.save(car("BMW", 2020, 50000, "Бензин", "Автомат"));
+		carRepository.save(car("BMW", 2018, 40000, "Дизель", "Автомат"));
+		carRepository.save(car("Audi", 2018, 30000, "Бензин", "Механика"));
+		carRepository.save(car("Toyota", 2019, 24999.99, null, "Автомат"));
+		carRepository.flush();
+		// Кэш сервиса переживает тесты: начинаем с пустого
+		carFacetService.onCarsChanged(CarsChangedEvent.deleted(List.of()));
+	}
+
+	@Test
+	void countsEachFacetWithoutItsOwnFilter() {
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setBrand("bmw");
+		criteria.setFuelType("Бензин");
+
+		CarFacets facets = carFacetService.facets(criteria, 10000);
+
+		assertThat(facets.getTotal()).isEqualTo(1);
+		// Марки - по бензиновым машинам любой марки
+		assertThat(facets.getBrands()).extracting(CarFacets.Value::getValue, CarFacets.Value::getCount)
+				.containsExactly(tuple("Audi", 1L), tuple("BMW", 1L));
+		// Топливо - по всем BMW
+		assertThat(facets.getFuelTypes()).extracting(CarFacets.Value::getValue, CarFacets.Value::getCount)
+				.containsExactly(tuple("Бензин", 1L), tuple("Дизель", 1L));
+		assertThat(facets.getTransmissions()).extracting(CarFacets.Value::getValue).containsExactly("Автомат");
+		assertThat(facets.getYears()).extracting(CarFacets.Value::getValue).containsExactly(2020);
+	}
+
+	@Test
+	void yearsAndPricesIgnoreOwnRangeAndSkipNulls() {
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setMinYear(2019);
+		criteria.setMaxPrice(45000.0);
+
+		CarFacets facets = carFacetService.facets(criteria, 10000);
+
+		assertThat(facets.getTotal()).isEqualTo(1);
+		// Годы - по машинам до 45000, цены - по машинам с 2019 года
+		assertThat(facets.getYears()).extracting(CarFacets.Value::getValue, CarFacets.Value::getCount)
+				.containsExactly(tuple(2018, 2L), tuple(2019, 1L));
+		assertThat(facets.getPrices()).extracting(CarFacets.Range::getFrom, CarFacets.Range::getTo,
+						CarFacets.Range::getCount)
+				.containsExactly(tuple(20000.0, 30000.0, 1L), tuple(50000.0, 60000.0, 1L));
+		// Единственная подходящая машина без топлива: null в фасет не попадает
+		assertThat(facets.getFuelTypes()).isEmpty();
+	}
+
+	@Test
+	void bucketsPricesByStep() {
+		CarFacets facets = carFacetService.facets(new CarSearchCriteria(), 20000);
+
+		// floor(price / step): 24999.99 и 30000 - в одной корзине, 40000 и 50000 - в другой
+		assertThat(facets.getPrices()).extracting(CarFacets.Range::getFrom, CarFacets.Range::getCount)
+				.containsExactly(tuple(20000.0, 2L), tuple(40000.0, 2L));
+	}
+
+	@Test
+	void servesCachedFacetsUntilCarsChange() {
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		CarFacets first = carFacetService.facets(criteria, 10000);
+		Car lada = carRepository.saveAndFlush(car("Lada", 2010, 5000, null, null));
+
+		assertThat(carFacetService.facets(criteria, 10000)).isSameAs(first);
+
+		carFacetService.onCarChanged(CarChangedEvent.created(lada));
+		CarFacets afterCreate = carFacetService.facets(criteria, 10000);
+		assertThat(afterCreate.getTotal()).isEqualTo(5);
+
+		carRepository.deleteById(lada.getId());
+		carRepository.flush();
+		assertThat(carFacetService.facets(criteria, 10000)).isSameAs(afterCreate);
+
+		carFacetService.onCarsChanged(CarsChangedEvent.deleted(List.of(lada.getId())));
+		assertThat(carFacetService.facets(criteria, 10000).getTotal()).isEqualTo(4);
+	}
+
+	private static Car car(String brand, int year, double price, String fuelType, String transmission) {
+		Car car = new Car(brand, "Model", year, price);
+		car.setFuelType(fuelType);
+		car.setTransmission(transmission);
+		return car;
+	}
+}
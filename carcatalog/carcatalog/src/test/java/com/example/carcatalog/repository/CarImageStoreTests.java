@@ -0,0 +1,79 @@
+package com.example.carcatalog.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CarImageStoreTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void storesOriginalAndScaledRenditionsUnderContentHash() throws IOException {
+		CarImageStore store = new CarImageStore(directory.toString(), 40_000_000);
+		byte[] png = png(2000, 1000);
+
+		CarImageStore.StoredImage image = store.store(png);
+
+		assertThat(image.getKey()).hasSize(32).matches("[0-9a-f]+");
+		assertThat(image.getOriginalUrl()).isEqualTo("/api/images/" + image.getKey() + ".png");
+		assertThat(Files.readAllBytes(store.resolve(image.getKey() + ".png"))).isEqualTo(png);
+		assertThat(read(store.resolve(image.getKey() + "-medium.jpg")).getWidth()).isEqualTo(CarImageStore.MEDIUM_SIZE);
+		BufferedImage thumb = read(store.resolve(image.getKey() + "-thumb.jpg"));
+		assertThat(thumb.getWidth()).isEqualTo(CarImageStore.THUMB_SIZE);
+		assertThat(thumb.getHeight()).isEqualTo(CarImageStore.THUMB_SIZE / 2);
+
+		assertThat(store.store(png.clone()).getKey()).isEqualTo(image.getKey());
+	}
+
+	@Test
+	void doesNotUpscaleSmallImages() {
+		BufferedImage scaled = CarImageStore.scaleToFit(new BufferedImage(100, 50, BufferedImage.TYPE_INT_ARGB), 320);
+
+		assertThat(scaled.getWidth()).isEqualTo(100);
+		assertThat(scaled.getHeight()).isEqualTo(50);
+	}
+
+	@Test
+	void rejectsNonImagesAndOversizedImages() throws IOException {
+		CarImageStore store = new CarImageStore(directory.toString(), 1000);
+
+		assertThatThrownBy(() -> store.store("not an image".getBytes()))
+				.isInstanceOf(CarImageStore.InvalidImageException.class);
+		assertThatThrownBy(() -> store.store(png(100, 100)))
+				.isInstanceOf(CarImageStore.InvalidImageException.class)
+				.hasMessageContaining("too large");
+	}
+
+	@Test
+	void resolvesOnlyOwnFileNames() throws IOException {
+		CarImageStore store = new CarImageStore(directory.toString(), 40_000_000);
+		String key = store.store(png(10, 10)).getKey();
+
+		assertThat(store.resolve(key + "-thumb.jpg")).isNotNull();
+		assertThat(store.resolve(key + "-large.jpg")).isNull();
+		assertThat(store.resolve("../" + key + ".png")).isNull();
+		assertThat(store.resolve("0".repeat(32) + ".png")).isNull();
+	}
+
+	private static byte[] png(int width, int height) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+		return out.toByteArray();
+	}
+
+	private static BufferedImage read(Path path) throws IOException {
+		return ImageIO.read(new ByteArrayInputStream(Files.readAllBytes(path)));
+	}
+}
@@ -0,0 +1,115 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.event.CarsChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Порция - своя транзакция: без общей транзакции теста
+@DataJpaTest(properties = "catalog.import.chunk-size=2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(CarImportService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RecordApplicationEvents
+class CarImportServiceTests {
+
+	@Autowired
+	private CarImportService carImportService;
+
+	@Autowired
+	private CarRepository carRepository;
+
+	@Autowired
+	private FavoriteRepository favoriteRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ApplicationEvents events;
+
+	@BeforeEach
+	void setUp() {
+		favoriteRepository.deleteAllInBatch();
+		carRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void importsNdjsonInChunksAndReportsRowErrors() throws IOException {
+		List<Map<String, Object>> report = importCars(CarImportService.Format.NDJSON, """
+				{"brand":"BMW","model":"X5","year":2020,"price":50000}
+				null
+				{"brand":"","model":"A4","year":2018,"price":1}
+				not json
+				{"brand":"Audi","model":"A4","year":2018,"price":30000}
+
+				{"brand":"Kia","model":"Rio","year":2019,"price":15000}
+				""");
+
+		assertThat(report).hasSize(5);
+		assertThat(report.get(0)).containsEntry("row", 2).containsEntry("error", "row is null");
+		assertThat(report.get(1)).containsEntry("row", 3).containsEntry("error", "brand is required");
+		assertThat(report.get(2)).containsEntry("row", 4);
+		assertThat((String) report.get(2).get("error")).startsWith("Invalid JSON");
+		// Прогресс после полной порции, итог - после остатка
+		assertThat(report.get(3)).isEqualTo(Map.of("imported", 2, "failed", 3));
+		assertThat(report.get(4)).isEqualTo(Map.of("done", true, "imported", 3, "failed", 3));
+
+		assertThat(carRepository.findAll()).extracting(car -> car.getModel())
+				.containsExactlyInAnyOrder("X5", "A4", "Rio");
+		assertThat(events.stream(CarsChangedEvent.class)).extracting(event -> event.getCarIds().size())
+				.containsExactly(2, 1);
+	}
+
+	@Test
+	void importsCsvWithHeaderInAnyCase() throws IOException {
+		List<Map<String, Object>> report = importCars(CarImportService.Format.CSV, """
+				Brand,MODEL,year,price,mileage
+				BMW,X5,2020,50000,12000
+				Audi,A4,2018
+				Kia,Rio,2019,abc,
+				""");
+
+		assertThat(report).hasSize(3);
+		assertThat(report.get(0)).containsEntry("row", 2);
+		assertThat(report.get(1)).containsEntry("row", 3).containsEntry("error", "price is not a number: abc");
+		assertThat(report.get(2)).isEqualTo(Map.of("done", true, "imported", 1, "failed", 2));
+		assertThat(carRepository.findAll()).singleElement()
+				.satisfies(car -> assertThat(car.getMileage()).isEqualTo(12000));
+	}
+
+	private List<Map<String, Object>> importCars(CarImportService.Format format, String input) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		carImportService.importCars(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), format, out);
+		List<Map<String, Object>> lines = new ArrayList<>();
+		for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+			@SuppressWarnings("unchecked")
+			Map<String, Object> parsed = objectMapper.readValue(line, Map.class);
+			lines.add(parsed);
+		}
+		return lines;
+	}
+}
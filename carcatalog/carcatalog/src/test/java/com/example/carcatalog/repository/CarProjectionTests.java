@@ -0,0 +1,66 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.model.Car;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CarProjectionTests {
+
+	@Test
+	void noFieldsOrViewMeansFullCar() {
+		assertThat(CarProjection.parse(null, null)).isNull();
+		assertThat(CarProjection.parse(" ", "")).isNull();
+	}
+
+	@Test
+	void summarySelectsCardColumns() {
+		CarProjection summary = CarProjection.parse(null, "Summary");
+
+		assertThat(summary.getFields()).containsExactly("id", "brand", "model", "year", "price", "thumbnailUrl");
+		assertThat(summary.getColumns()).containsExactly("id", "brand", "model", "year", "price", "imageKey");
+	}
+
+	@Test
+	void fieldsKeepRequestOrderAndAlwaysSelectId() {
+		CarProjection projection = CarProjection.parse("price, brand,,price,mediumUrl,thumbnailUrl", null);
+
+		assertThat(projection.getFields()).containsExactly("price", "brand", "mediumUrl", "thumbnailUrl");
+		assertThat(projection.getColumns()).containsExactly("id", "price", "brand", "imageKey");
+		assertThat(projection.key()).isEqualTo("price,brand,mediumUrl,thumbnailUrl");
+	}
+
+	@Test
+	void rejectsUnknownFieldsAndConflictingParameters() {
+		assertThatThrownBy(() -> CarProjection.parse("brand,owner", null))
+				.isInstanceOf(CarProjection.InvalidProjectionException.class)
+				.hasMessageContaining("owner");
+		assertThatThrownBy(() -> CarProjection.parse("brand", "summary"))
+				.isInstanceOf(CarProjection.InvalidProjectionException.class);
+		assertThatThrownBy(() -> CarProjection.parse(null, "full"))
+				.isInstanceOf(CarProjection.InvalidProjectionException.class);
+		assertThatThrownBy(() -> CarProjection.parse(" , ", null))
+				.isInstanceOf(CarProjection.InvalidProjectionException.class);
+	}
+
+	@Test
+	void mapsCarToRequestedFields() {
+		Car car = new Car("BMW", "X5", 2020, 50000);
+		car.setId(7L);
+		car.setDescription("long text");
+		car.setImageKey("abc");
+
+		Map<String, Object> row = CarProjection.parse("model,thumbnailUrl,description", null).toMap(car);
+
+		assertThat(row).containsExactly(
+				Map.entry("model", "X5"),
+				Map.entry("thumbnailUrl", Car.thumbnailUrl("abc")),
+				Map.entry("description", "long text"));
+		assertThat(CarProjection.parse(null, "summary").toMap(new Car("Kia", "Rio", 2015, 9000)))
+				.containsEntry("thumbnailUrl", null)
+				.containsKeys("id", "brand", "model", "year", "price");
+	}
+}
@@ -0,0 +1,141 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.model.Car;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class CarSearchCriteriaTests {
+
+	@Autowired
+	private CarRepository carRepository;
+
+	@BeforeEach
+	void setUp() {
+		carRepository.deleteAll();
+		carRepository.saveAll(List.of(
+				car("BMW", "X5", 2020, 50000, "Diesel", "Automatic", 30000, "Fast SUV"),
+				car("bmw", "M3", 2018, 40000, "Petrol", "Manual", 60000, "100% fun"),
+				car("Audi", "A4", 2018, 40000, "Petrol", "Automatic", 90000, "Family car"),
+				car("Kia", "Rio", 2012, 8000, "Petrol", "Manual", 150000, "Cheap_and_cheerful"),
+				car("Tesla", "Model 3", 2021, 45000, "Electric", "Automatic", 10000, null)));
+	}
+
+	@Test
+	void filtersIgnoreCaseAndCombineWithAnd() {
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setBrand("BMW");
+		assertThat(models(criteria)).containsExactlyInAnyOrder("X5", "M3");
+
+		criteria.setFuelType("petrol");
+		criteria.setTransmission("MANUAL");
+		assertThat(models(criteria)).containsExactly("M3");
+	}
+
+	@Test
+	void rangesIncludeBounds() {
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setMinPrice(40000.0);
+		criteria.setMaxPrice(45000.0);
+		assertThat(models(criteria)).containsExactlyInAnyOrder("M3", "A4", "Model 3");
+
+		criteria = new CarSearchCriteria();
+		criteria.setMinYear(2018);
+		criteria.setMaxYear(2020);
+		criteria.setMinMileage(60000);
+		criteria.setMaxMileage(90000);
+		assertThat(models(criteria)).containsExactlyInAnyOrder("M3", "A4");
+	}
+
+	@Test
+	void searchMatchesBrandModelOrDescriptionAndEscapesWildcards() {
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setSearch("FAMILY");
+		assertThat(models(criteria)).containsExactly("A4");
+
+		criteria.setSearch("model");
+		assertThat(models(criteria)).containsExactly("Model 3");
+
+		// % и _ ищутся как обычные символы
+		criteria.setSearch("100%");
+		assertThat(models(criteria)).containsExactly("M3");
+		criteria.setSearch("x_");
+		assertThat(models(criteria)).isEmpty();
+		criteria.setSearch("p_and_");
+		assertThat(models(criteria)).containsExactly("Rio");
+	}
+
+	@Test
+	void restrictToIdsNarrowsTextSearch() {
+		long kia = carRepository.findAll().stream().filter(car -> car.getBrand().equals("Kia")).findFirst().get().getId();
+		long audi = carRepository.findAll().stream().filter(car -> car.getBrand().equals("Audi")).findFirst().get().getId();
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setSearch("cheap");
+		criteria.restrictToIds(new long[]{kia, audi});
+		assertThat(models(criteria)).containsExactly("Rio");
+
+		criteria.restrictToIds(new long[0]);
+		assertThat(models(criteria)).isEmpty();
+	}
+
+	@Test
+	void sortsBySelectedPropertyThenId() {
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setSortBy("PRICE");
+		criteria.setSortOrder("desc");
+		assertThat(criteria.toSort()).isEqualTo(Sort.by(Sort.Direction.DESC, "price").and(Sort.by(Sort.Direction.DESC, "id")));
+		// При равной цене id тоже по убыванию
+		assertThat(models(criteria)).containsExactly("X5", "Model 3", "A4", "M3", "Rio");
+
+		criteria.setSortOrder("asc");
+		assertThat(models(criteria)).containsExactly("Rio", "M3", "A4", "Model 3", "X5");
+
+		criteria.setSortBy("color");
+		assertThat(criteria.toSort()).isEqualTo(Sort.by(Sort.Direction.ASC, "id"));
+		assertThat(new CarSearchCriteria().toSort()).isEqualTo(Sort.by(Sort.Direction.ASC, "id"));
+	}
+
+	// По этому порядку сортирует марки индекс в памяти (catalog.search.mode=index)
+	@Test
+	void brandsInSortOrderFollowSortByBrand() {
+		carRepository.save(car(null, "Niva", 1990, 1000, null, null, 0, null));
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setSortBy("brand");
+
+		List<String> sorted = carRepository.findAll(criteria.toSpecification(), criteria.toSort()).stream()
+				.map(Car::getBrand)
+				.distinct()
+				.collect(Collectors.toList());
+
+		assertThat(sorted).last().isNull();
+		assertThat(carRepository.findBrandsInSortOrder()).isEqualTo(sorted.subList(0, sorted.size() - 1));
+	}
+
+	private List<String> models(CarSearchCriteria criteria) {
+		return carRepository.findAll(criteria.toSpecification(), criteria.toSort()).stream()
+				.map(Car::getModel)
+				.collect(Collectors.toList());
+	}
+
+	private static Car car(String brand, String model, int year, double price, String fuelType, String transmission,
+			int mileage, String description) {
+		Car car = new Car(brand, model, year, price);
+		car.setFuelType(fuelType);
+		car.setTransmission(transmission);
+		car.setMileage(mileage);
+		car.setDescription(description);
+		return car;
+	}
+}
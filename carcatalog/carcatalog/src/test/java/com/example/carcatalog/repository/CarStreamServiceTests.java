@@ -0,0 +1,58 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.model.Car;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(CarStreamService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class CarStreamServiceTests {
+
+	@Autowired
+	private CarStreamService carStreamService;
+
+	@Autowired
+	private CarRepository carRepository;
+
+	@BeforeEach
+	void setUp() {
+		carRepository.save(new Car("BMW", "X5", 2020, 50000));
+		carRepository.save(new Car("Audi", "A4", 2018, 30000));
+	}
+
+	@Test
+	void streamsArrayInBinaryFormatOfMapper() throws IOException {
+		for (ObjectMapper mapper : List.of(new ObjectMapper(new CBORFactory()), new ObjectMapper(new SmileFactory()))) {
+			CarSearchCriteria criteria = new CarSearchCriteria();
+			criteria.setSortBy("price");
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+			carStreamService.writeArray(criteria, CarProjection.parse("brand,price", null), mapper, out);
+
+			List<Map<String, Object>> cars = mapper.readValue(out.toByteArray(), new TypeReference<>() {});
+			assertThat(cars).extracting(car -> car.get("brand")).containsExactly("Audi", "BMW");
+			assertThat(cars.get(0)).containsOnlyKeys("brand", "price");
+		}
+	}
+}
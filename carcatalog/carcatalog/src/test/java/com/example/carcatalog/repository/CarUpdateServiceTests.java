@@ -0,0 +1,135 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.event.CarsChangedEvent;
+import com.example.carcatalog.model.Car;
+import com.example.carcatalog.model.Favorite;
+import com.example.carcatalog.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Сервис сам открывает транзакции (массовые - REPEATABLE READ): без общей транзакции теста
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({CarUpdateService.class, FavoriteIdCache.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RecordApplicationEvents
+class CarUpdateServiceTests {
+
+	@Autowired
+	private CarUpdateService carUpdateService;
+
+	@Autowired
+	private CarRepository carRepository;
+
+	@Autowired
+	private FavoriteRepository favoriteRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ApplicationEvents events;
+
+	private Car x5;
+	private Car m3;
+	private Car a4;
+
+	@BeforeEach
+	void setUp() {
+		favoriteRepository.deleteAllInBatch();
+		userRepository.deleteAllInBatch();
+		carRepository.deleteAllInBatch();
+		x5 = carRepository.save(new Car("BMW", "X5", 2020, 50000));
+		m3 = carRepository.save(new Car("bmw", "M3", 2018, 40000.55));
+		a4 = carRepository.save(new Car("Audi", "A4", 2018, 30000));
+		events.clear();
+	}
+
+	@Test
+	void rejectsUpdateOfStaleVersion() {
+		Long version = x5.getVersion();
+		carUpdateService.update(x5.getId(), version, car -> car.setPrice(51000));
+
+		assertThatThrownBy(() -> carUpdateService.update(x5.getId(), version, car -> car.setPrice(52000)))
+				.isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+		Car current = carRepository.findById(x5.getId()).orElseThrow();
+		assertThat(current.getPrice()).isEqualTo(51000);
+		assertThat(current.getVersion()).isEqualTo(version + 1);
+		assertThat(events.stream(CarChangedEvent.class)).hasSize(1);
+	}
+
+	@Test
+	void unchangedCarPublishesNothing() {
+		Car same = carUpdateService.update(x5.getId(), null, car -> car.setPrice(50000));
+
+		assertThat(same.getVersion()).isEqualTo(x5.getVersion());
+		assertThat(events.stream(CarChangedEvent.class)).isEmpty();
+	}
+
+	@Test
+	void repricesMatchingCarsWithOneUpdateAndOneEvent() {
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setBrand("BMW");
+
+		assertThat(carUpdateService.reprice(criteria, -10)).isEqualTo(2);
+
+		assertThat(carRepository.findById(x5.getId()).orElseThrow().getPrice()).isEqualTo(45000);
+		Car repriced = carRepository.findById(m3.getId()).orElseThrow();
+		assertThat(repriced.getPrice()).isEqualTo(36000.5);
+		assertThat(repriced.getVersion()).isEqualTo(m3.getVersion() + 1);
+		assertThat(carRepository.findById(a4.getId()).orElseThrow().getPrice()).isEqualTo(30000);
+
+		List<CarsChangedEvent> published = events.stream(CarsChangedEvent.class).toList();
+		assertThat(published).hasSize(1);
+		assertThat(published.get(0).getType()).isEqualTo(CarChangedEvent.Type.UPDATED);
+		assertThat(published.get(0).getCarIds()).containsExactly(x5.getId(), m3.getId());
+		assertThat(published.get(0).getCars()).isNull();
+		assertThat(events.stream(CarChangedEvent.class)).isEmpty();
+	}
+
+	@Test
+	void deletesMatchingCarsWithTheirFavoritesAndOneEvent() {
+		User user = userRepository.save(new User("u", "u@example.com", "hash", false));
+		favoriteRepository.save(new Favorite(user, m3));
+		favoriteRepository.save(new Favorite(user, a4));
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setMaxYear(2018);
+
+		assertThat(carUpdateService.delete(criteria)).isEqualTo(2);
+
+		assertThat(carRepository.findAll()).extracting(Car::getId).containsExactly(x5.getId());
+		assertThat(favoriteRepository.count()).isZero();
+		List<CarsChangedEvent> published = events.stream(CarsChangedEvent.class).toList();
+		assertThat(published).hasSize(1);
+		assertThat(published.get(0).getType()).isEqualTo(CarChangedEvent.Type.DELETED);
+		assertThat(published.get(0).getCarIds()).containsExactly(m3.getId(), a4.getId());
+	}
+
+	@Test
+	void bulkOperationWithoutMatchesPublishesNothing() {
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setBrand("Lada");
+
+		assertThat(carUpdateService.reprice(criteria, 5)).isZero();
+		assertThat(carUpdateService.delete(criteria)).isZero();
+		assertThat(events.stream(CarsChangedEvent.class)).isEmpty();
+	}
+}
@@ -0,0 +1,103 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.event.CarsChangedEvent;
+import com.example.carcatalog.model.Car;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogVersionTests {
+
+	private final CatalogVersion version = new CatalogVersion(100_000);
+
+	@Test
+	void advancesCatalogAndCarStampsOnWrites() {
+		String catalogTag = version.etag(version.current(), "");
+		String carTag = version.etag(version.car(1L), "");
+		String otherCarTag = version.etag(version.car(2L), "");
+
+		version.onCarChanged(CarChangedEvent.created(car(1L)));
+
+		assertThat(version.etag(version.current(), "")).isNotEqualTo(catalogTag);
+		assertThat(version.etag(version.car(1L), "")).isNotEqualTo(carTag);
+		assertThat(version.etag(version.car(2L), "")).isEqualTo(otherCarTag);
+		assertThat(version.current().getLastModified()).isGreaterThanOrEqualTo(version.car(2L).getLastModified());
+	}
+
+	@Test
+	void bulkEventAdvancesCatalogOnce() {
+		String carTag = version.etag(version.car(3L), "");
+
+		version.onCarsChanged(CarsChangedEvent.updated(List.of(1L, 2L)));
+
+		assertThat(version.etag(version.car(1L), "")).isEqualTo(version.etag(version.current(), ""));
+		assertThat(version.etag(version.car(2L), "")).isEqualTo(version.etag(version.current(), ""));
+		assertThat(version.etag(version.car(3L), "")).isEqualTo(carTag);
+	}
+
+	@Test
+	void deletedCarDoesNotGetItsOriginalTagBack() {
+		String carTag = version.etag(version.car(1L), "");
+
+		version.onCarChanged(CarChangedEvent.deleted(car(1L)));
+
+		assertThat(version.etag(version.car(1L), "")).isNotEqualTo(carTag);
+	}
+
+	@Test
+	void variantsProduceDistinctStrongTags() {
+		assertThat(version.etag(version.current(), "ndjson")).isNotEqualTo(version.etag(version.current(), ""));
+		assertThat(version.etag(version.current(), "gzip")).isNotEqualTo(version.etag(version.current(), ""));
+		assertThat(version.etag(version.current(), "")).startsWith("\"").endsWith("\"");
+	}
+
+	@Test
+	void evictedCarsFallBackToNewestEvictedStamp() {
+		CatalogVersion small = new CatalogVersion(2);
+		String untouchedTag = small.etag(small.car(9L), "");
+		small.onCarChanged(CarChangedEvent.created(car(1L)));
+		String firstTag = small.etag(small.car(1L), "");
+		small.onCarChanged(CarChangedEvent.created(car(2L)));
+		small.onCarChanged(CarChangedEvent.created(car(3L)));
+
+		// 1 вытеснена: её ETag не возвращается к исходному и не совпадает с ETag живых записей
+		assertThat(small.car(1L).getVersion()).isEqualTo(1);
+		assertThat(small.etag(small.car(1L), "")).isEqualTo(firstTag);
+		small.onCarChanged(CarChangedEvent.created(car(4L)));
+		assertThat(small.car(1L).getVersion()).isEqualTo(2);
+		assertThat(small.car(9L).getVersion()).isEqualTo(2);
+		assertThat(small.etag(small.car(9L), "")).isNotEqualTo(untouchedTag);
+		assertThat(small.car(3L).getVersion()).isEqualTo(3);
+		assertThat(small.car(4L).getVersion()).isEqualTo(4);
+	}
+
+	@Test
+	void rewrittenCarKeepsItsStampWhenOlderEntryIsEvicted() {
+		CatalogVersion small = new CatalogVersion(2);
+		small.onCarChanged(CarChangedEvent.created(car(1L)));
+		small.onCarChanged(CarChangedEvent.created(car(1L)));
+		small.onCarChanged(CarChangedEvent.created(car(2L)));
+
+		assertThat(small.car(1L).getVersion()).isEqualTo(2);
+		assertThat(small.car(2L).getVersion()).isEqualTo(3);
+	}
+
+	@Test
+	void lastModifiedOnlyForFinishedSecond() {
+		version.onCarChanged(CarChangedEvent.created(car(1L)));
+		CatalogVersion.Stamp stamp = version.current();
+		long second = stamp.getLastModified() / 1000 * 1000;
+
+		assertThat(CatalogVersion.lastModified(stamp, second + 999)).isEqualTo(-1);
+		assertThat(CatalogVersion.lastModified(stamp, second + 1000)).isEqualTo(stamp.getLastModified());
+	}
+
+	private static Car car(Long id) {
+		Car car = new Car("BMW", "X5", 2020, 50000);
+		car.setId(id);
+		return car;
+	}
+}
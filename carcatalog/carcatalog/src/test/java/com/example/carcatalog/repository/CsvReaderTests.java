@@ -0,0 +1,44 @@
+package com.example.carcatalog.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvReaderTests {
+
+	@Test
+	void readsQuotedFieldsWithCommasQuotesAndLineBreaks() throws IOException {
+		CsvReader csv = new CsvReader(new StringReader(
+				"brand,description\r\nBMW,\"fast, \"\"new\"\"\nand shiny\"\r\nAudi,\n"));
+
+		assertThat(csv.next()).containsExactly("brand", "description");
+		assertThat(csv.next()).containsExactly("BMW", "fast, \"new\"\nand shiny");
+		assertThat(csv.getRecordLine()).isEqualTo(2);
+		assertThat(csv.next()).containsExactly("Audi", "");
+		assertThat(csv.getRecordLine()).isEqualTo(4);
+		assertThat(csv.next()).isNull();
+	}
+
+	@Test
+	void skipsBlankLinesAndReadsLastRecordWithoutNewline() throws IOException {
+		CsvReader csv = new CsvReader(new StringReader("a,b\n\n\nc,d"));
+
+		assertThat(csv.next()).containsExactly("a", "b");
+		assertThat(csv.next()).containsExactly("c", "d");
+		assertThat(csv.getRecordLine()).isEqualTo(4);
+		assertThat(csv.next()).isNull();
+	}
+
+	@Test
+	void rejectsUnterminatedQuotedField() {
+		CsvReader csv = new CsvReader(new StringReader("a,\"open\nnever closed"));
+
+		assertThatThrownBy(csv::next)
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("line 1");
+	}
+}
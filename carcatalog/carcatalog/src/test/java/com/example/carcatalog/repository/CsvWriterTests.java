@@ -0,0 +1,33 @@
+package com.example.carcatalog.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvWriterTests {
+
+	@Test
+	void quotesOnlyFieldsThatNeedIt() throws IOException {
+		StringWriter out = new StringWriter();
+		new CsvWriter(out).writeRecord(1, "plain", "a,b", "say \"hi\"", null, "x\ny");
+
+		assertThat(out.toString()).isEqualTo("1,plain,\"a,b\",\"say \"\"hi\"\"\",,\"x\ny\"\r\n");
+	}
+
+	@Test
+	void outputIsReadBackByCsvReader() throws IOException {
+		StringWriter out = new StringWriter();
+		CsvWriter writer = new CsvWriter(out);
+		writer.writeRecord("brand", "description");
+		writer.writeRecord("BMW", "fast, \"new\"\r\nand shiny");
+
+		CsvReader reader = new CsvReader(new StringReader(out.toString()));
+		assertThat(reader.next()).containsExactly("brand", "description");
+		assertThat(reader.next()).containsExactly("BMW", "fast, \"new\"\r\nand shiny");
+		assertThat(reader.next()).isNull();
+	}
+}
@@ -0,0 +1,130 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.model.Car;
+import com.example.carcatalog.model.Favorite;
+import com.example.carcatalog.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Кэш меняется после commit: тестам нужны настоящие транзакции
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(FavoriteIdCache.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FavoriteIdCacheTests {
+
+	@Autowired
+	private FavoriteIdCache cache;
+
+	@Autowired
+	private FavoriteRepository favoriteRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private CarRepository carRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private User alice;
+	private User bob;
+	private Car x5;
+	private Car m3;
+
+	@BeforeEach
+	void setUp() {
+		cache.clear();
+		favoriteRepository.deleteAllInBatch();
+		userRepository.deleteAllInBatch();
+		carRepository.deleteAllInBatch();
+		alice = userRepository.save(new User("alice", "alice@example.com", "hash", false));
+		bob = userRepository.save(new User("bob", "bob@example.com", "hash", false));
+		x5 = carRepository.save(new Car("BMW", "X5", 2020, 50000));
+		m3 = carRepository.save(new Car("BMW", "M3", 2018, 40000));
+		favoriteRepository.save(new Favorite(alice, x5));
+	}
+
+	@Test
+	void servesLoadedUserFromCache() {
+		assertThat(cache.get(alice.getId())).containsExactly(x5.getId());
+
+		// Запись мимо кэша не видна, пока пользователь закэширован
+		favoriteRepository.save(new Favorite(alice, m3));
+		assertThat(cache.isFavorite(alice.getId(), m3.getId())).isFalse();
+		assertThat(cache.filterFavorites(alice.getId(), List.of(m3.getId(), x5.getId())))
+				.containsExactly(x5.getId());
+	}
+
+	@Test
+	void appliesAddedAndRemoved() {
+		cache.get(alice.getId());
+
+		cache.added(alice.getId(), m3.getId());
+		assertThat(cache.get(alice.getId())).containsExactly(Math.min(x5.getId(), m3.getId()),
+				Math.max(x5.getId(), m3.getId()));
+
+		cache.removed(alice.getId(), x5.getId());
+		assertThat(cache.get(alice.getId())).containsExactly(m3.getId());
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedUser() {
+		ReflectionTestUtils.setField(cache, "maxUsers", 1);
+		try {
+			cache.get(alice.getId());
+			cache.get(bob.getId());
+			favoriteRepository.save(new Favorite(alice, m3));
+
+			// alice вытеснена - загружается заново и видит новую запись
+			assertThat(cache.isFavorite(alice.getId(), m3.getId())).isTrue();
+		} finally {
+			ReflectionTestUtils.setField(cache, "maxUsers", 10000);
+		}
+	}
+
+	@Test
+	void removalInTransactionIsNotUndoneByConcurrentLoad() {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			favoriteRepository.deleteByUserIdAndCarId(alice.getId(), x5.getId());
+			favoriteRepository.flush();
+			cache.removed(alice.getId(), x5.getId());
+
+			// Другой поток до commit ещё видит запись и загружает её
+			long[] loaded = CompletableFuture.supplyAsync(() -> cache.get(alice.getId())).join();
+			assertThat(loaded).containsExactly(x5.getId());
+		});
+
+		assertThat(cache.get(alice.getId())).isEmpty();
+	}
+
+	@Test
+	void rolledBackRemovalKeepsCachedFavorite() {
+		cache.get(alice.getId());
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			favoriteRepository.deleteByUserIdAndCarId(alice.getId(), x5.getId());
+			cache.removed(alice.getId(), x5.getId());
+			status.setRollbackOnly();
+		});
+
+		assertThat(cache.get(alice.getId())).containsExactly(x5.getId());
+	}
+}
@@ -0,0 +1,116 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.model.Car;
+import com.example.carcatalog.model.Favorite;
+import com.example.carcatalog.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doReturn;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(FavoriteSyncService.class)
+class FavoriteSyncServiceTests {
+
+	@Autowired
+	private FavoriteSyncService favoriteSyncService;
+
+	@Autowired
+	private FavoriteRepository favoriteRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private CarRepository carRepository;
+
+	@MockitoSpyBean
+	private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+	private User user;
+	private Car x5;
+	private Car m3;
+
+	@BeforeEach
+	void setUp() {
+		user = userRepository.save(new User("u", "u@example.com", "hash", false));
+		x5 = carRepository.save(new Car("BMW", "X5", 2020, 50000));
+		m3 = carRepository.save(new Car("BMW", "M3", 2018, 40000));
+		favoriteRepository.save(new Favorite(user, m3));
+		favoriteRepository.flush();
+	}
+
+	@Test
+	void mapsResultOfEachItemInOrder() {
+		List<FavoriteSyncService.Result> results = favoriteSyncService.apply(List.of(
+				item(user.getId(), x5.getId(), "add"),
+				item(user.getId(), x5.getId(), "ADD"),
+				item(user.getId(), m3.getId(), "remove"),
+				item(user.getId(), m3.getId(), "remove"),
+				item(user.getId(), -1L, "add"),
+				item(-1L, x5.getId(), "add"),
+				item(user.getId(), null, "add"),
+				item(user.getId(), x5.getId(), "toggle")));
+
+		assertThat(results).extracting(FavoriteSyncService.Result::getStatus).containsExactly(
+				"added", "already_added", "removed", "not_in_favorites", "error", "error", "error", "error");
+		assertThat(results).extracting(FavoriteSyncService.Result::getError).containsExactly(
+				null, null, null, null, "Car not found", "User not found", "userId and carId are required",
+				"op must be 'add' or 'remove'");
+		assertThat(results).extracting(FavoriteSyncService.Result::isApplied)
+				.containsExactly(true, false, true, false, false, false, false, false);
+		assertThat(favoriteRepository.findCarIdsByUserId(user.getId())).containsExactly(x5.getId());
+	}
+
+	@Test
+	void keepsOrderOfAddAndRemoveOfSamePair() {
+		List<FavoriteSyncService.Result> results = favoriteSyncService.apply(List.of(
+				item(user.getId(), x5.getId(), "add"),
+				item(user.getId(), x5.getId(), "remove"),
+				item(user.getId(), x5.getId(), "add")));
+
+		assertThat(results).extracting(FavoriteSyncService.Result::getStatus)
+				.containsExactly("added", "removed", "added");
+		assertThat(favoriteRepository.existsByUserIdAndCarId(user.getId(), x5.getId())).isTrue();
+	}
+
+	@Test
+	void carDeletedAfterCheckFailsOnlyItsItem() {
+		long deletedId = m3.getId() + 100;
+		// Проверка существования ещё видела машину, к вставке её уже нет
+		doReturn(List.of(x5.getId(), deletedId)).doCallRealMethod()
+				.when(namedParameterJdbcTemplate)
+				.queryForList(startsWith("SELECT id FROM cars"), anyMap(), eq(Long.class));
+
+		List<FavoriteSyncService.Result> results = favoriteSyncService.apply(List.of(
+				item(user.getId(), deletedId, "add"),
+				item(user.getId(), x5.getId(), "add")));
+
+		assertThat(results).extracting(FavoriteSyncService.Result::getStatus).containsExactly("error", "added");
+		assertThat(results.get(0).getError()).isEqualTo("Car not found");
+		assertThat(favoriteRepository.existsByUserIdAndCarId(user.getId(), x5.getId())).isTrue();
+	}
+
+	private static FavoriteSyncService.Item item(Long userId, Long carId, String op) {
+		FavoriteSyncService.Item item = new FavoriteSyncService.Item();
+		item.setUserId(userId);
+		item.setCarId(carId);
+		item.setOp(op);
+		return item;
+	}
+}
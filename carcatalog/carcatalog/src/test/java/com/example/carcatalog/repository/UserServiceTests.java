@@ -0,0 +1,83 @@
+package com.example.carcatalog.repository;
+
+import com.example.carcatalog.auth.PasswordHashingService;
+import com.example.carcatalog.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Нарушение ограничения портит транзакцию: регистрация идёт в своей, без общей транзакции теста
+@DataJpaTest(properties = {"auth.password.bcrypt-strength=4", "users.bloom.expected-insertions=1000"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({UserService.class, UserAvailabilityIndex.class, PasswordHashingService.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserServiceTests {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private FavoriteRepository favoriteRepository;
+
+	@Autowired
+	private UserAvailabilityIndex userAvailabilityIndex;
+
+	@BeforeEach
+	void setUp() {
+		favoriteRepository.deleteAllInBatch();
+		userRepository.deleteAllInBatch();
+		userAvailabilityIndex.rebuild();
+		assertThat(userService.registerUser(new User("alice", "alice@example.com", "secret", false)))
+				.isEqualTo("User registered successfully");
+	}
+
+	@Test
+	void registersWithHashedPasswordAndMarksNamesTaken() {
+		User saved = userRepository.findByUsername("alice").orElseThrow();
+
+		assertThat(saved.getPassword()).isNotEqualTo("secret");
+		assertThat(userService.loginUser("alice", "secret")).isPresent();
+		assertThat(userService.loginUserByEmail("alice@example.com", "wrong")).isEmpty();
+		assertThat(userService.isUsernameAvailable("alice")).isFalse();
+		assertThat(userService.isEmailAvailable("alice@example.com")).isFalse();
+		assertThat(userService.isUsernameAvailable("bob")).isTrue();
+	}
+
+	@Test
+	void reportsDuplicateUsername() {
+		assertThat(userService.registerUser(new User("alice", "other@example.com", "secret", false)))
+				.isEqualTo("Username already exists");
+		assertThat(userRepository.count()).isEqualTo(1);
+	}
+
+	@Test
+	void reportsDuplicateEmail() {
+		assertThat(userService.registerUser(new User("bob", "alice@example.com", "secret", false)))
+				.isEqualTo("Email already registered");
+		assertThat(userRepository.count()).isEqualTo(1);
+		assertThat(userService.isUsernameAvailable("bob")).isTrue();
+	}
+
+	@Test
+	void rethrowsIntegrityErrorsOtherThanUniqueness() {
+		// NOT NULL, а не уникальность: такое нельзя выдавать за "занято"
+		assertThatThrownBy(() -> userService.registerUser(new User("bob", null, "secret", false)))
+				.isInstanceOf(DataIntegrityViolationException.class);
+		assertThat(userRepository.count()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,213 @@
+package com.example.carcatalog.search;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.event.CarsChangedEvent;
+import com.example.carcatalog.model.Car;
+import com.example.carcatalog.repository.CarFacets;
+import com.example.carcatalog.repository.CarRepository;
+import com.example.carcatalog.repository.CarSearchCriteria;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CarSearchIndexTests {
+
+	private CarSearchIndex index;
+	private CarTextIndex textIndex;
+	private CarRepository carRepository;
+
+	@BeforeEach
+	void setUp() {
+		textIndex = new CarTextIndex();
+		index = new CarSearchIndex();
+		carRepository = mock(CarRepository.class);
+		// Порядок ORDER BY brand в БД с collation без учёта регистра (как en_US.UTF-8)
+		when(carRepository.findBrandsInSortOrder()).thenReturn(List.of("Audi", "bmw", "BMW", "Toyota"));
+		ReflectionTestUtils.setField(index, "carTextIndex", textIndex);
+		ReflectionTestUtils.setField(index, "carRepository", carRepository);
+
+		publish(CarChangedEvent.created(car(1L, "BMW", "X5", 2020, 50000, "Бензин")));
+		publish(CarChangedEvent.created(car(2L, "Audi", "A6", 2018, 30000, "Дизель")));
+		publish(CarChangedEvent.created(car(3L, "bmw", "M3", 2022, 70000, "Бензин")));
+		publish(CarChangedEvent.created(car(4L, "Toyota", "Camry", 2019, 25000, null)));
+	}
+
+	@Test
+	void filtersByDictionaryAndRangeColumns() {
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setBrand("BMW");
+		criteria.setMinPrice(60000.0);
+
+		CarSearchIndex.Result result = index.search(criteria, 0, 10);
+
+		assertThat(result.getTotal()).isEqualTo(1);
+		assertThat(result.getIds()).containsExactly(3L);
+	}
+
+	@Test
+	void sortsAndPages() {
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setSortBy("price");
+		criteria.setSortOrder("desc");
+
+		CarSearchIndex.Result result = index.search(criteria, 1, 2);
+
+		assertThat(result.getTotal()).isEqualTo(4);
+		assertThat(result.getIds()).containsExactly(1L, 2L);
+	}
+
+	@Test
+	void keepsChangesMadeWhileIndexIsRebuilt() {
+		Car camry = car(4L, "Toyota", "Camry", 2019, 25000, null);
+		when(carRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).thenAnswer(invocation -> {
+			List<Car> batch = List.of(car(1L, "BMW", "X5", 2020, 50000, "Бензин"),
+					car(2L, "Audi", "A6", 2018, 30000, "Дизель"), camry);
+			// Пачка прочитана, а события commit, случившихся после чтения, применяются раньше неё
+			publish(CarChangedEvent.deleted(car(2L, "Audi", "A6", 2018, 30000, "Дизель")));
+			publish(CarChangedEvent.updated(camry, car(4L, "Toyota", "Camry", 2019, 27000, null)));
+			publish(CarChangedEvent.created(car(5L, "Audi", "Q7", 2021, 90000, "Дизель")));
+			return batch;
+		});
+
+		index.rebuild();
+
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setSortBy("price");
+		assertThat(index.search(criteria, 0, 10).getIds()).containsExactly(4L, 1L, 5L);
+		criteria.setMaxPrice(25000.0);
+		assertThat(index.search(criteria, 0, 10).getIds()).isEmpty();
+
+		// После rebuild события снова применяются как обычно
+		publish(CarChangedEvent.deleted(car(5L, "Audi", "Q7", 2021, 90000, "Дизель")));
+		assertThat(index.liveCount()).isEqualTo(2);
+	}
+
+	@Test
+	void pagesMatchFullOrderOfAllMatches() {
+		Random random = new Random(42);
+		for (long id = 5; id <= 600; id++) {
+			publish(CarChangedEvent.created(car(id, "Lada", "Vesta", 2000 + random.nextInt(20),
+					1000 * random.nextInt(50), null)));
+		}
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setSortBy("price");
+		criteria.setSortOrder("desc");
+		List<Long> all = new ArrayList<>();
+		for (long id : index.search(criteria, 0, 1000).getIds()) {
+			all.add(id);
+		}
+		assertThat(all).hasSize(600);
+
+		for (int offset : new int[] {0, 7, 20, 290, 590, 600}) {
+			List<Long> page = new ArrayList<>();
+			for (long id : index.search(criteria, offset, 20).getIds()) {
+				page.add(id);
+			}
+			assertThat(page).isEqualTo(all.subList(offset, Math.min(offset + 20, all.size())));
+		}
+	}
+
+	@Test
+	void followsUpdatesAndDeletes() {
+		publish(CarChangedEvent.updated(car(2L, "Audi", "A6", 2018, 30000, "Дизель"),
+				car(2L, "Audi", "Q7", 2021, 90000, "Дизель")));
+		publish(CarChangedEvent.deleted(car(1L, "BMW", "X5", 2020, 50000, "Бензин")));
+
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setSearch("q7");
+		assertThat(index.search(criteria, 0, 10).getIds()).containsExactly(2L);
+
+		criteria = new CarSearchCriteria();
+		criteria.setFuelType("бензин");
+		assertThat(index.search(criteria, 0, 10).getIds()).containsExactly(3L);
+	}
+
+	@Test
+	void countsFacetsIgnoringOwnFilter() {
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setBrand("bmw");
+		criteria.setMaxYear(2020);
+
+		CarFacets facets = index.facets(criteria, 50000);
+
+		assertThat(facets.getTotal()).isEqualTo(1);
+		assertThat(facets.getBrands()).extracting(CarFacets.Value::getValue).containsExactly("Audi", "BMW", "Toyota");
+		assertThat(facets.getYears()).extracting(CarFacets.Value::getValue).containsExactly(2020, 2022);
+		assertThat(facets.getPrices()).extracting(CarFacets.Range::getFrom).containsExactly(50000.0);
+		assertThat(facets.getFuelTypes()).extracting(CarFacets.Value::getCount).containsExactly(1L);
+	}
+
+	@Test
+	void sortsBrandsInDatabaseOrderWithNullsLast() {
+		publish(CarChangedEvent.created(car(5L, null, "Unknown", 2010, 1000, null)));
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setSortBy("brand");
+
+		assertThat(index.search(criteria, 0, 10).getIds()).containsExactly(2L, 3L, 1L, 4L, 5L);
+
+		criteria.setSortOrder("desc");
+		assertThat(index.search(criteria, 0, 10).getIds()).containsExactly(5L, 4L, 1L, 3L, 2L);
+	}
+
+	@Test
+	void asksDatabaseForOrderOfNewBrands() {
+		when(carRepository.findBrandsInSortOrder()).thenReturn(List.of("Audi", "bmw", "BMW", "Lada", "Toyota"));
+		publish(CarChangedEvent.created(car(5L, "Lada", "Niva", 2010, 1000, null)));
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setSortBy("brand");
+		criteria.setSortOrder("desc");
+
+		assertThat(index.search(criteria, 0, 2).getIds()).containsExactly(4L, 5L);
+	}
+
+	@Test
+	void filtersIgnoreCaseButFacetsKeepCaseVariants() {
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setBrand("Bmw");
+		assertThat(index.search(criteria, 0, 10).getIds()).containsExactly(1L, 3L);
+
+		CarFacets facets = index.facets(new CarSearchCriteria(), 50000);
+		assertThat(facets.getBrands()).extracting(CarFacets.Value::getValue)
+				.containsExactlyInAnyOrder("Audi", "BMW", "bmw", "Toyota");
+		assertThat(facets.getBrands()).extracting(CarFacets.Value::getCount).containsOnly(1L);
+	}
+
+	@Test
+	void appliesBulkEventsPerChunk() {
+		when(carRepository.findBrandsInSortOrder()).thenReturn(List.of("Audi", "bmw", "BMW", "Lada", "Toyota"));
+		CarsChangedEvent created = CarsChangedEvent.created(List.of(
+				car(5L, "Lada", "Niva", 2010, 1000, null), car(6L, "Lada", "Vesta", 2021, 15000, null)));
+		textIndex.onCarsChanged(created);
+		index.onCarsChanged(created);
+		// Массовые UPDATED / DELETED несут только id: индекс дочитывает машины, пропавшие - удаляет
+		when(carRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(car(1L, "BMW", "X5", 2020, 500, "Бензин")));
+		index.onCarsChanged(CarsChangedEvent.updated(List.of(1L, 2L)));
+		index.onCarsChanged(CarsChangedEvent.deleted(List.of(6L)));
+
+		CarSearchCriteria criteria = new CarSearchCriteria();
+		criteria.setSortBy("price");
+		assertThat(index.search(criteria, 0, 10).getIds()).containsExactly(1L, 5L, 4L, 3L);
+	}
+
+	private void publish(CarChangedEvent event) {
+		textIndex.onCarChanged(event);
+		index.onCarChanged(event);
+	}
+
+	private static Car car(Long id, String brand, String model, int year, double price, String fuelType) {
+		Car car = new Car(brand, model, year, price);
+		car.setId(id);
+		car.setFuelType(fuelType);
+		return car;
+	}
+}
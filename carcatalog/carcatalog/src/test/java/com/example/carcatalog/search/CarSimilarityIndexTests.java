@@ -0,0 +1,177 @@
+package com.example.carcatalog.search;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.model.Car;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class CarSimilarityIndexTests {
+
+	private static final String[] BRANDS = {"BMW", "Audi", "Kia", "Lada", null};
+	private static final String[] FUEL_TYPES = {"Petrol", "Diesel", "Electric"};
+	private static final String[] TRANSMISSIONS = {"Automatic", "Manual"};
+
+	private final Random random = new Random(7);
+	private final Map<Long, Car> cars = new HashMap<>();
+	private CarSimilarityIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new CarSimilarityIndex();
+	}
+
+	@Test
+	void prefersSameBrandAndCloseFeatures() {
+		create(car(1L, "BMW", 2020, 40000, 50000, "Petrol", "Automatic"));
+		create(car(2L, "BMW", 2019, 38000, 60000, "Petrol", "Automatic"));
+		create(car(3L, "Audi", 2020, 40000, 50000, "Petrol", "Automatic"));
+		create(car(4L, "BMW", 2005, 8000, 250000, "Petrol", "Automatic"));
+		create(car(5L, "bmw", 2020, 41000, 52000, "Diesel", "Automatic"));
+
+		assertThat(index.similar(1L, 10)).containsExactly(2L, 5L, 3L, 4L);
+		assertThat(index.similar(1L, 2)).containsExactly(2L, 5L);
+		assertThat(index.similar(42L, 10)).isNull();
+	}
+
+	@Test
+	void matchesBruteForceWithTreeAndRecentChanges() {
+		for (long id = 1; id <= 3000; id++) {
+			create(randomCar(id));
+		}
+		index.rebuildTree();
+		// После построения дерева: новые, изменённые и удалённые машины
+		for (long id = 3001; id <= 3200; id++) {
+			create(randomCar(id));
+		}
+		for (long id = 1; id <= 300; id++) {
+			Car updated = randomCar(id);
+			index.onCarChanged(CarChangedEvent.updated(cars.put(id, updated), updated));
+		}
+		for (long id = 301; id <= 600; id++) {
+			index.onCarChanged(CarChangedEvent.deleted(cars.remove(id)));
+		}
+
+		assertMatchesBruteForce(20);
+	}
+
+	@Test
+	void compactsAfterManyDeletes() {
+		for (long id = 1; id <= 4000; id++) {
+			create(randomCar(id));
+		}
+		index.rebuildTree();
+		for (long id = 1; id <= 3000; id++) {
+			index.onCarChanged(CarChangedEvent.deleted(cars.remove(id)));
+		}
+		assertMatchesBruteForce(5);
+
+		index.rebuildTree();
+		assertThat(index.similar(1L, 10)).isNull();
+		assertMatchesBruteForce(5);
+	}
+
+	@Test
+	void keepsChangesMadeWhileTreeIsRebuilt() throws Exception {
+		for (long id = 1; id <= 4000; id++) {
+			create(randomCar(id));
+		}
+		AtomicBoolean writing = new AtomicBoolean(true);
+		Thread rebuilds = new Thread(() -> {
+			while (writing.get()) {
+				index.rebuildTree();
+			}
+		});
+		rebuilds.start();
+		try {
+			for (long id = 1; id <= 2000; id++) {
+				if (id % 2 == 0) {
+					index.onCarChanged(CarChangedEvent.deleted(cars.remove(id)));
+				} else {
+					Car updated = randomCar(id);
+					index.onCarChanged(CarChangedEvent.updated(cars.put(id, updated), updated));
+				}
+				create(randomCar(4000 + id));
+			}
+		} finally {
+			writing.set(false);
+			rebuilds.join();
+		}
+		assertMatchesBruteForce(10);
+
+		index.rebuildTree();
+		assertThat(index.similar(2L, 10)).isNull();
+		assertMatchesBruteForce(10);
+	}
+
+	private void assertMatchesBruteForce(int limit) {
+		for (Car query : cars.values().stream().limit(200).collect(Collectors.toList())) {
+			List<Double> expected = cars.values().stream()
+					.filter(car -> !car.getId().equals(query.getId()))
+					.map(car -> distance(query, car))
+					.sorted()
+					.limit(limit)
+					.collect(Collectors.toList());
+
+			long[] found = index.similar(query.getId(), limit);
+			assertThat(found).hasSize(expected.size());
+			for (int i = 0; i < found.length; i++) {
+				assertThat(found[i]).isNotEqualTo(query.getId());
+				assertThat(distance(query, cars.get(found[i]))).isCloseTo(expected.get(i), within(1e-3));
+			}
+		}
+	}
+
+	// Та же метрика, что и в индексе, с настройками по умолчанию
+	private static double distance(Car a, Car b) {
+		double price = (Math.log(a.getPrice()) - Math.log(b.getPrice())) / Math.log(1.25);
+		double year = (a.getYear() - b.getYear()) / 2.0;
+		double mileage = (a.getMileage() - b.getMileage()) / 30000.0;
+		double distance = price * price + year * year + mileage * mileage;
+		if (!same(a.getBrand(), b.getBrand())) {
+			distance += 2 * 2;
+		}
+		if (!same(a.getFuelType(), b.getFuelType())) {
+			distance += 1;
+		}
+		if (!same(a.getTransmission(), b.getTransmission())) {
+			distance += 0.5 * 0.5;
+		}
+		return distance;
+	}
+
+	private static boolean same(String a, String b) {
+		return a == null ? b == null : b != null && a.equalsIgnoreCase(b);
+	}
+
+	private void create(Car car) {
+		cars.put(car.getId(), car);
+		index.onCarChanged(CarChangedEvent.created(car));
+	}
+
+	private Car randomCar(long id) {
+		return car(id, BRANDS[random.nextInt(BRANDS.length)], 2000 + random.nextInt(25),
+				3000 + random.nextDouble() * 80000, random.nextInt(300000),
+				FUEL_TYPES[random.nextInt(FUEL_TYPES.length)], TRANSMISSIONS[random.nextInt(TRANSMISSIONS.length)]);
+	}
+
+	private static Car car(Long id, String brand, int year, double price, int mileage, String fuelType,
+			String transmission) {
+		Car car = new Car(brand, "Model", year, price);
+		car.setId(id);
+		car.setMileage(mileage);
+		car.setFuelType(fuelType);
+		car.setTransmission(transmission);
+		return car;
+	}
+}
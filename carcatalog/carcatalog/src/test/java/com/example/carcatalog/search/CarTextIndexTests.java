@@ -0,0 +1,156 @@
+package com.example.carcatalog.search;
+
+import com.example.carcatalog.event.CarChangedEvent;
+import com.example.carcatalog.event.CarsChangedEvent;
+import com.example.carcatalog.model.Car;
+import com.example.carcatalog.repository.CarRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CarTextIndexTests {
+
+	private CarTextIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new CarTextIndex();
+		index.onCarChanged(CarChangedEvent.created(car(1L, "BMW", "X5", "Полный привод, панорамная крыша")));
+		index.onCarChanged(CarChangedEvent.created(car(2L, "BMW", "M3 Competition", null)));
+		index.onCarChanged(CarChangedEvent.created(car(3L, "Mercedes-Benz", "E-Class", "Один владелец")));
+	}
+
+	@Test
+	void findsSubstringsInAnyFieldIgnoringCase() {
+		assertThat(index.find("BM")).containsExactly(1L, 2L);
+		assertThat(index.find("petit")).containsExactly(2L);
+		assertThat(index.find("ПАНОРАМ")).containsExactly(1L);
+		assertThat(index.find("e-class")).containsExactly(3L);
+		assertThat(index.find("привод, пан")).containsExactly(1L);
+		assertThat(index.find("audi")).isEmpty();
+		assertThat(index.find("")).isNull();
+	}
+
+	@Test
+	void matchesLikeSubstringsRatherThanWords() {
+		// Как LIKE: пунктуация и пробелы - часть подстроки, поля не склеиваются
+		assertThat(index.find("e class")).isEmpty();
+		assertThat(index.find("mw")).containsExactly(1L, 2L);
+		assertThat(index.find("e")).containsExactly(2L, 3L);
+		assertThat(index.find("bmwx5")).isEmpty();
+	}
+
+	@Test
+	void verifiesTrigramCandidates() {
+		index.onCarChanged(CarChangedEvent.created(car(4L, "bcabc", "", null)));
+
+		// Все триграммы "abcab" есть в "bcabc", но подстроки нет
+		assertThat(index.find("abcab")).isEmpty();
+		assertThat(index.find("cabc")).containsExactly(4L);
+	}
+
+	@Test
+	void followsUpdatesAndDeletes() {
+		Car before = car(2L, "BMW", "M3 Competition", null);
+		index.onCarChanged(CarChangedEvent.updated(before, car(2L, "BMW", "M5", "Рестайлинг")));
+		index.onCarChanged(CarChangedEvent.deleted(car(1L, "BMW", "X5", "Полный привод, панорамная крыша")));
+
+		assertThat(index.find("competition")).isEmpty();
+		assertThat(index.find("рестайл")).containsExactly(2L);
+		assertThat(index.find("bmw")).containsExactly(2L);
+		assertThat(index.suggest("bmw", 10)).containsExactly("BMW M5");
+	}
+
+	@Test
+	void keepsDeletionMadeWhileIndexIsRebuilt() {
+		CarRepository carRepository = mock(CarRepository.class);
+		ReflectionTestUtils.setField(index, "carRepository", carRepository);
+		Car x5 = car(1L, "BMW", "X5", "Полный привод, панорамная крыша");
+		when(carRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).thenAnswer(invocation -> {
+			List<Car> batch = List.of(x5, car(2L, "BMW", "M3 Competition", null));
+			// Пачка прочитана до commit удаления, а событие применяется раньше неё
+			index.onCarChanged(CarChangedEvent.deleted(x5));
+			index.onCarChanged(CarChangedEvent.updated(batch.get(1), car(2L, "BMW", "M5", null)));
+			return batch;
+		});
+
+		index.rebuild();
+
+		assertThat(index.find("bmw")).containsExactly(2L);
+		assertThat(index.find("панорам")).isEmpty();
+		assertThat(index.find("competition")).isEmpty();
+		assertThat(index.suggest("bmw", 10)).containsExactly("BMW M5");
+	}
+
+	@Test
+	void removesByIdOnBulkDelete() {
+		index.onCarsChanged(CarsChangedEvent.created(List.of(car(4L, "Lada", "Niva", null), car(5L, "Lada", "Vesta", null))));
+		index.onCarsChanged(CarsChangedEvent.deleted(List.of(1L, 5L)));
+
+		assertThat(index.find("панорам")).isEmpty();
+		assertThat(index.find("lada")).containsExactly(4L);
+		assertThat(index.suggest("bm", 10)).containsExactly("BMW M3 Competition");
+		assertThat(index.suggest("la", 10)).containsExactly("Lada Niva");
+	}
+
+	@Test
+	void suggestsByBrandOrModelPrefix() {
+		index.onCarChanged(CarChangedEvent.created(car(4L, "BMW", "X5", null)));
+
+		assertThat(index.suggest("bm", 10)).containsExactly("BMW X5", "BMW M3 Competition");
+		assertThat(index.suggest("e-cl", 10)).containsExactly("Mercedes-Benz E-Class");
+		assertThat(index.suggest("bm", 1)).containsExactly("BMW X5");
+	}
+
+	@Test
+	void matchesBruteForceLike() {
+		index = new CarTextIndex();
+		Random random = new Random(11);
+		List<Car> cars = new ArrayList<>();
+		for (long id = 10; id < 400; id++) {
+			Car car = car(id, randomText(random, 6), randomText(random, 8), randomText(random, 40));
+			cars.add(car);
+			index.onCarChanged(CarChangedEvent.created(car));
+		}
+		for (int i = 0; i < 300; i++) {
+			String query = randomText(random, 1 + random.nextInt(5));
+			String lower = query.toLowerCase();
+			long[] expected = cars.stream()
+					.filter(car -> contains(car.getBrand(), lower) || contains(car.getModel(), lower)
+							|| contains(car.getDescription(), lower))
+					.mapToLong(Car::getId)
+					.toArray();
+			assertThat(index.find(query)).as(query).containsExactly(expected);
+		}
+	}
+
+	private static boolean contains(String field, String lower) {
+		return field != null && field.toLowerCase().contains(lower);
+	}
+
+	private static String randomText(Random random, int length) {
+		String alphabet = "abcABC -";
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return text.toString();
+	}
+
+	private static Car car(Long id, String brand, String model, String description) {
+		Car car = new Car(brand, model, 2020, 10000);
+		car.setId(id);
+		car.setDescription(description);
+		return car;
+	}
+}
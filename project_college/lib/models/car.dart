@@ -11,6 +11,12 @@ class Car {
   final int? mileage;
   final String? fuelType;
   final String? transmission;
+  // Уменьшенные копии фото, загруженного на сервер (пути вида /api/images/...)
+  final String? thumbnailUrl;
+  final String? mediumUrl;
+
+  // Для относительных путей картинок с нашего сервера
+  static const String serverUrl = 'http://localhost:8080';
 
   Car({
     required this.id,
@@ -24,8 +30,18 @@ class Car {
     this.mileage,
     this.fuelType,
     this.transmission,
+    this.thumbnailUrl,
+    this.mediumUrl,
   });
 
+  // Для списков - миниатюра (килобайты), для карточки - средний размер.
+  // Если фото не загружалось на сервер - внешний imageUrl как есть
+  String get listImageUrl => _absolute(thumbnailUrl ?? imageUrl);
+
+  String get detailImageUrl => _absolute(mediumUrl ?? imageUrl);
+
+  static String _absolute(String url) => url.startsWith('/') ? '$serverUrl$url' : url;
+
 // models/car.dart
   factory Car.fromJson(Map<String, dynamic> json) {
     return Car(
@@ -40,6 +56,8 @@ class Car {
       mileage: json['mileage'],
       fuelType: json['fuelType'],
       transmission: json['transmission'],
+      thumbnailUrl: json['thumbnailUrl'],
+      mediumUrl: json['mediumUrl'],
     );
   }
 }
\ No newline at end of file
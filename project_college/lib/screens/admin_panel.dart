@@ -157,7 +157,7 @@ class _AdminPanelState extends State<AdminPanel> {
                       ClipRRect(
                         borderRadius: BorderRadius.circular(8),
                         child: Image.network(
-                          car.imageUrl,
+                          car.listImageUrl,
                           width: 60,
                           height: 60,
                           fit: BoxFit.cover,
@@ -14,7 +14,7 @@ class CarDetails extends StatelessWidget {
         child: Column(
           crossAxisAlignment: CrossAxisAlignment.start,
           children: [
-            Image.network(car.imageUrl, fit: BoxFit.cover),
+            Image.network(car.detailImageUrl, fit: BoxFit.cover),
             const SizedBox(height: 16),
             Text('${car.brand} ${car.name}', style: const TextStyle(fontSize: 24, fontWeight: FontWeight.bold)),
             const SizedBox(height: 8),
@@ -21,6 +21,14 @@ class _HomeScreenState extends State<HomeScreen> {
   Future<List<Car>>? _filteredCarsFuture;
   List<Car> _displayedCars = [];
 
+  // Результаты поиска приходят страницами: следующая подгружается в конце списка
+  int _nextPage = 0;
+  int _totalCount = 0;
+  bool _loadingMore = false;
+  bool _loadMoreFailed = false;
+  // Номер текущего поиска: страница от старых фильтров в новый список не попадает
+  int _searchGeneration = 0;
+
   bool isLoggedIn = false;
   bool _isAdmin = false;
   Map<int, bool> _favoriteStatus = {};
@@ -79,8 +87,8 @@ class _HomeScreenState extends State<HomeScreen> {
     });
   }
 
-  Future<List<Car>> _loadCarsWithFiltersAndFavorites() async {
-    final cars = await api.searchCars(
+  Future<CarSearchPage> _searchPage(int page) {
+    return api.searchCarsPage(
       search: _searchQuery.isEmpty ? null : _searchQuery,
       brand: _selectedBrand,
       fuelType: _selectedFuelType,
@@ -90,16 +98,69 @@ class _HomeScreenState extends State<HomeScreen> {
       maxYear: _maxYear < 2024 ? _maxYear : null,
       sortBy: _selectedSort,
       sortOrder: _sortOrder,
+      page: page,
     );
+  }
+
+  Future<List<Car>> _loadCarsWithFiltersAndFavorites() async {
+    final generation = ++_searchGeneration;
+    final page = await _searchPage(0);
+    await _loadFavoriteStatuses(page.cars);
+    if (generation == _searchGeneration) {
+      _displayedCars = List.of(page.cars);
+      _totalCount = page.totalCount;
+      _nextPage = 1;
+      _loadMoreFailed = false;
+    }
+    return _displayedCars;
+  }
+
+  bool get _hasMoreCars => _displayedCars.length < _totalCount;
+
+  // Следующая страница того же поиска, в конец списка
+  Future<void> _loadMoreCars() async {
+    if (_loadingMore || !_hasMoreCars) return;
+    final generation = _searchGeneration;
+    setState(() {
+      _loadingMore = true;
+      _loadMoreFailed = false;
+    });
+    try {
+      final page = await _searchPage(_nextPage);
+      await _loadFavoriteStatuses(page.cars);
+      if (!mounted || generation != _searchGeneration) return;
+      setState(() {
+        _displayedCars.addAll(page.cars);
+        _totalCount = page.cars.isEmpty ? _displayedCars.length : page.totalCount;
+        _nextPage++;
+      });
+    } catch (e) {
+      print('Error loading more cars: $e');
+      _loadMoreFailed = true;
+    } finally {
+      if (mounted) {
+        setState(() {
+          _loadingMore = false;
+        });
+      }
+    }
+  }
 
-    // Загружаем статусы избранного
+  // Загружаем статусы избранного
+  Future<void> _loadFavoriteStatuses(List<Car> cars) async {
     if (isLoggedIn && _userId != null) {
-      for (final car in cars) {
-        try {
-          final isFavorite = await _favoriteService.checkFavorite(_userId!, car.id);
-          _favoriteStatus[car.id] = isFavorite;
-        } catch (e) {
-          print('Error loading favorite status for car ${car.id}: $e');
+      // Один запрос на всю страницу вместо запроса на каждую машину
+      try {
+        final favoriteIds = await _favoriteService.checkFavorites(
+          _userId!,
+          cars.map((car) => car.id).toList(),
+        );
+        for (final car in cars) {
+          _favoriteStatus[car.id] = favoriteIds.contains(car.id);
+        }
+      } catch (e) {
+        print('Error loading favorite statuses: $e');
+        for (final car in cars) {
           _favoriteStatus[car.id] = false;
         }
       }
@@ -108,8 +169,6 @@ class _HomeScreenState extends State<HomeScreen> {
         _favoriteStatus[car.id] = false;
       }
     }
-
-    return cars;
   }
 
   void _applyFilters() {
@@ -587,7 +646,7 @@ class _HomeScreenState extends State<HomeScreen> {
                               const Icon(Icons.admin_panel_settings, size: 16, color: Colors.purple),
                               const SizedBox(width: 4),
                               Text(
-                                'Admin Mode - ${cars.length} cars',
+                                'Admin Mode - $_totalCount cars',
                                 style: const TextStyle(
                                   color: Colors.purple,
                                   fontWeight: FontWeight.w500,
@@ -617,8 +676,26 @@ class _HomeScreenState extends State<HomeScreen> {
                       Expanded(
                         child: ListView.builder(
                           padding: const EdgeInsets.all(8),
-                          itemCount: cars.length,
+                          itemCount: cars.length + (_hasMoreCars ? 1 : 0),
                           itemBuilder: (context, index) {
+                            // Дошли до конца загруженного - просим следующую страницу
+                            if (index == cars.length) {
+                              if (_loadMoreFailed) {
+                                return Center(
+                                  child: TextButton(
+                                    onPressed: _loadMoreCars,
+                                    child: const Text('Load more'),
+                                  ),
+                                );
+                              }
+                              if (!_loadingMore) {
+                                WidgetsBinding.instance.addPostFrameCallback((_) => _loadMoreCars());
+                              }
+                              return const Padding(
+                                padding: EdgeInsets.all(16),
+                                child: Center(child: CircularProgressIndicator()),
+                              );
+                            }
                             final car = cars[index];
                             final isFavorite = _favoriteStatus[car.id] ?? false;
 
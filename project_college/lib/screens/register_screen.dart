@@ -1,3 +1,4 @@
+import 'dart:async';
 import 'package:flutter/material.dart';
 import '../services/auth_service.dart';
 import 'login_screen.dart';
@@ -16,6 +17,32 @@ class _RegisterScreenState extends State<RegisterScreen> {
   final AuthService _authService = AuthService();
   bool _isLoading = false;
 
+  // Проверка занятости при вводе (с задержкой, чтобы не спрашивать на каждую букву)
+  Timer? _availabilityTimer;
+  String? _usernameError;
+  String? _emailError;
+
+  void _onCredentialsChanged(String _) {
+    _availabilityTimer?.cancel();
+    _availabilityTimer = Timer(const Duration(milliseconds: 400), _checkAvailability);
+  }
+
+  Future<void> _checkAvailability() async {
+    final username = _usernameController.text.trim();
+    final email = _emailController.text.trim();
+    if (username.isEmpty && email.isEmpty) return;
+
+    final result = await _authService.checkAvailability(
+      username: username.isEmpty ? null : username,
+      email: email.isEmpty ? null : email,
+    );
+    if (!mounted) return;
+    setState(() {
+      _usernameError = result['username'] == false ? 'Username already exists' : null;
+      _emailError = result['email'] == false ? 'Email already registered' : null;
+    });
+  }
+
   void _register() async {
     //  Валидация перед отправкой
     if (_usernameController.text.trim().isEmpty ||
@@ -56,6 +83,7 @@ class _RegisterScreenState extends State<RegisterScreen> {
 
   @override
   void dispose() {
+    _availabilityTimer?.cancel();
     _usernameController.dispose();
     _emailController.dispose();
     _passwordController.dispose();
@@ -73,19 +101,23 @@ class _RegisterScreenState extends State<RegisterScreen> {
           children: [
             TextField(
               controller: _usernameController,
-              decoration: const InputDecoration(
+              onChanged: _onCredentialsChanged,
+              decoration: InputDecoration(
                 labelText: 'Username',
-                border: OutlineInputBorder(),
-                prefixIcon: Icon(Icons.person),
+                border: const OutlineInputBorder(),
+                prefixIcon: const Icon(Icons.person),
+                errorText: _usernameError,
               ),
             ),
             const SizedBox(height: 16),
             TextField(
               controller: _emailController,
-              decoration: const InputDecoration(
+              onChanged: _onCredentialsChanged,
+              decoration: InputDecoration(
                 labelText: 'Email',
-                border: OutlineInputBorder(),
-                prefixIcon: Icon(Icons.email),
+                border: const OutlineInputBorder(),
+                prefixIcon: const Icon(Icons.email),
+                errorText: _emailError,
               ),
               keyboardType: TextInputType.emailAddress,
             ),
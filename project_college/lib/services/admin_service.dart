@@ -1,17 +1,28 @@
 // services/admin_service.dart
 import 'dart:convert';
 import 'package:http/http.dart' as http;
+import 'package:shared_preferences/shared_preferences.dart';
 import '../models/car.dart';
 
 class AdminService {
   final String baseUrl = 'http://localhost:8080/api/cars';
 
+  // Заголовки с токеном входа (Authorization: Bearer ...), если пользователь вошёл
+  Future<Map<String, String>> _headers({bool json = false}) async {
+    final prefs = await SharedPreferences.getInstance();
+    final token = prefs.getString('token');
+    return {
+      if (json) 'Content-Type': 'application/json',
+      if (token != null) 'Authorization': 'Bearer $token',
+    };
+  }
+
   // Создать новую машину
   Future<Car?> createCar(Car car) async {
     try {
       final response = await http.post(
         Uri.parse(baseUrl),
-        headers: {'Content-Type': 'application/json'},
+        headers: await _headers(json: true),
         body: jsonEncode({
           'brand': car.brand,
           'model': car.name,
@@ -44,7 +55,7 @@ class AdminService {
     try {
       final response = await http.put(
         Uri.parse('$baseUrl/${car.id}'),
-        headers: {'Content-Type': 'application/json'},
+        headers: await _headers(json: true),
         body: jsonEncode({
           'brand': car.brand,
           'model': car.name,
@@ -77,6 +88,7 @@ class AdminService {
     try {
       final response = await http.delete(
         Uri.parse('$baseUrl/$carId'),
+        headers: await _headers(),
       ).timeout(const Duration(seconds: 10));
 
       print('Delete car response: ${response.statusCode}');
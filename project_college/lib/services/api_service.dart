@@ -5,11 +5,36 @@ import '../models/car.dart';
 class ApiService {
   final String baseUrl = 'http://localhost:8080/api';
 
+  // Последние ответы по URL вместе с ETag: если каталог не менялся,
+  // сервер отвечает 304 без тела и берётся сохранённый ответ
+  static const int _maxCachedResponses = 50;
+  static final Map<String, _CachedResponse> _etagCache = {};
+
+  Future<http.Response> _getWithEtag(Uri uri, {Duration timeout = const Duration(seconds: 10)}) async {
+    final key = uri.toString();
+    final cached = _etagCache[key];
+    final response = await http.get(
+      uri,
+      headers: {if (cached != null) 'If-None-Match': cached.etag},
+    ).timeout(timeout);
+
+    if (response.statusCode == 304 && cached != null) {
+      return http.Response.bytes(cached.bodyBytes, 200, headers: cached.headers);
+    }
+    final etag = response.headers['etag'];
+    if (response.statusCode == 200 && etag != null) {
+      _etagCache.remove(key);
+      if (_etagCache.length >= _maxCachedResponses) {
+        _etagCache.remove(_etagCache.keys.first);
+      }
+      _etagCache[key] = _CachedResponse(etag, response.bodyBytes, response.headers);
+    }
+    return response;
+  }
+
   Future<List<Car>> fetchCars() async {
     try {
-      final response = await http.get(
-        Uri.parse('$baseUrl/cars'),
-      ).timeout(const Duration(seconds: 10));
+      final response = await _getWithEtag(Uri.parse('$baseUrl/cars'));
 
       print('Fetching cars from: $baseUrl/cars');
       print('Response status: ${response.statusCode}');
@@ -28,8 +53,11 @@ class ApiService {
 
 
 
-  // Поиск и фильтрация машин
-  Future<List<Car>> searchCars({
+  // Размер страницы поиска (сервер отдаёт не больше 500 за запрос)
+  static const int searchPageSize = 50;
+
+  // Одна страница поиска: фильтры и сортировка на сервере, всего найдено - X-Total-Count
+  Future<CarSearchPage> searchCarsPage({
     String? search,
     String? brand,
     String? fuelType,
@@ -39,6 +67,8 @@ class ApiService {
     int? maxYear,
     String? sortBy,
     String? sortOrder,
+    int page = 0,
+    int size = searchPageSize,
   }) async {
     try {
       final params = <String, String>{};
@@ -53,19 +83,22 @@ class ApiService {
       if (maxYear != null) params['maxYear'] = maxYear.toString();
       if (sortBy != null && sortBy.isNotEmpty) params['sortBy'] = sortBy;
       if (sortOrder != null && sortOrder.isNotEmpty) params['sortOrder'] = sortOrder;
+      params['page'] = page.toString();
+      params['size'] = size.toString();
 
       final uri = Uri.parse('$baseUrl/cars/search').replace(queryParameters: params);
 
       print('Search URL: $uri');
 
-      final response = await http.get(uri).timeout(const Duration(seconds: 10));
+      final response = await _getWithEtag(uri);
 
       print('Search response status: ${response.statusCode}');
-      print('Search response body: ${response.body}');
 
       if (response.statusCode == 200) {
         final List<dynamic> data = jsonDecode(response.body);
-        return data.map((e) => Car.fromJson(e)).toList();
+        final cars = data.map((e) => Car.fromJson(e)).toList();
+        final total = int.tryParse(response.headers['x-total-count'] ?? '') ?? page * size + cars.length;
+        return CarSearchPage(cars, total, page, size);
       } else {
         throw Exception('Failed to search cars: ${response.statusCode}');
       }
@@ -75,12 +108,44 @@ class ApiService {
     }
   }
 
+  // Все результаты поиска: страницы подряд, пока не наберётся X-Total-Count
+  Future<List<Car>> searchCars({
+    String? search,
+    String? brand,
+    String? fuelType,
+    double? minPrice,
+    double? maxPrice,
+    int? minYear,
+    int? maxYear,
+    String? sortBy,
+    String? sortOrder,
+  }) async {
+    final cars = <Car>[];
+    for (var page = 0; ; page++) {
+      final result = await searchCarsPage(
+        search: search,
+        brand: brand,
+        fuelType: fuelType,
+        minPrice: minPrice,
+        maxPrice: maxPrice,
+        minYear: minYear,
+        maxYear: maxYear,
+        sortBy: sortBy,
+        sortOrder: sortOrder,
+        page: page,
+        size: 500,
+      );
+      cars.addAll(result.cars);
+      if (!result.hasMore || result.cars.isEmpty) {
+        return cars;
+      }
+    }
+  }
+
   // Получить список уникальных брендов
   Future<List<String>> getBrands() async {
     try {
-      final response = await http.get(
-        Uri.parse('$baseUrl/cars/brands'),
-      ).timeout(const Duration(seconds: 10));
+      final response = await _getWithEtag(Uri.parse('$baseUrl/cars/brands'));
 
       print('Fetching brands from: $baseUrl/cars/brands');
       print('Brands response status: ${response.statusCode}');
@@ -103,9 +168,7 @@ class ApiService {
   // Получить машину по ID
   Future<Car> fetchCarById(int id) async {
     try {
-      final response = await http.get(
-        Uri.parse('$baseUrl/cars/$id'),
-      ).timeout(const Duration(seconds: 10));
+      final response = await _getWithEtag(Uri.parse('$baseUrl/cars/$id'));
 
       if (response.statusCode == 200) {
         return Car.fromJson(jsonDecode(response.body));
@@ -225,4 +288,23 @@ class ApiService {
 
     return cars;
   }
-}
\ No newline at end of file
+}
+
+class CarSearchPage {
+  final List<Car> cars;
+  final int totalCount;
+  final int page;
+  final int size;
+
+  CarSearchPage(this.cars, this.totalCount, this.page, this.size);
+
+  bool get hasMore => (page + 1) * size < totalCount;
+}
+
+class _CachedResponse {
+  final String etag;
+  final List<int> bodyBytes;
+  final Map<String, String> headers;
+
+  _CachedResponse(this.etag, this.bodyBytes, this.headers);
+}
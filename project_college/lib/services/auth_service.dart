@@ -48,6 +48,24 @@ class AuthService {
     await prefs.clear();
   }
 
+  // Проверка при вводе: true - username/email свободен; пустой ответ - не удалось проверить
+  Future<Map<String, bool>> checkAvailability({String? username, String? email}) async {
+    try {
+      final uri = Uri.parse('$baseUrl/availability').replace(queryParameters: {
+        if (username != null) 'username': username,
+        if (email != null) 'email': email,
+      });
+      final response = await http.get(uri).timeout(const Duration(seconds: 5));
+      if (response.statusCode == 200) {
+        final Map<String, dynamic> data = jsonDecode(response.body);
+        return data.map((key, value) => MapEntry(key, value == true));
+      }
+    } catch (e) {
+      print('Error checking availability: $e');
+    }
+    return {};
+  }
+
   Future<bool> register(String u, String e, String p) async {
     final response = await http.post(
       Uri.parse('$baseUrl/register'),
@@ -1,15 +1,27 @@
 import 'dart:convert';
 import 'package:http/http.dart' as http;
+import 'package:shared_preferences/shared_preferences.dart';
 import '../models/car.dart';
 
 class FavoriteService {
   final String baseUrl = 'http://localhost:8080/api/favorites';
 
+  // Заголовки с токеном входа (Authorization: Bearer ...), если пользователь вошёл
+  Future<Map<String, String>> _headers({bool json = false}) async {
+    final prefs = await SharedPreferences.getInstance();
+    final token = prefs.getString('token');
+    return {
+      if (json) 'Content-Type': 'application/json',
+      if (token != null) 'Authorization': 'Bearer $token',
+    };
+  }
+
   // Получить избранные машины пользователя
   Future<List<Car>> getUserFavorites(int userId) async {
     try {
       final response = await http.get(
         Uri.parse('$baseUrl/user/$userId'),
+        headers: await _headers(),
       ).timeout(const Duration(seconds: 10));
 
       if (response.statusCode == 200) {
@@ -29,7 +41,7 @@ class FavoriteService {
     try {
       final response = await http.post(
         Uri.parse(baseUrl),
-        headers: {'Content-Type': 'application/json'},
+        headers: await _headers(json: true),
         body: jsonEncode({
           'userId': userId,
           'carId': carId,
@@ -52,6 +64,7 @@ class FavoriteService {
     try {
       final response = await http.delete(
         Uri.parse('$baseUrl?userId=$userId&carId=$carId'),
+        headers: await _headers(),
       ).timeout(const Duration(seconds: 10));
 
       if (response.statusCode == 200) {
@@ -70,6 +83,7 @@ class FavoriteService {
     try {
       final response = await http.get(
         Uri.parse('$baseUrl/check?userId=$userId&carId=$carId'),
+        headers: await _headers(),
       ).timeout(const Duration(seconds: 10));
 
       if (response.statusCode == 200) {
@@ -82,4 +96,25 @@ class FavoriteService {
       return false;
     }
   }
-}
\ No newline at end of file
+
+  // Проверить сразу несколько машин: возвращает id тех, что в избранном
+  Future<Set<int>> checkFavorites(int userId, List<int> carIds) async {
+    if (carIds.isEmpty) return <int>{};
+    try {
+      final response = await http.get(
+        Uri.parse('$baseUrl/status?userId=$userId&carIds=${carIds.join(',')}'),
+        headers: await _headers(),
+      ).timeout(const Duration(seconds: 10));
+
+      if (response.statusCode == 200) {
+        final data = jsonDecode(response.body);
+        final List<dynamic> ids = data['favoriteCarIds'];
+        return ids.map((e) => (e as num).toInt()).toSet();
+      }
+      throw Exception('Failed to check favorites: ${response.statusCode}');
+    } catch (e) {
+      print('Error checking favorites: $e');
+      throw Exception('Failed to check favorites: $e');
+    }
+  }
+}
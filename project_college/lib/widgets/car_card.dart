@@ -66,7 +66,7 @@ class _CarCardState extends State<CarCard> {
               ClipRRect(
                 borderRadius: BorderRadius.circular(8),
                 child: Image.network(
-                  widget.car.imageUrl,
+                  widget.car.listImageUrl,
                   width: 80,
                   height: 80,
                   fit: BoxFit.cover,